@@ -2,6 +2,7 @@
 
 /* Drop Tables */
 
+DROP TABLE sys_office_closure;
 DROP TABLE sys_role_office;
 DROP TABLE sys_user_role;
 DROP TABLE sys_user;
@@ -180,6 +181,15 @@ CREATE TABLE sys_role_office
 );
 
 
+CREATE TABLE sys_office_closure
+(
+	ancestor_id varchar(64) NOT NULL,
+	descendant_id varchar(64) NOT NULL,
+	depth int NOT NULL,
+	PRIMARY KEY (ancestor_id, descendant_id)
+);
+
+
 CREATE TABLE sys_user
 (
 	id varchar(64) NOT NULL,
@@ -238,6 +248,7 @@ CREATE INDEX sys_office_parent_id ON sys_office (parent_id ASC);
 /*CREATE INDEX sys_office_parent_ids ON sys_office (parent_ids ASC);*/
 CREATE INDEX sys_office_del_flag ON sys_office (del_flag ASC);
 CREATE INDEX sys_office_type ON sys_office (type ASC);
+CREATE INDEX sys_office_closure_desc_id ON sys_office_closure (descendant_id ASC);
 CREATE INDEX sys_role_del_flag ON sys_role (del_flag ASC);
 CREATE INDEX sys_role_enname ON sys_role (enname ASC);
 CREATE INDEX sys_user_office_id ON sys_user (office_id ASC);
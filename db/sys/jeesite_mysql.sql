@@ -2,6 +2,7 @@ SET SESSION FOREIGN_KEY_CHECKS=0;
 
 /* Drop Tables */
 
+DROP TABLE IF EXISTS sys_office_closure;
 DROP TABLE IF EXISTS sys_role_office;
 DROP TABLE IF EXISTS sys_user_role;
 DROP TABLE IF EXISTS sys_user;
@@ -219,6 +220,15 @@ CREATE TABLE sys_user_role
 /* Create Indexes */
 
 CREATE INDEX sys_area_parent_id ON sys_area (parent_id ASC);
+
+
+CREATE TABLE sys_office_closure
+(
+	ancestor_id varchar(64) NOT NULL COMMENT '祖先机构编号',
+	descendant_id varchar(64) NOT NULL COMMENT '后代机构编号',
+	depth int NOT NULL COMMENT '层级距离',
+	PRIMARY KEY (ancestor_id, descendant_id)
+) COMMENT = '机构闭包表';
 /*CREATE INDEX sys_area_parent_ids ON sys_area (parent_ids ASC);*/
 CREATE INDEX sys_area_del_flag ON sys_area (del_flag ASC);
 CREATE INDEX sys_dict_value ON sys_dict (value ASC);
@@ -238,6 +248,7 @@ CREATE INDEX sys_office_parent_id ON sys_office (parent_id ASC);
 /*CREATE INDEX sys_office_parent_ids ON sys_office (parent_ids ASC);*/
 CREATE INDEX sys_office_del_flag ON sys_office (del_flag ASC);
 CREATE INDEX sys_office_type ON sys_office (type ASC);
+CREATE INDEX sys_office_closure_desc_id ON sys_office_closure (descendant_id ASC);
 CREATE INDEX sys_role_del_flag ON sys_role (del_flag ASC);
 CREATE INDEX sys_role_enname ON sys_role (enname ASC);
 CREATE INDEX sys_user_office_id ON sys_user (office_id ASC);
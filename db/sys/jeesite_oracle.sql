@@ -21,6 +21,7 @@ DROP INDEX sys_office_parent_id;
 DROP INDEX sys_office_parent_ids;
 DROP INDEX sys_office_del_flag;
 DROP INDEX sys_office_type;
+DROP INDEX sys_office_closure_desc_id;
 DROP INDEX sys_role_del_flag;
 DROP INDEX sys_role_enname;
 DROP INDEX sys_user_office_id;
@@ -35,6 +36,7 @@ DROP INDEX sys_user_del_flag;
 
 DROP TABLE sys_user_role CASCADE CONSTRAINTS;
 DROP TABLE sys_user CASCADE CONSTRAINTS;
+DROP TABLE sys_office_closure CASCADE CONSTRAINTS;
 DROP TABLE sys_role_office CASCADE CONSTRAINTS;
 DROP TABLE sys_office CASCADE CONSTRAINTS;
 DROP TABLE sys_area CASCADE CONSTRAINTS;
@@ -220,6 +222,16 @@ CREATE TABLE sys_role_office
 );
 
 
+-- 机构闭包表
+CREATE TABLE sys_office_closure
+(
+	ancestor_id varchar2(64) NOT NULL,
+	descendant_id varchar2(64) NOT NULL,
+	depth number(10,0) NOT NULL,
+	PRIMARY KEY (ancestor_id, descendant_id)
+);
+
+
 -- 用户表
 CREATE TABLE sys_user
 (
@@ -280,6 +292,7 @@ CREATE INDEX sys_office_parent_id ON sys_office (parent_id);
 CREATE INDEX sys_office_parent_ids ON sys_office (parent_ids);
 CREATE INDEX sys_office_del_flag ON sys_office (del_flag);
 CREATE INDEX sys_office_type ON sys_office (type);
+CREATE INDEX sys_office_closure_desc_id ON sys_office_closure (descendant_id);
 CREATE INDEX sys_role_del_flag ON sys_role (del_flag);
 CREATE INDEX sys_role_enname ON sys_role (enname);
 CREATE INDEX sys_user_office_id ON sys_user (office_id);
@@ -0,0 +1,19 @@
+-- 机构闭包表（启用 office.closureEnabled 前执行）
+create table SYS_OFFICE_CLOSURE
+(
+	ANCESTOR_ID varchar(64) not null,
+	DESCENDANT_ID varchar(64) not null,
+	DEPTH int not null,
+	primary key (ANCESTOR_ID, DESCENDANT_ID)
+);
+create index SYS_OFFICE_CLOSURE_DESC_ID on SYS_OFFICE_CLOSURE (DESCENDANT_ID);
+
+-- 初始化：每个机构到自身的距离为0
+insert into SYS_OFFICE_CLOSURE (ANCESTOR_ID, DESCENDANT_ID, DEPTH)
+select ID, ID, 0 from SYS_OFFICE;
+
+-- 初始化：逐级追加上级机构，重复执行直到影响行数为0（执行次数为机构树的最大层级）
+insert into SYS_OFFICE_CLOSURE (ANCESTOR_ID, DESCENDANT_ID, DEPTH)
+select c.ANCESTOR_ID, o.ID, c.DEPTH + 1 from SYS_OFFICE o, SYS_OFFICE_CLOSURE c
+where c.DESCENDANT_ID = o.PARENT_ID
+and not exists (select 1 from SYS_OFFICE_CLOSURE x where x.ANCESTOR_ID = c.ANCESTOR_ID and x.DESCENDANT_ID = o.ID);
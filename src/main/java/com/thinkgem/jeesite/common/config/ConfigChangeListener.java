@@ -0,0 +1,22 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.config;
+
+import java.util.Set;
+
+/**
+ * 配置修改监听器，Global重新加载配置后调用，用于重建依赖配置的缓存
+ * @see Global#addConfigChangeListener(ConfigChangeListener)
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public interface ConfigChangeListener {
+
+  /**
+   * 配置已修改（在配置检查线程中调用，此时Global.getConfig已返回新值）
+   * @param changedKeys 修改的属性名
+   */
+  public void onChange(Set<String> changedKeys);
+
+}
@@ -5,34 +5,64 @@ package com.thinkgem.jeesite.common.config;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.io.DefaultResourceLoader;
 
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.thinkgem.jeesite.common.utils.PropertiesLoader;
 
 /**
- * 全局配置类
+ * 全局配置类.
+ * 配置保存在不可变的快照中，读取时无锁；重新加载时整体替换快照，并通知ConfigChangeListener.
+ * config.refreshSeconds 大于0时定时检查 jeesite.properties 的修改时间，文件修改后自动重新加载（打包在jar中时不检查）.
+ * getConfigInt/getConfigBoolean/getConfigList 的解析结果缓存在快照中，快照替换后自动失效.
  * @author ThinkGem
  * @version 2014-06-25
  */
 public class Global {
 
+  private static Logger logger = LoggerFactory.getLogger(Global.class);
+
+  /**
+   * 属性文件名
+   */
+  private static final String PROPERTIES_FILE = "jeesite.properties";
+
   /**
    * 当前对象实例
    */
   private static Global global = new Global();
 
   /**
-   * 保存全局属性值
+   * 当前配置快照
    */
-  private static Map<String, String> map = Maps.newHashMap();
+  private static volatile Snapshot snapshot = load();
 
   /**
-   * 属性文件加载对象
+   * 配置修改监听器
    */
-  private static PropertiesLoader loader = new PropertiesLoader("jeesite.properties");
+  private static final List<ConfigChangeListener> listeners = new CopyOnWriteArrayList<ConfigChangeListener>();
+
+  /**
+   * 配置文件检查线程
+   */
+  private static ScheduledExecutorService watcher;
 
   /**
    * 显示/隐藏
@@ -69,12 +99,198 @@ public class Global {
    * @see ${fns:getConfig('adminPath')}
    */
   public static String getConfig(final String key) {
-    String value = Global.map.get(key);
-    if (value == null){
-      value = Global.loader.getProperty(key);
-      Global.map.put(key, value != null ? value : org.apache.commons.lang3.StringUtils.EMPTY);
+    final String value = Global.snapshot.values.get(key);
+    return value != null ? value : org.apache.commons.lang3.StringUtils.EMPTY;
+  }
+
+  /**
+   * 获取整数配置，未配置或格式错误时返回默认值
+   */
+  public static int getConfigInt(final String key, final int defaultValue) {
+    final Object value = Global.snapshot.getParsed(key, Integer.class);
+    return value instanceof Integer ? (Integer) value : defaultValue;
+  }
+
+  /**
+   * 获取布尔配置（true或1为真），未配置时返回默认值
+   */
+  public static boolean getConfigBoolean(final String key, final boolean defaultValue) {
+    final Object value = Global.snapshot.getParsed(key, Boolean.class);
+    return value instanceof Boolean ? (Boolean) value : defaultValue;
+  }
+
+  /**
+   * 获取逗号分隔的列表配置（去除空白项），未配置时返回空列表，如 web.staticFile
+   */
+  @SuppressWarnings("unchecked")
+  public static List<String> getConfigList(final String key) {
+    return (List<String>) Global.snapshot.getParsed(key, List.class);
+  }
+
+  /**
+   * 添加配置修改监听器，重新加载配置后通知
+   */
+  public static void addConfigChangeListener(final ConfigChangeListener listener) {
+    Global.listeners.add(listener);
+  }
+
+  /**
+   * 移除配置修改监听器
+   */
+  public static void removeConfigChangeListener(final ConfigChangeListener listener) {
+    Global.listeners.remove(listener);
+  }
+
+  /**
+   * 重新加载配置文件，替换配置快照并通知监听器
+   * @return 修改的属性名，没有修改时为空集合
+   */
+  public static synchronized Set<String> reload() {
+    final Snapshot previous = Global.snapshot;
+    final Snapshot current = load();
+    final Set<String> changedKeys = Sets.newHashSet();
+    for (final String key : Sets.union(previous.values.keySet(), current.values.keySet())) {
+      if (!Objects.equal(previous.values.get(key), current.values.get(key))) {
+        changedKeys.add(key);
+      }
+    }
+    if (changedKeys.isEmpty()) {
+      return changedKeys;
+    }
+    Global.snapshot = current;
+    logger.info("Reload {}, changed: {}", PROPERTIES_FILE, changedKeys);
+    for (final ConfigChangeListener listener : Global.listeners) {
+      try {
+        listener.onChange(changedKeys);
+      } catch (final Exception e) {
+        logger.error("Config change listener error: " + listener, e);
+      }
+    }
+    return changedKeys;
+  }
+
+  /**
+   * 启动配置文件检查（config.refreshSeconds 大于0时有效），重复调用无影响
+   */
+  public static synchronized void startWatch() {
+    final int refreshSeconds = Global.getConfigInt("config.refreshSeconds", 0);
+    if (Global.watcher != null || refreshSeconds <= 0) {
+      return;
+    }
+    final File file;
+    try {
+      file = new DefaultResourceLoader().getResource(PROPERTIES_FILE).getFile();
+    } catch (final IOException e) {
+      logger.info("{} is not a file, hot reload disabled.", PROPERTIES_FILE);
+      return;
+    }
+    Global.watcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread thread = new Thread(r, "Global-watcher");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    Global.watcher.scheduleWithFixedDelay(new Runnable() {
+      private long lastModified = file.lastModified();
+      @Override
+      public void run() {
+        final long modified = file.lastModified();
+        if (modified != this.lastModified) {
+          this.lastModified = modified;
+          try {
+            Global.reload();
+          } catch (final Exception e) {
+            logger.error("Reload " + PROPERTIES_FILE + " error", e);
+          }
+        }
+      }
+    }, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    logger.info("Watching {} every {} seconds.", file, refreshSeconds);
+  }
+
+  /**
+   * 停止配置文件检查（应用关闭时调用）
+   */
+  public static synchronized void stopWatch() {
+    if (Global.watcher != null) {
+      Global.watcher.shutdownNow();
+      Global.watcher = null;
     }
-    return value;
+  }
+
+  /**
+   * 加载配置文件，以System的Property优先
+   */
+  private static Snapshot load() {
+    final Properties properties = new PropertiesLoader(PROPERTIES_FILE).getProperties();
+    final Map<String, String> values = Maps.newHashMap();
+    for (final String key : properties.stringPropertyNames()) {
+      values.put(key, properties.getProperty(key));
+    }
+    final Properties systemProperties = System.getProperties();
+    for (final String key : systemProperties.stringPropertyNames()) {
+      values.put(key, systemProperties.getProperty(key));
+    }
+    return new Snapshot(ImmutableMap.copyOf(values));
+  }
+
+  /**
+   * 配置快照：属性值不可变，解析结果按需缓存
+   */
+  private static class Snapshot {
+
+    /**
+     * 未配置或格式错误的解析结果
+     */
+    private static final Object NONE = new Object();
+
+    private final Map<String, String> values;
+    private final Map<String, Object> intValues = new ConcurrentHashMap<String, Object>();
+    private final Map<String, Object> booleanValues = new ConcurrentHashMap<String, Object>();
+    private final Map<String, Object> listValues = new ConcurrentHashMap<String, Object>();
+
+    private Snapshot(final Map<String, String> values) {
+      this.values = values;
+    }
+
+    private Object getParsed(final String key, final Class<?> type) {
+      final Map<String, Object> parsed = type == Integer.class ? this.intValues
+          : type == Boolean.class ? this.booleanValues : this.listValues;
+      Object value = parsed.get(key);
+      if (value == null) {
+        value = parse(key, this.values.get(key), type);
+        parsed.put(key, value);
+      }
+      return value;
+    }
+
+    private static Object parse(final String key, final String value, final Class<?> type) {
+      if (type == List.class) {
+        final ImmutableList.Builder<String> list = ImmutableList.builder();
+        for (final String item : org.apache.commons.lang3.StringUtils.split(
+            org.apache.commons.lang3.StringUtils.defaultString(value), ",")) {
+          if (org.apache.commons.lang3.StringUtils.isNotBlank(item)) {
+            list.add(item.trim());
+          }
+        }
+        return list.build();
+      }
+      if (org.apache.commons.lang3.StringUtils.isBlank(value)) {
+        return NONE;
+      }
+      if (type == Boolean.class) {
+        return Global.TRUE.equals(value.trim()) || Global.YES.equals(value.trim());
+      }
+      try {
+        return Integer.valueOf(value.trim());
+      } catch (final NumberFormatException e) {
+        logger.warn("Config {}={} is not an integer, use default.", key, value);
+        return NONE;
+      }
+    }
+
   }
 
   /**
@@ -102,16 +318,21 @@ public class Global {
    * 是否是演示模式，演示模式下不能修改用户、角色、密码、菜单、授权
    */
   public static Boolean isDemoMode() {
-    final String dm = Global.getConfig("demoMode");
-    return "true".equals(dm) || "1".equals(dm);
+    return Global.getConfigBoolean("demoMode", false);
+  }
+
+  /**
+   * 是否启用机构闭包表（sys_office_closure），启用后机构子树及数据范围查询通过闭包表关联，不再使用parent_ids LIKE
+   */
+  public static Boolean isOfficeClosureEnabled() {
+    return Global.getConfigBoolean("office.closureEnabled", false);
   }
 
   /**
    * 在修改系统用户和角色时是否同步到Activiti
    */
   public static Boolean isSynActivitiIndetity() {
-    final String dm = Global.getConfig("activiti.isSynActivitiIndetity");
-    return "true".equals(dm) || "1".equals(dm);
+    return Global.getConfigBoolean("activiti.isSynActivitiIndetity", false);
   }
 
   /**
@@ -0,0 +1,39 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.filter;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.thinkgem.jeesite.common.web.Servlets;
+
+/**
+ * 静态资源过滤器（配置在shiroFilter之前），匹配静态资源路径前缀（web.staticPath）的请求直接转发给Servlet处理，
+ * 转发不再经过shiroFilter等过滤器，不创建Subject，也不读取或更新会话
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class StaticResourceFilter extends OncePerRequestFilter {
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String path = request.getServletPath();
+		if (request.getPathInfo() != null){
+			path += request.getPathInfo();
+		}
+		if (Servlets.isStaticPath(path)){
+			request.getRequestDispatcher(path).forward(request, response);
+			return;
+		}
+		chain.doFilter(request, response);
+	}
+
+}
@@ -0,0 +1,26 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.persistence;
+
+import java.util.List;
+
+/**
+ * 支持多行插入的DAO接口，Mapper中必须实现insertBatch语句；
+ * CrudService.insertBatch对继承此接口的Dao按批次执行多行插入，其它Dao以BATCH执行器逐条执行insert。
+ * 不放在CrudDao中：多数Mapper没有多行插入语句，直接调用会抛出BindingException；
+ * 按编号批量删除不单独定义Dao方法，CrudService.deleteByIds以BATCH执行器逐条执行各Mapper已有的delete（逻辑删除）
+ * @author ThinkGem
+ * @version 2014-11-7
+ * @param <T>
+ */
+public interface BatchDao<T> extends CrudDao<T> {
+
+	/**
+	 * 批量插入数据（多行INSERT ... SELECT ... UNION ALL，按数据库类型生成）
+	 * @param list
+	 * @return
+	 */
+	public int insertBatch(List<T> list);
+	
+}
@@ -5,8 +5,11 @@ package com.thinkgem.jeesite.common.persistence;
 
 import java.util.List;
 
+import org.apache.ibatis.session.ResultHandler;
+
 /**
  * DAO支持类实现
+ * 批量操作通过CrudService.insertBatch/updateBatch/deleteByIds执行，Mapper实现多行插入时Dao继承BatchDao
  * @author ThinkGem
  * @version 2014-05-16
  * @param <T>
@@ -34,6 +37,13 @@ public interface CrudDao<T> extends BaseDao {
 	 */
 	public List<T> findList(T entity);
 	
+	/**
+	 * 流式查询数据列表，结果逐条交给处理器，不在内存中保留完整列表（如导出大量数据），与findList使用同一查询语句
+	 * @param entity
+	 * @param handler 结果处理器
+	 */
+	public void findList(T entity, ResultHandler handler);
+	
 	/**
 	 * 查询所有数据列表
 	 * @param entity
@@ -25,7 +25,7 @@ import com.thinkgem.jeesite.common.utils.CookieUtils;
 public class Page<T> {
 	
 	private int pageNo = 1; // 当前页码
-	private int pageSize = Integer.valueOf(Global.getConfig("page.pageSize")); // 页面大小，设置为“-1”表示不进行分页（分页无效）
+	private int pageSize = Global.getConfigInt("page.pageSize", 30); // 页面大小，设置为“-1”表示不进行分页（分页无效）
 	
 	private long count;// 总记录数，设置为“-1”表示不查询总数
 	
@@ -36,6 +36,7 @@ public class Page<T> {
 	
 	private boolean firstPage;//是否是第一页
 	private boolean lastPage;//是否是最后一页
+	private boolean hasNext;//是否有下一页（不查询总数时有效）
 
 	private int length = 8;// 显示页面长度
 	private int slider = 1;// 前后显示页面长度
@@ -49,6 +50,12 @@ public class Page<T> {
 	private String funcParam = ""; // 函数的附加参数，第三个参数值。
 	
 	private String message = ""; // 设置提示消息，显示在“共n条”之后
+	
+	private String seekColumns = ""; // 键集分页排序列，实例： a.create_date,a.id
+	
+	private boolean seekDesc; // 键集分页是否倒序
+	
+	private Object[] seekValues; // 键集分页上一页最后一条记录的排序列值，为空时查询第一页
 
 	public Page() {
 		this.pageSize = -1;
@@ -142,6 +149,19 @@ public class Page<T> {
 		//1
 		this.first = 1;
 		
+		// 不查询总数时，根据是否有下一页计算尾页
+		if (isNotCount()) {
+			if (this.pageNo < this.first) {
+				this.pageNo = this.first;
+			}
+			this.last = this.hasNext ? this.pageNo + 1 : this.pageNo;
+			this.firstPage = this.pageNo == this.first;
+			this.lastPage = !this.hasNext;
+			this.next = this.last;
+			this.prev = this.pageNo > this.first ? this.pageNo - 1 : this.first;
+			return;
+		}
+		
 		this.last = (int)(count / (this.pageSize < 1 ? 20 : this.pageSize) + first - 1);
 		
 		if (this.count % this.pageSize != 0 || this.last == 0) {
@@ -259,7 +279,7 @@ public class Page<T> {
 		sb.append(funcName+"(this.value,"+pageSize+",'"+funcParam+"');\" onclick=\"this.select();\"/> / ");
 		sb.append("<input type=\"text\" value=\""+pageSize+"\" onkeypress=\"var e=window.event||this;var c=e.keyCode||e.which;if(c==13)");
 		sb.append(funcName+"("+pageNo+",this.value,'"+funcParam+"');\" onclick=\"this.select();\"/> 条，");
-		sb.append("共 " + count + " 条"+(message!=null?message:"")+"</a></li>\n");
+		sb.append((isNotCount() ? "" : "共 " + count + " 条")+(message!=null?message:"")+"</a></li>\n");
 
 		sb.insert(0,"<ul>\n").append("</ul>\n");
 		
@@ -301,7 +321,7 @@ public class Page<T> {
 	 */
 	public void setCount(long count) {
 		this.count = count;
-		if (pageSize >= count){
+		if (count != -1 && pageSize >= count){
 			pageNo = 1;
 		}
 	}
@@ -422,6 +442,13 @@ public class Page<T> {
 	 * @param list
 	 */
 	public Page<T> setList(List<T> list) {
+		// 不查询总数时，分页查询多取了一条，用于判断是否有下一页
+		if (isNotCount() && !isDisabled() && list != null) {
+			this.hasNext = list.size() > pageSize;
+			if (this.hasNext) {
+				list = new ArrayList<T>(list.subList(0, pageSize));
+			}
+		}
 		this.list = list;
 		initialize();
 		return this;
@@ -511,12 +538,120 @@ public class Page<T> {
 		return this.count==-1;
 	}
 	
+	/**
+	 * 是否有下一页（不查询总数时有效）
+	 * @return
+	 */
+	@JsonIgnore
+	public boolean isHasNext() {
+		return hasNext;
+	}
+	
+	/**
+	 * 设置键集（seek）分页：按排序列取“排序值大于（倒序时小于）上一页最后一条记录”的前pageSize条，
+	 * 深度翻页时无需扫描并丢弃前面的记录。键集分页不查询总数，通过isHasNext()判断是否有下一页。
+	 * @param seekColumns 排序列（需唯一确定顺序，如最后一列为主键），实例： a.create_date,a.id
+	 * @param seekDesc 是否倒序
+	 * @param seekValues 上一页最后一条记录的排序列值，与排序列一一对应，不传时查询第一页
+	 * @throws IllegalArgumentException 排序列不是合法的列名，或排序列值与排序列个数不一致
+	 */
+	public Page<T> setSeek(String seekColumns, boolean seekDesc, Object... seekValues) {
+		String[] columns = parseSeekColumns(seekColumns);
+		if (columns.length == 0) {
+			throw new IllegalArgumentException("seekColumns is empty");
+		}
+		if (seekValues != null && seekValues.length > 0 && seekValues.length != columns.length) {
+			throw new IllegalArgumentException("seekValues size " + seekValues.length
+					+ " does not match seekColumns: " + seekColumns);
+		}
+		this.seekColumns = seekColumns;
+		this.seekDesc = seekDesc;
+		this.seekValues = seekValues;
+		// 键集分页不查询总数
+		this.count = -1;
+		return this;
+	}
+	
+	/**
+	 * 是否为键集分页
+	 * @return
+	 */
+	@JsonIgnore
+	public boolean isSeek() {
+		return getSeekColumns().length > 0;
+	}
+	
+	/**
+	 * 获取键集分页排序列（SQL过滤，防止注入，只允许列名）
+	 * @return
+	 */
+	@JsonIgnore
+	public String[] getSeekColumns() {
+		return StringUtils.isBlank(seekColumns) ? new String[0] : parseSeekColumns(seekColumns);
+	}
+	
+	/**
+	 * 解析键集分页排序列，只允许列名（字母、数字、下划线、点），否则抛出IllegalArgumentException
+	 */
+	private static String[] parseSeekColumns(String seekColumns) {
+		String[] columns = StringUtils.split(seekColumns, ", ");
+		if (columns == null) {
+			return new String[0];
+		}
+		for (String column : columns) {
+			if (!column.matches("[\\w\\.]+")) {
+				throw new IllegalArgumentException("illegal seek column: " + column);
+			}
+		}
+		return columns;
+	}
+	
+	/**
+	 * 键集分页是否倒序
+	 * @return
+	 */
+	@JsonIgnore
+	public boolean isSeekDesc() {
+		return seekDesc;
+	}
+	
+	/**
+	 * 获取键集分页上一页最后一条记录的排序列值
+	 * @return
+	 */
+	@JsonIgnore
+	public Object[] getSeekValues() {
+		return seekValues;
+	}
+	
+	/**
+	 * 获取键集分页条件参数，顺序与SQLHelper.getSeekCondition生成的条件中的占位符一致：
+	 * 单列为 v1；多列为 v1, v1, v1, v2, v1, v2, v3 ...（首列范围条件 + 逐列展开的比较条件）
+	 * @return
+	 */
+	@JsonIgnore
+	public List<Object> getSeekParameters() {
+		List<Object> parameters = new ArrayList<Object>();
+		if (seekValues == null || seekValues.length == 0) {
+			return parameters;
+		}
+		if (seekValues.length > 1) {
+			parameters.add(seekValues[0]);
+		}
+		for (int i = 0; i < seekValues.length; i++) {
+			for (int j = 0; j <= i; j++) {
+				parameters.add(seekValues[j]);
+			}
+		}
+		return parameters;
+	}
+	
 	/**
 	 * 获取 Hibernate FirstResult
 	 */
 	public int getFirstResult(){
 		int firstResult = (getPageNo() - 1) * getPageSize();
-		if (firstResult >= getCount()) {
+		if (!isNotCount() && firstResult >= getCount()) {
 			firstResult = 0;
 		}
 		return firstResult;
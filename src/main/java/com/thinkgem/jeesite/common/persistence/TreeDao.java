@@ -27,4 +27,11 @@ public interface TreeDao<T extends TreeEntity<T>> extends CrudDao<T> {
 	 */
 	public int updateParentIds(T entity);
 	
+	/**
+	 * 移动节点时批量更新所有子节点的parentIds，将前缀 sqlMap.oldParentIds 替换为该节点新的parentIds
+	 * @param entity
+	 * @return
+	 */
+	public int updateChildParentIds(T entity);
+	
 }
\ No newline at end of file
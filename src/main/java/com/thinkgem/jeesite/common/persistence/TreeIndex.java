@@ -0,0 +1,281 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.persistence;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.thinkgem.jeesite.common.utils.StringUtils;
+
+/**
+ * 树结构索引（不可变），由节点列表一次构建：编号到节点的映射、子节点列表、先序遍历顺序及名称路径，
+ * 构建及遍历的时间复杂度均为O(n)，替代在整个列表中逐级查找父子节点的嵌套循环。
+ * 父节点不在列表中的节点作为根节点，同级节点保持原列表中的顺序；
+ * 父节点存在循环引用时，循环中在原列表里最靠前的节点作为根节点（并输出警告），不会丢失节点。
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class TreeIndex<T> {
+
+	private static Logger logger = LoggerFactory.getLogger(TreeIndex.class);
+
+	/**
+	 * 节点属性读取接口
+	 */
+	public interface Accessor<T> {
+
+		public String getId(T node);
+
+		public String getParentId(T node);
+
+		public String getName(T node);
+
+	}
+
+	/**
+	 * TreeEntity节点属性读取
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final Accessor<TreeEntity> TREE_ENTITY_ACCESSOR = new Accessor<TreeEntity>() {
+		@Override
+		public String getId(TreeEntity node) {
+			return node.getId();
+		}
+		@Override
+		public String getParentId(TreeEntity node) {
+			return node.getParentId();
+		}
+		@Override
+		public String getName(TreeEntity node) {
+			return node.getName();
+		}
+	};
+
+	private final Map<String, T> nodeMap = Maps.newHashMap();
+	private final Map<String, List<T>> childrenMap = Maps.newHashMap();
+	private final List<T> roots = Lists.newArrayList();
+	private final List<T> preOrderList;
+	private final Map<String, String[]> namePathMap;
+	private final Map<String, Integer> preOrderIndex;
+	private final Map<String, Integer> subtreeEnd;
+	private final Accessor<T> accessor;
+
+	/**
+	 * 根据TreeEntity列表构建索引
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static <T extends TreeEntity<T>> TreeIndex<T> create(List<T> list) {
+		return new TreeIndex<T>(list, (Accessor) TREE_ENTITY_ACCESSOR);
+	}
+
+	/**
+	 * 根据节点列表构建索引
+	 * @param list 节点列表
+	 * @param accessor 节点属性读取
+	 */
+	public TreeIndex(List<T> list, Accessor<T> accessor) {
+		this.accessor = accessor;
+		for (T node : list){
+			String id = accessor.getId(node);
+			if (id != null && !nodeMap.containsKey(id)){
+				nodeMap.put(id, node);
+			}
+		}
+		for (T node : list){
+			String id = accessor.getId(node);
+			if (id == null || nodeMap.get(id) != node){
+				continue;
+			}
+			String parentId = accessor.getParentId(node);
+			if (parentId != null && !parentId.equals(id) && nodeMap.containsKey(parentId)){
+				List<T> children = childrenMap.get(parentId);
+				if (children == null){
+					children = Lists.newArrayList();
+					childrenMap.put(parentId, children);
+				}
+				children.add(node);
+			}else{
+				roots.add(node);
+			}
+		}
+		// 先序遍历，同时计算名称路径及子树范围
+		List<T> preOrder = Lists.newArrayListWithCapacity(nodeMap.size());
+		Map<String, String[]> namePaths = Maps.newHashMapWithExpectedSize(nodeMap.size());
+		Map<String, Integer> indexes = Maps.newHashMapWithExpectedSize(nodeMap.size());
+		Map<String, Integer> ends = Maps.newHashMapWithExpectedSize(nodeMap.size());
+		for (T root : roots){
+			walk(root, preOrder, namePaths, indexes, ends);
+		}
+		// 从根节点无法到达的节点存在父节点循环引用，将循环中最靠前的节点从父节点下移出作为根节点
+		if (indexes.size() < nodeMap.size()){
+			for (T node : list){
+				String id = accessor.getId(node);
+				if (id == null || nodeMap.get(id) != node || indexes.containsKey(id)){
+					continue;
+				}
+				String parentId = accessor.getParentId(node);
+				logger.warn("Circular parent reference, treat {} (parent {}) as root.", id, parentId);
+				List<T> siblings = childrenMap.get(parentId);
+				siblings.remove(node);
+				if (siblings.isEmpty()){
+					childrenMap.remove(parentId);
+				}
+				roots.add(node);
+				walk(node, preOrder, namePaths, indexes, ends);
+			}
+		}
+		this.preOrderList = Collections.unmodifiableList(preOrder);
+		this.namePathMap = namePaths;
+		this.preOrderIndex = indexes;
+		this.subtreeEnd = ends;
+	}
+
+	/**
+	 * 先序遍历以root为根的子树；使用显式栈，避免层级过深时栈溢出
+	 */
+	private void walk(T root, List<T> preOrder, Map<String, String[]> namePaths,
+			Map<String, Integer> indexes, Map<String, Integer> ends) {
+		List<T> stack = Lists.newArrayList();
+		List<T> exitStack = Lists.newArrayList();
+		stack.add(root);
+		while (!stack.isEmpty()){
+			T node = stack.remove(stack.size() - 1);
+			String id = accessor.getId(node);
+			// 关闭已遍历完的子树
+			while (!exitStack.isEmpty() && !isChildOf(node, exitStack.get(exitStack.size() - 1))){
+				ends.put(accessor.getId(exitStack.remove(exitStack.size() - 1)), preOrder.size());
+			}
+			String[] parentPath = exitStack.isEmpty() ? new String[0] : namePaths.get(accessor.getId(exitStack.get(exitStack.size() - 1)));
+			String[] path = new String[parentPath.length + 1];
+			System.arraycopy(parentPath, 0, path, 0, parentPath.length);
+			path[parentPath.length] = accessor.getName(node);
+			namePaths.put(id, path);
+			indexes.put(id, preOrder.size());
+			preOrder.add(node);
+			exitStack.add(node);
+			List<T> children = childrenMap.get(id);
+			if (children != null){
+				for (int c = children.size() - 1; c >= 0; c--){
+					stack.add(children.get(c));
+				}
+			}
+		}
+		while (!exitStack.isEmpty()){
+			ends.put(accessor.getId(exitStack.remove(exitStack.size() - 1)), preOrder.size());
+		}
+	}
+
+	private boolean isChildOf(T node, T parent) {
+		return accessor.getId(parent).equals(accessor.getParentId(node));
+	}
+
+	/**
+	 * 获取节点
+	 */
+	public T get(String id) {
+		return id != null ? nodeMap.get(id) : null;
+	}
+
+	/**
+	 * 节点数
+	 */
+	public int size() {
+		return preOrderList.size();
+	}
+
+	/**
+	 * 获取根节点（父节点不在列表中的节点，及父节点循环引用中最靠前的节点）
+	 */
+	public List<T> getRoots() {
+		return Collections.unmodifiableList(roots);
+	}
+
+	/**
+	 * 获取直接子节点，按原列表顺序
+	 */
+	public List<T> getChildren(String id) {
+		List<T> children = id != null ? childrenMap.get(id) : null;
+		return children != null ? Collections.unmodifiableList(children) : Collections.<T>emptyList();
+	}
+
+	/**
+	 * 是否有子节点
+	 */
+	public boolean hasChildren(String id) {
+		return id != null && childrenMap.containsKey(id);
+	}
+
+	/**
+	 * 获取所有节点的先序遍历列表（父节点在前，子节点紧随其后）
+	 */
+	public List<T> getPreOrderList() {
+		return preOrderList;
+	}
+
+	/**
+	 * 获取节点下的所有子孙节点（不含自身），按先序遍历排列；节点不在列表中时，返回以该编号为父节点的根节点及其子孙节点
+	 * @param id 节点编号
+	 * @param cascade 是否包含所有层级，否则只返回直接子节点
+	 */
+	public List<T> getDescendants(String id, boolean cascade) {
+		if (id == null){
+			return Collections.<T>emptyList();
+		}
+		Integer index = preOrderIndex.get(id);
+		if (index != null){
+			return cascade ? preOrderList.subList(index + 1, subtreeEnd.get(id)) : getChildren(id);
+		}
+		List<T> list = Lists.newArrayList();
+		for (T root : roots){
+			if (id.equals(accessor.getParentId(root))){
+				String rootId = accessor.getId(root);
+				if (cascade){
+					list.addAll(preOrderList.subList(preOrderIndex.get(rootId), subtreeEnd.get(rootId)));
+				}else{
+					list.add(root);
+				}
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * 获取节点及其所有子孙节点的编号
+	 */
+	public Set<String> getSubtreeIds(String id) {
+		Set<String> ids = Sets.newHashSet();
+		if (id != null){
+			ids.add(id);
+			for (T node : getDescendants(id, true)){
+				ids.add(accessor.getId(node));
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * 获取名称路径，从根节点到当前节点（如：系统设置-机构用户-用户管理）
+	 * @param id 节点编号
+	 * @param separator 分隔符
+	 * @param includeRoot 是否包含根节点名称（当前节点为根节点时始终包含）
+	 * @return 节点不存在时返回null
+	 */
+	public String getNamePath(String id, String separator, boolean includeRoot) {
+		String[] path = id != null ? namePathMap.get(id) : null;
+		if (path == null){
+			return null;
+		}
+		int start = includeRoot || path.length == 1 ? 0 : 1;
+		return StringUtils.join(path, separator, start, path.length);
+	}
+
+}
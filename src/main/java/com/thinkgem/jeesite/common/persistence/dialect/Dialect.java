@@ -30,4 +30,16 @@ public interface Dialect {
      */
     public String getLimitString(String sql, int offset, int limit);
 
+    /**
+     * 将sql转换为键集（seek）分页SQL：追加“排序列大于（小于）上一页最后一条记录排序值”的条件，
+     * 按排序列排序后取前limit条，深度翻页时无需扫描并丢弃前面的记录
+     *
+     * @param sql           SQL语句
+     * @param seekCondition 键集条件（排序值以?占位），为空时表示第一页
+     * @param seekOrderBy   排序列，如：a.create_date desc, a.id desc
+     * @param limit         每页显示多少纪录条数
+     * @return 键集分页查询的sql
+     */
+    public String getSeekString(String sql, String seekCondition, String seekOrderBy, int limit);
+
 }
@@ -0,0 +1,90 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.persistence.dialect;
+
+/**
+ * 键集（seek）分页SQL改写工具，供各Dialect实现getSeekString时使用
+ *
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class SeekHelper {
+
+    /**
+     * 在SQL中追加键集分页条件并替换排序：
+     * 普通查询直接改写为 where (原条件) and 键集条件 order by 排序列，便于使用排序列上的索引；
+     * 含 group by / having / union 的查询包装为子查询，此时排序列需使用查询结果的列名。
+     *
+     * @param sql           实际SQL语句
+     * @param seekCondition 键集条件，为空时不追加条件（第一页）
+     * @param seekOrderBy   排序列，如：a.create_date desc, a.id desc
+     * @return 改写后的SQL（不含分页限制）
+     */
+    public static String appendSeek(String sql, String seekCondition, String seekOrderBy) {
+        sql = sql.trim();
+        int whereIndex = -1;
+        int orderByIndex = -1;
+        boolean complex = false;
+        int depth = 0;
+        boolean quoted = false;
+        String lowered = sql.toLowerCase();
+        for (int i = 0; i < lowered.length(); i++) {
+            char c = lowered.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (quoted) {
+                continue;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && isWordStart(lowered, i)) {
+                if (isWord(lowered, i, "where") && whereIndex == -1) {
+                    whereIndex = i;
+                } else if (isWord(lowered, i, "order") && isNextWord(lowered, i + 5, "by")) {
+                    orderByIndex = i;
+                } else if (isWord(lowered, i, "group") || isWord(lowered, i, "having") || isWord(lowered, i, "union")) {
+                    complex = true;
+                }
+            }
+        }
+        String body = orderByIndex != -1 ? sql.substring(0, orderByIndex).trim() : sql;
+        StringBuilder seekSql = new StringBuilder(sql.length() + 100);
+        if (complex) {
+            seekSql.append("select * from ( ").append(body).append(" ) seek_");
+            if (seekCondition != null && seekCondition.length() > 0) {
+                seekSql.append(" where ").append(seekCondition);
+            }
+        } else if (seekCondition != null && seekCondition.length() > 0) {
+            if (whereIndex != -1) {
+                seekSql.append(body.substring(0, whereIndex + 5)).append(" (")
+                        .append(body.substring(whereIndex + 5)).append(" ) and ").append(seekCondition);
+            } else {
+                seekSql.append(body).append(" where ").append(seekCondition);
+            }
+        } else {
+            seekSql.append(body);
+        }
+        seekSql.append(" order by ").append(seekOrderBy);
+        return seekSql.toString();
+    }
+
+    private static boolean isWordStart(String sql, int index) {
+        return index == 0 || !Character.isLetterOrDigit(sql.charAt(index - 1)) && sql.charAt(index - 1) != '_';
+    }
+
+    private static boolean isWord(String sql, int index, String word) {
+        int end = index + word.length();
+        return sql.startsWith(word, index)
+                && (end == sql.length() || !Character.isLetterOrDigit(sql.charAt(end)) && sql.charAt(end) != '_');
+    }
+
+    private static boolean isNextWord(String sql, int index, String word) {
+        while (index < sql.length() && Character.isWhitespace(sql.charAt(index))) {
+            index++;
+        }
+        return isWord(sql, index, word);
+    }
+
+}
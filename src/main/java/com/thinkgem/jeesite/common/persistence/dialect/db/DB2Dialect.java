@@ -4,6 +4,7 @@
 package com.thinkgem.jeesite.common.persistence.dialect.db;
 
 import com.thinkgem.jeesite.common.persistence.dialect.Dialect;
+import com.thinkgem.jeesite.common.persistence.dialect.SeekHelper;
 
 /**
  * DB2的分页数据库方言实现
@@ -86,4 +87,9 @@ public class DB2Dialect implements Dialect {
 
         return pagingSelect.toString();
     }
+
+    @Override
+    public String getSeekString(String sql, String seekCondition, String seekOrderBy, int limit) {
+        return getLimitString(SeekHelper.appendSeek(sql, seekCondition, seekOrderBy), 0, limit);
+    }
 }
@@ -41,4 +41,8 @@ public class DerbyDialect implements Dialect {
 		throw new UnsupportedOperationException( "paged queries not supported" );
 	}
 
+    @Override
+    public String getSeekString(String sql, String seekCondition, String seekOrderBy, int limit) {
+        throw new UnsupportedOperationException("paged queries not supported");
+    }
 }
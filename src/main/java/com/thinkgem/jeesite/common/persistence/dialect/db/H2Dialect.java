@@ -4,6 +4,7 @@
 package com.thinkgem.jeesite.common.persistence.dialect.db;
 
 import com.thinkgem.jeesite.common.persistence.dialect.Dialect;
+import com.thinkgem.jeesite.common.persistence.dialect.SeekHelper;
 
 /**
  * A dialect compatible with the H2 database.
@@ -42,4 +43,9 @@ public class H2Dialect implements Dialect {
     public String getLimitString(String sql, int offset, int limit) {
         return getLimitString(sql, offset, Integer.toString(offset), limit, Integer.toString(limit));
     }
+
+    @Override
+    public String getSeekString(String sql, String seekCondition, String seekOrderBy, int limit) {
+        return getLimitString(SeekHelper.appendSeek(sql, seekCondition, seekOrderBy), 0, limit);
+    }
 }
\ No newline at end of file
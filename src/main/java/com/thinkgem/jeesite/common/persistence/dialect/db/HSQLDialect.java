@@ -4,6 +4,7 @@
 package com.thinkgem.jeesite.common.persistence.dialect.db;
 
 import com.thinkgem.jeesite.common.persistence.dialect.Dialect;
+import com.thinkgem.jeesite.common.persistence.dialect.SeekHelper;
 
 /**
  * Dialect for HSQLDB
@@ -47,4 +48,8 @@ public class HSQLDialect implements Dialect {
                         .toString();
     }
 
+    @Override
+    public String getSeekString(String sql, String seekCondition, String seekOrderBy, int limit) {
+        return getLimitString(SeekHelper.appendSeek(sql, seekCondition, seekOrderBy), 0, limit);
+    }
 }
@@ -4,6 +4,7 @@
 package com.thinkgem.jeesite.common.persistence.dialect.db;
 
 import com.thinkgem.jeesite.common.persistence.dialect.Dialect;
+import com.thinkgem.jeesite.common.persistence.dialect.SeekHelper;
 
 /**
  * Mysql方言的实现
@@ -50,4 +51,8 @@ public class MySQLDialect implements Dialect {
         return stringBuilder.toString();
     }
 
+    @Override
+    public String getSeekString(String sql, String seekCondition, String seekOrderBy, int limit) {
+        return getLimitString(SeekHelper.appendSeek(sql, seekCondition, seekOrderBy), 0, limit);
+    }
 }
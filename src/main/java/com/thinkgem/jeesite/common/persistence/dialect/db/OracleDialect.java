@@ -4,6 +4,7 @@
 package com.thinkgem.jeesite.common.persistence.dialect.db;
 
 import com.thinkgem.jeesite.common.persistence.dialect.Dialect;
+import com.thinkgem.jeesite.common.persistence.dialect.SeekHelper;
 
 /**
  * Oracle的方言实现
@@ -65,4 +66,8 @@ public class OracleDialect implements Dialect {
         return pagingSelect.toString();
     }
 
+    @Override
+    public String getSeekString(String sql, String seekCondition, String seekOrderBy, int limit) {
+        return getLimitString(SeekHelper.appendSeek(sql, seekCondition, seekOrderBy), 0, limit);
+    }
 }
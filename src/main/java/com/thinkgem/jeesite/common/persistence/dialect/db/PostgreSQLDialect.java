@@ -4,6 +4,7 @@
 package com.thinkgem.jeesite.common.persistence.dialect.db;
 
 import com.thinkgem.jeesite.common.persistence.dialect.Dialect;
+import com.thinkgem.jeesite.common.persistence.dialect.SeekHelper;
 
 /**
  * Postgre Sql的方言实现
@@ -45,4 +46,9 @@ public class PostgreSQLDialect implements Dialect {
                 pageSql.append(" limit ").append(limitPlaceholder).append(" offset ").append(offsetPlaceholder);
         return pageSql.toString();
     }
+
+    @Override
+    public String getSeekString(String sql, String seekCondition, String seekOrderBy, int limit) {
+        return getLimitString(SeekHelper.appendSeek(sql, seekCondition, seekOrderBy), 0, limit);
+    }
 }
@@ -6,6 +6,7 @@ package com.thinkgem.jeesite.common.persistence.dialect.db;
 import org.apache.commons.lang3.StringUtils;
 
 import com.thinkgem.jeesite.common.persistence.dialect.Dialect;
+import com.thinkgem.jeesite.common.persistence.dialect.SeekHelper;
 
 /**
  * Sql 2005的方言实现
@@ -92,4 +93,14 @@ public class SQLServer2005Dialect implements Dialect {
             return "";
         }
     }
+
+    @Override
+    public String getSeekString(String sql, String seekCondition, String seekOrderBy, int limit) {
+        String seekSql = SeekHelper.appendSeek(sql, seekCondition, seekOrderBy);
+        return new StringBuilder(seekSql.length() + 8)
+                .append(seekSql)
+                .insert(SQLServerDialect.getAfterSelectInsertPoint(seekSql), " top " + limit)
+                .toString();
+    }
+
 }
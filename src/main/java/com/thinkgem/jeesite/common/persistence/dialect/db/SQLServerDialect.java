@@ -4,6 +4,7 @@
 package com.thinkgem.jeesite.common.persistence.dialect.db;
 
 import com.thinkgem.jeesite.common.persistence.dialect.Dialect;
+import com.thinkgem.jeesite.common.persistence.dialect.SeekHelper;
 
 /**
  * MSSQLServer 数据库实现分页方言
@@ -51,5 +52,8 @@ public class SQLServerDialect implements Dialect {
                 .toString();
     }
 
-
+    @Override
+    public String getSeekString(String sql, String seekCondition, String seekOrderBy, int limit) {
+        return getLimit(SeekHelper.appendSeek(sql, seekCondition, seekOrderBy), 0, limit);
+    }
 }
@@ -5,6 +5,8 @@ package com.thinkgem.jeesite.common.persistence.interceptor;
 
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.plugin.Interceptor;
 
 import com.thinkgem.jeesite.common.config.Global;
@@ -22,6 +24,8 @@ import com.thinkgem.jeesite.common.persistence.dialect.db.SybaseDialect;
 import com.thinkgem.jeesite.common.utils.Reflections;
 
 import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Properties;
 
 /**
@@ -68,6 +72,23 @@ public abstract class BaseInterceptor implements Interceptor, Serializable {
 		}
     }
 
+    /**
+     * 查询总记录数，启用总数缓存时先从缓存中获取
+     */
+    protected int getCount(String sql, Connection connection, MappedStatement mappedStatement,
+    						Object parameterObject, BoundSql boundSql) throws SQLException {
+        if (!CountCache.isEnabled()) {
+            return SQLHelper.getCount(sql, connection, mappedStatement, parameterObject, boundSql, log);
+        }
+        String key = CountCache.getKey(mappedStatement, boundSql, parameterObject);
+        Integer count = CountCache.get(key);
+        if (count == null) {
+            count = SQLHelper.getCount(sql, connection, mappedStatement, parameterObject, boundSql, log);
+            CountCache.put(key, sql, count);
+        }
+        return count;
+    }
+
     /**
      * 设置属性，支持自定义方言类和制定数据库的方式
      * <code>dialectClass</code>,自定义方言类。可以不配置这项
@@ -0,0 +1,164 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.persistence.interceptor;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+
+import com.thinkgem.jeesite.common.config.ConfigChangeListener;
+import com.thinkgem.jeesite.common.config.Global;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 分页总数缓存，以 MappedStatement ID + SQL + 参数值 为键，缓存 page.countCacheSeconds 秒（为0时不启用）。
+ * 执行 insert/update/delete 时，清除涉及同一张表的缓存。
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class CountCache {
+
+    /**
+     * 查询语句中的表名：from/join 之后的标识符
+     */
+    private static final Pattern SELECT_TABLE_PATTERN = Pattern.compile(
+            "\\b(?:from|join)\\s+([\\w\\.]+)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * 更新语句中的表名：insert into/update/delete from 之后的标识符
+     */
+    private static final Pattern UPDATE_TABLE_PATTERN = Pattern.compile(
+            "^\\s*(?:insert\\s+into|update|delete\\s+from|delete)\\s+([\\w\\.]+)", Pattern.CASE_INSENSITIVE);
+
+    private static final Map<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+
+    static {
+        // 修改缓存时间后清除已缓存的总数
+        Global.addConfigChangeListener(new ConfigChangeListener() {
+            @Override
+            public void onChange(Set<String> changedKeys) {
+                if (changedKeys.contains("page.countCacheSeconds")) {
+                    cache.clear();
+                }
+            }
+        });
+    }
+
+    /**
+     * 缓存时间（毫秒），为0时不启用
+     */
+    private static long getCacheMillis() {
+        return Global.getConfigInt("page.countCacheSeconds", 0) * 1000L;
+    }
+
+    /**
+     * 最多缓存条数
+     */
+    private static int getCacheSize() {
+        return Global.getConfigInt("page.countCacheSize", 1000);
+    }
+
+    /**
+     * 是否启用总数缓存
+     */
+    public static boolean isEnabled() {
+        return getCacheMillis() > 0;
+    }
+
+    /**
+     * 生成缓存键
+     */
+    public static String getKey(MappedStatement mappedStatement, BoundSql boundSql, Object parameterObject) {
+        return mappedStatement.getId() + "\n" + boundSql.getSql() + "\n"
+                + SQLHelper.getParameterValues(mappedStatement, boundSql, parameterObject);
+    }
+
+    /**
+     * 获取缓存的总数，不存在或已过期返回null
+     */
+    public static Integer get(String key) {
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireTime < System.currentTimeMillis()) {
+            cache.remove(key);
+            return null;
+        }
+        return entry.count;
+    }
+
+    /**
+     * 缓存总数
+     */
+    public static void put(String key, String sql, int count) {
+        int cacheSize = getCacheSize();
+        if (cache.size() >= cacheSize) {
+            removeExpired();
+            if (cache.size() >= cacheSize) {
+                cache.clear();
+            }
+        }
+        cache.put(key, new Entry(count, System.currentTimeMillis() + getCacheMillis(), getTables(SELECT_TABLE_PATTERN, sql)));
+    }
+
+    /**
+     * 根据更新语句清除涉及同一张表的缓存
+     */
+    public static void invalidate(String updateSql) {
+        if (cache.isEmpty()) {
+            return;
+        }
+        Set<String> tables = getTables(UPDATE_TABLE_PATTERN, updateSql);
+        if (tables.isEmpty()) {
+            // 无法识别表名，全部清除
+            cache.clear();
+            return;
+        }
+        for (Iterator<Entry> it = cache.values().iterator(); it.hasNext();) {
+            if (!Collections.disjoint(it.next().tables, tables)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static void removeExpired() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Entry> it = cache.values().iterator(); it.hasNext();) {
+            if (it.next().expireTime < now) {
+                it.remove();
+            }
+        }
+    }
+
+    private static Set<String> getTables(Pattern pattern, String sql) {
+        Set<String> tables = new HashSet<String>();
+        if (sql != null) {
+            Matcher m = pattern.matcher(sql);
+            while (m.find()) {
+                tables.add(m.group(1).toLowerCase());
+            }
+        }
+        return tables;
+    }
+
+    private static class Entry {
+        private final int count;
+        private final long expireTime;
+        private final Set<String> tables;
+
+        private Entry(int count, long expireTime, Set<String> tables) {
+            this.count = count;
+            this.expireTime = expireTime;
+            this.tables = tables;
+        }
+    }
+}
@@ -6,6 +6,7 @@ package com.thinkgem.jeesite.common.persistence.interceptor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.plugin.Intercepts;
 import org.apache.ibatis.plugin.Invocation;
@@ -19,6 +20,7 @@ import com.thinkgem.jeesite.common.persistence.Page;
 import com.thinkgem.jeesite.common.utils.Reflections;
 import com.thinkgem.jeesite.common.utils.StringUtils;
 
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -27,7 +29,9 @@ import java.util.Properties;
  * @version 2013-8-28
  */
 @Intercepts({@Signature(type = Executor.class, method = "query",
-        args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class})})
+        args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "update",
+        args = {MappedStatement.class, Object.class})})
 public class PaginationInterceptor extends BaseInterceptor {
 
     private static final long serialVersionUID = 1L;
@@ -37,6 +41,14 @@ public class PaginationInterceptor extends BaseInterceptor {
 
         final MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
         
+        //更新语句，清除涉及同一张表的总数缓存
+        if ("update".equals(invocation.getMethod().getName())) {
+            if (CountCache.isEnabled()) {
+                CountCache.invalidate(mappedStatement.getBoundSql(invocation.getArgs()[1]).getSql());
+            }
+            return invocation.proceed();
+        }
+        
 //        //拦截需要分页的SQL
 ////        if (mappedStatement.getId().matches(_SQL_PATTERN)) {
 //        if (StringUtils.indexOfIgnoreCase(mappedStatement.getId(), _SQL_PATTERN) != -1) {
@@ -58,16 +70,25 @@ public class PaginationInterceptor extends BaseInterceptor {
                 }
                 String originalSql = boundSql.getSql().trim();
             	
-                //得到总记录数
-                page.setCount(SQLHelper.getCount(originalSql, null, mappedStatement, parameterObject, boundSql, log));
+                //得到总记录数，设置为“-1”表示不查询总数
+                if (!page.isNotCount()) {
+                    page.setCount(getCount(originalSql, null, mappedStatement, parameterObject, boundSql));
+                }
 
-                //分页查询 本地化对象 修改数据库注意修改实现
-                String pageSql = SQLHelper.generatePageSql(originalSql, page, DIALECT);
+                //分页查询 本地化对象 修改数据库注意修改实现，键集分页追加排序列条件及参数
+                String pageSql;
+                List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+                if (page.isSeek()) {
+                    pageSql = SQLHelper.generateSeekSql(originalSql, page, DIALECT);
+                    parameterMappings = SQLHelper.getSeekParameterMappings(mappedStatement, parameterObject, page, parameterMappings);
+                } else {
+                    pageSql = SQLHelper.generatePageSql(originalSql, page, DIALECT);
+                }
 //                if (log.isDebugEnabled()) {
 //                    log.debug("PAGE SQL:" + StringUtils.replace(pageSql, "\n", ""));
 //                }
                 invocation.getArgs()[2] = new RowBounds(RowBounds.NO_ROW_OFFSET, RowBounds.NO_ROW_LIMIT);
-                BoundSql newBoundSql = new BoundSql(mappedStatement.getConfiguration(), pageSql, boundSql.getParameterMappings(), boundSql.getParameterObject());
+                BoundSql newBoundSql = new BoundSql(mappedStatement.getConfiguration(), pageSql, parameterMappings, boundSql.getParameterObject());
                 //解决MyBatis 分页foreach 参数失效 start
                 if (Reflections.getFieldValue(boundSql, "metaParameters") != null) {
                     MetaObject mo = (MetaObject) Reflections.getFieldValue(boundSql, "metaParameters");
@@ -54,12 +54,20 @@ public class PreparePaginationInterceptor extends BaseInterceptor {
                 } else {
                     final Connection connection = (Connection) ivk.getArgs()[0];
                     final String sql = boundSql.getSql();
-                    //记录统计
-                    final int count = SQLHelper.getCount(sql, connection, mappedStatement, parameterObject, boundSql, log);
                     Page<Object> page = null;
                     page = convertParameter(parameterObject, page);
-                    page.setCount(count);
-                    String pagingSql = SQLHelper.generatePageSql(sql, page, DIALECT);
+                    //记录统计，设置为“-1”表示不查询总数
+                    if (!page.isNotCount()) {
+                        page.setCount(getCount(sql, connection, mappedStatement, parameterObject, boundSql));
+                    }
+                    String pagingSql;
+                    if (page.isSeek()) {
+                        pagingSql = SQLHelper.generateSeekSql(sql, page, DIALECT);
+                        Reflections.setFieldValue(boundSql, "parameterMappings", SQLHelper.getSeekParameterMappings(
+                                mappedStatement, parameterObject, page, boundSql.getParameterMappings()));
+                    } else {
+                        pagingSql = SQLHelper.generatePageSql(sql, page, DIALECT);
+                    }
                     if (log.isDebugEnabled()) {
                         log.debug("PAGE SQL:" + pagingSql);
                     }
@@ -15,7 +15,6 @@ import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.TypeHandler;
-import org.apache.ibatis.type.TypeHandlerRegistry;
 
 import com.thinkgem.jeesite.common.config.Global;
 import com.thinkgem.jeesite.common.persistence.Page;
@@ -27,6 +26,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -47,39 +47,21 @@ public class SQLHelper {
      * @param parameterObject 参数对象
      * @throws java.sql.SQLException 数据库异常
      */
-    @SuppressWarnings("unchecked")
     public static void setParameters(PreparedStatement ps, MappedStatement mappedStatement, BoundSql boundSql, Object parameterObject) throws SQLException {
         ErrorContext.instance().activity("setting parameters").object(mappedStatement.getParameterMap().getId());
         List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
         if (parameterMappings != null) {
             Configuration configuration = mappedStatement.getConfiguration();
-            TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
             MetaObject metaObject = parameterObject == null ? null :
                     configuration.newMetaObject(parameterObject);
             for (int i = 0; i < parameterMappings.size(); i++) {
                 ParameterMapping parameterMapping = parameterMappings.get(i);
                 if (parameterMapping.getMode() != ParameterMode.OUT) {
-                    Object value;
-                    String propertyName = parameterMapping.getProperty();
-                    PropertyTokenizer prop = new PropertyTokenizer(propertyName);
-                    if (parameterObject == null) {
-                        value = null;
-                    } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
-                        value = parameterObject;
-                    } else if (boundSql.hasAdditionalParameter(propertyName)) {
-                        value = boundSql.getAdditionalParameter(propertyName);
-                    } else if (propertyName.startsWith(ForEachSqlNode.ITEM_PREFIX) && boundSql.hasAdditionalParameter(prop.getName())) {
-                        value = boundSql.getAdditionalParameter(prop.getName());
-                        if (value != null) {
-                            value = configuration.newMetaObject(value).getValue(propertyName.substring(prop.getName().length()));
-                        }
-                    } else {
-                        value = metaObject == null ? null : metaObject.getValue(propertyName);
-                    }
+                    Object value = getParameterValue(configuration, boundSql, parameterObject, metaObject, parameterMapping);
                     @SuppressWarnings("rawtypes")
 					TypeHandler typeHandler = parameterMapping.getTypeHandler();
                     if (typeHandler == null) {
-                        throw new ExecutorException("There was no TypeHandler found for parameter " + propertyName + " of statement " + mappedStatement.getId());
+                        throw new ExecutorException("There was no TypeHandler found for parameter " + parameterMapping.getProperty() + " of statement " + mappedStatement.getId());
                     }
                     typeHandler.setParameter(ps, i + 1, value, parameterMapping.getJdbcType());
                 }
@@ -87,6 +69,55 @@ public class SQLHelper {
         }
     }
 
+    /**
+     * 获取SQL参数(?)的值列表，顺序与setParameters设值顺序一致
+     *
+     * @param mappedStatement MappedStatement
+     * @param boundSql        SQL
+     * @param parameterObject 参数对象
+     * @return 参数值列表
+     */
+    public static List<Object> getParameterValues(MappedStatement mappedStatement, BoundSql boundSql, Object parameterObject) {
+        List<Object> values = new ArrayList<Object>();
+        List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+        if (parameterMappings != null) {
+            Configuration configuration = mappedStatement.getConfiguration();
+            MetaObject metaObject = parameterObject == null ? null :
+                    configuration.newMetaObject(parameterObject);
+            for (ParameterMapping parameterMapping : parameterMappings) {
+                if (parameterMapping.getMode() != ParameterMode.OUT) {
+                    values.add(getParameterValue(configuration, boundSql, parameterObject, metaObject, parameterMapping));
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 获取单个SQL参数(?)的值,参考org.apache.ibatis.executor.parameter.DefaultParameterHandler
+     */
+    private static Object getParameterValue(Configuration configuration, BoundSql boundSql, Object parameterObject,
+    							MetaObject metaObject, ParameterMapping parameterMapping) {
+        Object value;
+        String propertyName = parameterMapping.getProperty();
+        PropertyTokenizer prop = new PropertyTokenizer(propertyName);
+        if (parameterObject == null) {
+            value = null;
+        } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+            value = parameterObject;
+        } else if (boundSql.hasAdditionalParameter(propertyName)) {
+            value = boundSql.getAdditionalParameter(propertyName);
+        } else if (propertyName.startsWith(ForEachSqlNode.ITEM_PREFIX) && boundSql.hasAdditionalParameter(prop.getName())) {
+            value = boundSql.getAdditionalParameter(prop.getName());
+            if (value != null) {
+                value = configuration.newMetaObject(value).getValue(propertyName.substring(prop.getName().length()));
+            }
+        } else {
+            value = metaObject == null ? null : metaObject.getValue(propertyName);
+        }
+        return value;
+    }
+
 
     /**
      * 查询总纪录数
@@ -158,12 +189,80 @@ public class SQLHelper {
      */
     public static String generatePageSql(String sql, Page<Object> page, Dialect dialect) {
         if (dialect.supportsLimit()) {
-            return dialect.getLimitString(sql, page.getFirstResult(), page.getMaxResults());
+            // 不查询总数时多取一条，用于判断是否有下一页
+            int maxResults = page.isNotCount() ? page.getMaxResults() + 1 : page.getMaxResults();
+            return dialect.getLimitString(sql, page.getFirstResult(), maxResults);
         } else {
             return sql;
         }
     }
     
+    /**
+     * 根据数据库方言，生成键集（seek）分页sql，多取一条用于判断是否有下一页
+     * @param sql     Mapper中的Sql语句
+     * @param page    分页对象
+     * @param dialect 方言类型
+     * @return 分页SQL
+     */
+    public static String generateSeekSql(String sql, Page<Object> page, Dialect dialect) {
+        if (dialect.supportsLimit()) {
+            String[] columns = page.getSeekColumns();
+            StringBuilder orderBy = new StringBuilder();
+            for (String column : columns) {
+                orderBy.append(orderBy.length() > 0 ? ", " : "").append(column).append(page.isSeekDesc() ? " desc" : " asc");
+            }
+            String seekCondition = page.getSeekParameters().isEmpty() ? null
+                    : getSeekCondition(columns, page.getSeekValues().length, page.isSeekDesc());
+            return dialect.getSeekString(sql, seekCondition, orderBy.toString(), page.getMaxResults() + 1);
+        } else {
+            return sql;
+        }
+    }
+
+    /**
+     * 生成键集分页条件，占位符顺序与Page.getSeekParameters一致：
+     * 单列：c1 > ?；多列：(c1 >= ? and (c1 > ? or (c1 = ? and c2 > ?) or ...))，首列范围条件便于使用索引
+     */
+    private static String getSeekCondition(String[] columns, int size, boolean desc) {
+        if (size != columns.length) {
+            throw new IllegalArgumentException("seek values size " + size + " does not match seek columns size " + columns.length);
+        }
+        String op = desc ? " < ?" : " > ?";
+        if (size == 1) {
+            return columns[0] + op;
+        }
+        StringBuilder condition = new StringBuilder("(").append(columns[0]).append(desc ? " <= ?" : " >= ?").append(" and (");
+        for (int i = 0; i < size; i++) {
+            condition.append(i > 0 ? " or " : "").append("(");
+            for (int j = 0; j < i; j++) {
+                condition.append(columns[j]).append(" = ? and ");
+            }
+            condition.append(columns[i]).append(op).append(")");
+        }
+        return condition.append("))").toString();
+    }
+
+    /**
+     * 获取追加了键集分页参数的参数映射，参数值从分页对象的seekParameters属性中获取
+     * @param mappedStatement   mapped
+     * @param parameterObject   参数对象
+     * @param page              分页对象
+     * @param parameterMappings 原参数映射
+     * @return 新参数映射
+     */
+    public static List<ParameterMapping> getSeekParameterMappings(MappedStatement mappedStatement, Object parameterObject,
+    							Page<Object> page, List<ParameterMapping> parameterMappings) {
+        List<ParameterMapping> seekMappings = new ArrayList<ParameterMapping>(parameterMappings);
+        String prefix = parameterObject instanceof Page ? "" : "page.";
+        List<Object> parameters = page.getSeekParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            Object value = parameters.get(i);
+            seekMappings.add(new ParameterMapping.Builder(mappedStatement.getConfiguration(),
+                    prefix + "seekParameters[" + i + "]", value != null ? value.getClass() : Object.class).build());
+        }
+        return seekMappings;
+    }
+    
     /** 
      * 去除qlString的select子句。 
      * @param hql 
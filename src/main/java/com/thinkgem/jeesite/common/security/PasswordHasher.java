@@ -0,0 +1,210 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.security;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.thinkgem.jeesite.common.config.ConfigChangeListener;
+import com.thinkgem.jeesite.common.config.Global;
+import com.thinkgem.jeesite.common.utils.Encodes;
+import com.thinkgem.jeesite.common.utils.Exceptions;
+
+/**
+ * 密码散列工具类，散列结果中记录算法及迭代次数，修改配置后旧密码仍可校验，并可在登录时按新配置重新散列.
+ * 散列格式：$算法$迭代次数$salt$hash（均为十六进制）；旧格式（16位salt + 40位hash，SHA-1迭代1024次）视为 $sha1$1024$.
+ * 支持算法（password.algorithm）：sha1（迭代SHA-1，默认）、pbkdf2（PBKDF2WithHmacSHA1）；迭代次数由 password.iterations 设置.
+ * 校验成功的结果在内存中缓存一段时间（password.verifyCacheSeconds，0为不缓存），缓存键为HMAC(进程内随机密钥, 用户名+明文+散列)，
+ * 不保存明文及可离线破解的数据；修改密码后散列改变，缓存自然失效.
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class PasswordHasher {
+
+	public static final String ALGORITHM_SHA1 = "sha1";
+	public static final String ALGORITHM_PBKDF2 = "pbkdf2";
+
+	/**
+	 * 旧格式的算法及迭代次数
+	 */
+	private static final int LEGACY_ITERATIONS = 1024;
+	private static final int SALT_SIZE = 8;
+	private static final int HASH_SIZE = 20;
+	private static final String SEPARATOR = "$";
+
+	private static final String HMAC_ALGORITHM = "HmacSHA256";
+	private static final byte[] cacheKeySecret = Digests.generateSalt(32);
+
+	/**
+	 * 校验成功缓存（缓存键 -> 过期时间），按访问顺序淘汰
+	 */
+	private static final Map<String, Long> verifyCache = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+	static {
+		// 修改密码配置后清空校验缓存
+		Global.addConfigChangeListener(new ConfigChangeListener() {
+			@Override
+			public void onChange(Set<String> changedKeys) {
+				for (String key : changedKeys){
+					if (key.startsWith("password.")){
+						clearCache();
+						break;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * 按当前配置生成密码散列
+	 * @param plainPassword 明文密码
+	 */
+	public static String encode(String plainPassword) {
+		String algorithm = getAlgorithm();
+		int iterations = getIterations();
+		byte[] salt = Digests.generateSalt(SALT_SIZE);
+		byte[] hash = hash(algorithm, plainPassword, salt, iterations);
+		if (ALGORITHM_SHA1.equals(algorithm) && iterations == LEGACY_ITERATIONS){
+			// 与旧格式一致，便于回退到旧版本
+			return Encodes.encodeHex(salt) + Encodes.encodeHex(hash);
+		}
+		return SEPARATOR + algorithm + SEPARATOR + iterations + SEPARATOR + Encodes.encodeHex(salt) + SEPARATOR + Encodes.encodeHex(hash);
+	}
+
+	/**
+	 * 校验密码
+	 * @param principal 用户标识（登录名），用于校验缓存键，可为空
+	 * @param plainPassword 明文密码
+	 * @param password 密码散列
+	 * @return 校验成功返回true
+	 */
+	public static boolean verify(String principal, String plainPassword, String password) {
+		if (plainPassword == null || StringUtils.isBlank(password)){
+			return false;
+		}
+		String[] parts = parse(password);
+		if (parts == null){
+			return false;
+		}
+		int cacheSeconds = Global.getConfigInt("password.verifyCacheSeconds", 300);
+		String cacheKey = null;
+		if (cacheSeconds > 0){
+			cacheKey = getCacheKey(principal, plainPassword, password);
+			synchronized (verifyCache) {
+				Long expires = verifyCache.get(cacheKey);
+				if (expires != null){
+					if (expires > System.currentTimeMillis()){
+						return true;
+					}
+					verifyCache.remove(cacheKey);
+				}
+			}
+		}
+		byte[] salt = Encodes.decodeHex(parts[2]);
+		byte[] expected = Encodes.decodeHex(parts[3]);
+		byte[] actual = hash(parts[0], plainPassword, salt, Integer.parseInt(parts[1]));
+		if (!MessageDigest.isEqual(expected, actual)){
+			return false;
+		}
+		if (cacheKey != null){
+			int cacheSize = Global.getConfigInt("password.verifyCacheSize", 1000);
+			synchronized (verifyCache) {
+				verifyCache.put(cacheKey, System.currentTimeMillis() + cacheSeconds * 1000L);
+				Iterator<String> it = verifyCache.keySet().iterator();
+				while (verifyCache.size() > cacheSize && it.hasNext()){
+					it.next();
+					it.remove();
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 密码散列的算法或迭代次数与当前配置不同，需要重新散列（登录成功后调用）
+	 */
+	public static boolean needsRehash(String password) {
+		String[] parts = parse(password);
+		return parts != null && (!getAlgorithm().equals(parts[0]) || getIterations() != Integer.parseInt(parts[1]));
+	}
+
+	/**
+	 * 清空校验缓存
+	 */
+	public static void clearCache() {
+		synchronized (verifyCache) {
+			verifyCache.clear();
+		}
+	}
+
+	/**
+	 * 解析密码散列，返回{算法, 迭代次数, salt, hash}，格式不正确返回null
+	 */
+	private static String[] parse(String password) {
+		if (password == null){
+			return null;
+		}
+		if (!password.startsWith(SEPARATOR)){
+			if (password.length() != (SALT_SIZE + HASH_SIZE) * 2){
+				return null;
+			}
+			return new String[]{ALGORITHM_SHA1, String.valueOf(LEGACY_ITERATIONS),
+					password.substring(0, SALT_SIZE * 2), password.substring(SALT_SIZE * 2)};
+		}
+		String[] parts = StringUtils.split(password, SEPARATOR);
+		if (parts.length != 4 || !StringUtils.isNumeric(parts[1])
+				|| !(ALGORITHM_SHA1.equals(parts[0]) || ALGORITHM_PBKDF2.equals(parts[0]))){
+			return null;
+		}
+		return parts;
+	}
+
+	private static byte[] hash(String algorithm, String plainPassword, byte[] salt, int iterations) {
+		if (ALGORITHM_PBKDF2.equals(algorithm)){
+			try {
+				PBEKeySpec spec = new PBEKeySpec(plainPassword.toCharArray(), salt, iterations, HASH_SIZE * 8);
+				return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1").generateSecret(spec).getEncoded();
+			} catch (GeneralSecurityException e) {
+				throw Exceptions.unchecked(e);
+			}
+		}
+		return Digests.sha1(plainPassword.getBytes(), salt, iterations);
+	}
+
+	private static String getCacheKey(String principal, String plainPassword, String password) {
+		try {
+			Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+			mac.init(new SecretKeySpec(cacheKeySecret, HMAC_ALGORITHM));
+			mac.update(StringUtils.defaultString(principal).getBytes("UTF-8"));
+			mac.update((byte) 0);
+			mac.update(plainPassword.getBytes("UTF-8"));
+			mac.update((byte) 0);
+			mac.update(password.getBytes("UTF-8"));
+			return Encodes.encodeHex(mac.doFinal());
+		} catch (Exception e) {
+			throw Exceptions.unchecked(e);
+		}
+	}
+
+	private static String getAlgorithm() {
+		String algorithm = Global.getConfig("password.algorithm");
+		return ALGORITHM_PBKDF2.equals(algorithm) ? ALGORITHM_PBKDF2 : ALGORITHM_SHA1;
+	}
+
+	private static int getIterations() {
+		return Global.getConfigInt("password.iterations", LEGACY_ITERATIONS);
+	}
+
+}
@@ -18,6 +18,7 @@ import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
 
 import com.google.common.collect.Sets;
+import com.thinkgem.jeesite.common.serializer.Serializer;
 import com.thinkgem.jeesite.common.utils.JedisUtils;
 import com.thinkgem.jeesite.common.web.Servlets;
 
@@ -30,11 +31,21 @@ public class JedisCacheManager implements CacheManager {
 
 	private String cacheKeyPrefix = "shiro_cache_";
 	
+	private Serializer serializer = JedisUtils.getSerializer();
+	
 	@Override
 	public <K, V> Cache<K, V> getCache(String name) throws CacheException {
 		return new JedisCache<K, V>(cacheKeyPrefix + name);
 	}
 
+	public Serializer getSerializer() {
+		return serializer;
+	}
+
+	public void setSerializer(Serializer serializer) {
+		this.serializer = serializer;
+	}
+
 	public String getCacheKeyPrefix() {
 		return cacheKeyPrefix;
 	}
@@ -83,7 +94,7 @@ public class JedisCacheManager implements CacheManager {
 			Jedis jedis = null;
 			try {
 				jedis = JedisUtils.getResource();
-				value = (V)JedisUtils.toObject(jedis.hget(JedisUtils.getBytesKey(cacheKeyName), JedisUtils.getBytesKey(key)));
+				value = (V)serializer.deserialize(jedis.hget(JedisUtils.getBytesKey(cacheKeyName), JedisUtils.getBytesKey(key)));
 				logger.debug("get {} {} {}", cacheKeyName, key, request != null ? request.getRequestURI() : "");
 			} catch (Exception e) {
 				logger.error("get {} {} {}", cacheKeyName, key, request != null ? request.getRequestURI() : "", e);
@@ -107,7 +118,7 @@ public class JedisCacheManager implements CacheManager {
 			Jedis jedis = null;
 			try {
 				jedis = JedisUtils.getResource();
-				jedis.hset(JedisUtils.getBytesKey(cacheKeyName), JedisUtils.getBytesKey(key), JedisUtils.toBytes(value));
+				jedis.hset(JedisUtils.getBytesKey(cacheKeyName), JedisUtils.getBytesKey(key), serializer.serialize(value));
 				logger.debug("put {} {} = {}", cacheKeyName, key, value);
 			} catch (Exception e) {
 				logger.error("put {} {}", cacheKeyName, key, e);
@@ -124,7 +135,7 @@ public class JedisCacheManager implements CacheManager {
 			Jedis jedis = null;
 			try {
 				jedis = JedisUtils.getResource();
-				value = (V)JedisUtils.toObject(jedis.hget(JedisUtils.getBytesKey(cacheKeyName), JedisUtils.getBytesKey(key)));
+				value = (V)serializer.deserialize(jedis.hget(JedisUtils.getBytesKey(cacheKeyName), JedisUtils.getBytesKey(key)));
 				jedis.hdel(JedisUtils.getBytesKey(cacheKeyName), JedisUtils.getBytesKey(key));
 				logger.debug("remove {} {}", cacheKeyName, key);
 			} catch (Exception e) {
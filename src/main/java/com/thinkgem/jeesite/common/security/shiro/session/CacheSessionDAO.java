@@ -135,6 +135,16 @@ public class CacheSessionDAO extends EnterpriseCacheSessionDAO implements Sessio
 		return getActiveSessions(includeLeave, null, null);
 	}
     
+    /**
+	 * 获取活动会话数量
+	 * @param includeLeave 是否包括离线（最后访问时间大于3分钟为离线会话）
+	 * @return
+	 */
+	@Override
+	public int getActiveSessionCount(boolean includeLeave) {
+		return getActiveSessions(includeLeave).size();
+	}
+    
     /**
 	 * 获取活动会话
 	 * @param includeLeave 是否包括离线（最后访问时间大于3分钟为离线会话）
@@ -4,10 +4,15 @@
 package com.thinkgem.jeesite.common.security.shiro.session;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -19,26 +24,91 @@ import org.apache.shiro.subject.PrincipalCollection;
 import org.apache.shiro.subject.support.DefaultSubjectContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.thinkgem.jeesite.common.config.Global;
+import com.thinkgem.jeesite.common.security.Digests;
+import com.thinkgem.jeesite.common.serializer.Serializer;
 import com.thinkgem.jeesite.common.utils.DateUtils;
+import com.thinkgem.jeesite.common.utils.JedisInvalidateSubscriber;
 import com.thinkgem.jeesite.common.utils.JedisUtils;
 import com.thinkgem.jeesite.common.utils.StringUtils;
 import com.thinkgem.jeesite.common.web.Servlets;
 
 /**
  * 自定义授权会话管理类
+ * 本节点缓存反序列化后的会话（近端缓存，session.nearCacheSeconds），稳态下读取会话无需访问Redis；
+ * 会话写入通过管道一次提交，并通过Redis发布订阅通知其它节点清除近端缓存。
+ * 开启session.writeBehindSeconds后，若会话只有最后访问时间变化且距上次写入未超过该时间，则不写入Redis。
+ * 活动会话通过最后访问时间、超期时间有序集合及登录者集合索引查询，不再扫描全部会话。
  * @author ThinkGem
  * @version 2014-7-20
  */
-public class JedisSessionDAO extends AbstractSessionDAO implements SessionDAO {
+public class JedisSessionDAO extends AbstractSessionDAO implements SessionDAO, InitializingBean {
 
 	private Logger logger = LoggerFactory.getLogger(getClass());
 	
 	private String sessionKeyPrefix = "shiro_session_";
+	
+	private Serializer serializer = JedisUtils.getSerializer();
+	
+	/**
+	 * 离线时间（毫秒），最后访问时间大于3分钟为离线会话
+	 */
+	private static final long LEAVE_MILLIS = 3 * 60 * 1000;
+	
+	/**
+	 * 每次最多清除的超期会话数
+	 */
+	private static final int EXPIRE_BATCH_SIZE = 1000;
+	
+	/**
+	 * 近端缓存时间（毫秒），0为不启用（默认）；丢失失效消息时（如发布订阅中断），其它节点的注销、踢出最长在此时间后才在本节点生效
+	 */
+	private long nearCacheMillis = StringUtils.toLong(Global.getConfig("session.nearCacheSeconds")) * 1000;
+	
+	/**
+	 * 近端缓存最多会话数
+	 */
+	private int nearCacheSize = StringUtils.isNotBlank(Global.getConfig("session.nearCacheSize"))
+			? StringUtils.toInteger(Global.getConfig("session.nearCacheSize")) : 10000;
+	
+	/**
+	 * 只有最后访问时间变化时延迟写入会话内容的时间（毫秒），0为每次都写入（默认）；需小于会话超时时间。
+	 * 延迟写入期间仍更新会话索引及超期时间，其它节点读取到的会话内容中最后访问时间最多落后此时间
+	 */
+	private long writeBehindMillis = StringUtils.toLong(Global.getConfig("session.writeBehindSeconds")) * 1000;
+	
+	private final Map<String, CachedSession> nearCache = new ConcurrentHashMap<String, CachedSession>();
+	
+	/**
+	 * 失效版本号，每收到一次失效消息加一；从Redis读取期间版本号发生变化时不放入近端缓存，避免缓存过期的会话
+	 */
+	private final AtomicLong invalidateVersion = new AtomicLong();
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		if (nearCacheMillis > 0){
+			new JedisInvalidateSubscriber(getInvalidateChannel()) {
+				@Override
+				protected void onInvalidate(String sessionId) {
+					invalidateVersion.incrementAndGet();
+					nearCache.remove(sessionId);
+				}
+				@Override
+				protected void onDisconnect() {
+					// 订阅中断期间可能丢失失效消息
+					nearCache.clear();
+				}
+			}.start(getClass().getSimpleName() + "-Subscriber");
+		}
+	}
 
 	@Override
 	public void update(Session session) throws UnknownSessionException {
@@ -64,6 +134,16 @@ public class JedisSessionDAO extends AbstractSessionDAO implements SessionDAO {
 			}
 		}
 		
+		String sessionId = session.getId().toString();
+		long lastAccessTime = session.getLastAccessTime().getTime();
+		byte[] fingerprint = nearCacheMillis > 0 ? getFingerprint(session) : null;
+		
+		// 只有最后访问时间变化，且距上次写入未超过延迟写入时间，则不写入会话内容（仍更新索引及超期时间）
+		CachedSession cached = nearCache.get(sessionId);
+		boolean writeBehind = writeBehindMillis > 0 && cached != null && cached.session == session
+				&& Arrays.equals(cached.fingerprint, fingerprint)
+				&& lastAccessTime - cached.writeAccessTime < writeBehindMillis;
+		
 		Jedis jedis = null;
 		try {
 			
@@ -73,15 +153,40 @@ public class JedisSessionDAO extends AbstractSessionDAO implements SessionDAO {
 			PrincipalCollection pc = (PrincipalCollection)session.getAttribute(DefaultSubjectContext.PRINCIPALS_SESSION_KEY);
 			String principalId = pc != null ? pc.getPrimaryPrincipal().toString() : StringUtils.EMPTY;
 			
-			jedis.hset(sessionKeyPrefix, session.getId().toString(), principalId + "|" + session.getTimeout() + "|" + session.getLastAccessTime().getTime());
-			jedis.set(JedisUtils.getBytesKey(sessionKeyPrefix + session.getId()), JedisUtils.toBytes(session));
-			
-			// 设置超期时间
+			// 通过管道一次提交：会话信息及索引、会话内容及超期时间、失效通知
 			int timeoutSeconds = (int)(session.getTimeout() / 1000);
-			jedis.expire((sessionKeyPrefix + session.getId()), timeoutSeconds);
+			byte[] sessionKey = JedisUtils.getBytesKey(sessionKeyPrefix + sessionId);
+			Pipeline pipeline = jedis.pipelined();
+			pipeline.hset(sessionKeyPrefix, sessionId, principalId + "|" + session.getTimeout() + "|" + lastAccessTime);
+			pipeline.zadd(getAccessIndexKey(), lastAccessTime, sessionId);
+			pipeline.zadd(getExpireIndexKey(), session.getTimeout() > 0 ? lastAccessTime + session.getTimeout() : Double.MAX_VALUE, sessionId);
+			if (StringUtils.isNotBlank(principalId)){
+				pipeline.sadd(getPrincipalIndexKey(principalId), sessionId);
+			}
+			if (writeBehind){
+				// 会话内容未变化，只按实际的最后访问时间延长超期时间
+				if (timeoutSeconds > 0){
+					pipeline.expire(sessionKey, timeoutSeconds);
+				}
+			}else{
+				if (timeoutSeconds > 0){
+					pipeline.setex(sessionKey, timeoutSeconds, serializer.serialize(session));
+				}else{
+					pipeline.set(sessionKey, serializer.serialize(session));
+				}
+				if (nearCacheMillis > 0){
+					pipeline.publish(getInvalidateChannel(), JedisInvalidateSubscriber.getMessage(sessionId));
+				}
+			}
+			pipeline.sync();
+			
+			if (nearCacheMillis > 0 && !writeBehind){
+				putNearCache(sessionId, session, fingerprint, lastAccessTime);
+			}
 
 			logger.debug("update {} {}", session.getId(), request != null ? request.getRequestURI() : "");
 		} catch (Exception e) {
+			nearCache.remove(sessionId);
 			logger.error("update {} {}", session.getId(), request != null ? request.getRequestURI() : "", e);
 		} finally {
 			JedisUtils.returnResource(jedis);
@@ -94,12 +199,29 @@ public class JedisSessionDAO extends AbstractSessionDAO implements SessionDAO {
 			return;
 		}
 		
+		String sessionId = session.getId().toString();
+		nearCache.remove(sessionId);
+		
 		Jedis jedis = null;
 		try {
 			jedis = JedisUtils.getResource();
 			
-			jedis.hdel(JedisUtils.getBytesKey(sessionKeyPrefix), JedisUtils.getBytesKey(session.getId().toString()));
-			jedis.del(JedisUtils.getBytesKey(sessionKeyPrefix + session.getId()));
+			// 获取登录者编号（getActiveSessions返回的会话只有principalId属性）
+			PrincipalCollection pc = (PrincipalCollection)session.getAttribute(DefaultSubjectContext.PRINCIPALS_SESSION_KEY);
+			String principalId = pc != null ? pc.getPrimaryPrincipal().toString() : (String)session.getAttribute("principalId");
+			
+			Pipeline pipeline = jedis.pipelined();
+			pipeline.hdel(sessionKeyPrefix, sessionId);
+			pipeline.zrem(getAccessIndexKey(), sessionId);
+			pipeline.zrem(getExpireIndexKey(), sessionId);
+			if (StringUtils.isNotBlank(principalId)){
+				pipeline.srem(getPrincipalIndexKey(principalId), sessionId);
+			}
+			pipeline.del(JedisUtils.getBytesKey(sessionKeyPrefix + sessionId));
+			if (nearCacheMillis > 0){
+				pipeline.publish(getInvalidateChannel(), JedisInvalidateSubscriber.getMessage(sessionId));
+			}
+			pipeline.sync();
 
 			logger.debug("delete {} ", session.getId());
 		} catch (Exception e) {
@@ -138,57 +260,65 @@ public class JedisSessionDAO extends AbstractSessionDAO implements SessionDAO {
 		Jedis jedis = null;
 		try {
 			jedis = JedisUtils.getResource();
-			Map<String, String> map = jedis.hgetAll(sessionKeyPrefix);
-			for (Map.Entry<String, String> e : map.entrySet()){
-				if (StringUtils.isNotBlank(e.getKey()) && StringUtils.isNotBlank(e.getValue())){
-					
-					String[] ss = StringUtils.split(e.getValue(), "|");
-					if (ss != null && ss.length == 3){// jedis.exists(sessionKeyPrefix + e.getKey())){
-						// Session session = (Session)JedisUtils.toObject(jedis.get(JedisUtils.getBytesKey(sessionKeyPrefix + e.getKey())));
-						SimpleSession session = new SimpleSession();
-						session.setId(e.getKey());
-						session.setAttribute("principalId", ss[0]);
-						session.setTimeout(Long.valueOf(ss[1]));
-						session.setLastAccessTime(new Date(Long.valueOf(ss[2])));
-						try{
-							// 验证SESSION
-							session.validate();
-							
-							boolean isActiveSession = false;
-							// 不包括离线并符合最后访问时间小于等于3分钟条件。
-							if (includeLeave || DateUtils.pastMinutes(session.getLastAccessTime()) <= 3){
-								isActiveSession = true;
-							}
-							// 符合登陆者条件。
-							if (principal != null){
-								PrincipalCollection pc = (PrincipalCollection)session.getAttribute(DefaultSubjectContext.PRINCIPALS_SESSION_KEY);
-								if (principal.toString().equals(pc != null ? pc.getPrimaryPrincipal().toString() : StringUtils.EMPTY)){
-									isActiveSession = true;
-								}
-							}
-							// 过滤掉的SESSION
-							if (filterSession != null && filterSession.getId().equals(session.getId())){
-								isActiveSession = false;
-							}
-							if (isActiveSession){
-								sessions.add(session);
-							}
-							
-						}
-						// SESSION验证失败
-						catch (Exception e2) {
-							jedis.hdel(sessionKeyPrefix, e.getKey());
-						}
-					}
-					// 存储的SESSION不符合规则
-					else{
-						jedis.hdel(sessionKeyPrefix, e.getKey());
-					}
+			long now = System.currentTimeMillis();
+			removeExpiredSessions(jedis, now);
+			
+			// 根据登录者索引、最后访问时间索引或超期时间索引获取会话编号
+			Collection<String> ids;
+			if (principal != null){
+				ids = jedis.smembers(getPrincipalIndexKey(principal.toString()));
+			}else if (includeLeave){
+				ids = jedis.zrangeByScore(getExpireIndexKey(), now, Double.MAX_VALUE);
+			}else{
+				ids = jedis.zrangeByScore(getAccessIndexKey(), now - LEAVE_MILLIS, Double.MAX_VALUE);
+			}
+			if (ids.isEmpty()){
+				return sessions;
+			}
+			
+			String[] idArray = ids.toArray(new String[ids.size()]);
+			List<String> values = jedis.hmget(sessionKeyPrefix, idArray);
+			Map<String, String> staleSessions = Maps.newHashMap();
+			List<String> changedSessions = Lists.newArrayList();
+			for (int i = 0; i < idArray.length; i++){
+				String[] ss = StringUtils.split(values.get(i), "|");
+				// 存储的SESSION不存在或不符合规则
+				if (ss == null || ss.length != 3){
+					staleSessions.put(idArray[i], principal != null ? principal.toString() : null);
+					continue;
+				}
+				// 登录者已变更的SESSION
+				if (principal != null && !principal.toString().equals(ss[0])){
+					changedSessions.add(idArray[i]);
+					continue;
+				}
+				SimpleSession session = new SimpleSession();
+				session.setId(idArray[i]);
+				session.setAttribute("principalId", ss[0]);
+				session.setTimeout(Long.valueOf(ss[1]));
+				session.setLastAccessTime(new Date(Long.valueOf(ss[2])));
+				try{
+					// 验证SESSION
+					session.validate();
+				}
+				// SESSION验证失败
+				catch (Exception e) {
+					staleSessions.put(idArray[i], ss[0]);
+					continue;
 				}
-				// 存储的SESSION无Value
-				else if (StringUtils.isNotBlank(e.getKey())){
-					jedis.hdel(sessionKeyPrefix, e.getKey());
+				// 不包括离线并符合最后访问时间小于等于3分钟条件。
+				if (!includeLeave && DateUtils.pastMinutes(session.getLastAccessTime()) > 3){
+					continue;
 				}
+				// 过滤掉的SESSION
+				if (filterSession != null && filterSession.getId().equals(session.getId())){
+					continue;
+				}
+				sessions.add(session);
+			}
+			removeSessions(jedis, staleSessions);
+			if (!changedSessions.isEmpty()){
+				jedis.srem(getPrincipalIndexKey(principal.toString()), changedSessions.toArray(new String[changedSessions.size()]));
 			}
 			logger.info("getActiveSessions size: {} ", sessions.size());
 		} catch (Exception e) {
@@ -198,6 +328,72 @@ public class JedisSessionDAO extends AbstractSessionDAO implements SessionDAO {
 		}
 		return sessions;
 	}
+	
+	/**
+	 * 获取活动会话数量
+	 * @param includeLeave 是否包括离线（最后访问时间大于3分钟为离线会话）
+	 * @return
+	 */
+	@Override
+	public int getActiveSessionCount(boolean includeLeave) {
+		Jedis jedis = null;
+		try {
+			jedis = JedisUtils.getResource();
+			long now = System.currentTimeMillis();
+			if (includeLeave){
+				return jedis.zcount(getExpireIndexKey(), now, Double.MAX_VALUE).intValue();
+			}else{
+				return jedis.zcount(getAccessIndexKey(), now - LEAVE_MILLIS, Double.MAX_VALUE).intValue();
+			}
+		} catch (Exception e) {
+			logger.error("getActiveSessionCount", e);
+		} finally {
+			JedisUtils.returnResource(jedis);
+		}
+		return 0;
+	}
+	
+	/**
+	 * 批量清除已超期的会话，每次最多清除EXPIRE_BATCH_SIZE个
+	 */
+	private void removeExpiredSessions(Jedis jedis, long now){
+		Set<String> ids = jedis.zrangeByScore(getExpireIndexKey(), 0, now, 0, EXPIRE_BATCH_SIZE);
+		if (ids.isEmpty()){
+			return;
+		}
+		String[] idArray = ids.toArray(new String[ids.size()]);
+		List<String> values = jedis.hmget(sessionKeyPrefix, idArray);
+		Map<String, String> expiredSessions = Maps.newHashMap();
+		for (int i = 0; i < idArray.length; i++){
+			String[] ss = StringUtils.split(values.get(i), "|");
+			expiredSessions.put(idArray[i], ss != null && ss.length == 3 ? ss[0] : null);
+		}
+		removeSessions(jedis, expiredSessions);
+		logger.debug("removeExpiredSessions size: {}", expiredSessions.size());
+	}
+	
+	/**
+	 * 通过管道批量清除会话及其索引
+	 * @param sessions 会话编号 -> 登录者编号（可为空）
+	 */
+	private void removeSessions(Jedis jedis, Map<String, String> sessions){
+		if (sessions.isEmpty()){
+			return;
+		}
+		String[] ids = sessions.keySet().toArray(new String[sessions.size()]);
+		Pipeline pipeline = jedis.pipelined();
+		pipeline.hdel(sessionKeyPrefix, ids);
+		pipeline.zrem(getAccessIndexKey(), ids);
+		pipeline.zrem(getExpireIndexKey(), ids);
+		for (Map.Entry<String, String> e : sessions.entrySet()){
+			pipeline.del(JedisUtils.getBytesKey(sessionKeyPrefix + e.getKey()));
+			if (StringUtils.isNotBlank(e.getValue())){
+				pipeline.srem(getPrincipalIndexKey(e.getValue()), e.getKey());
+			}
+			nearCache.remove(e.getKey());
+		}
+		pipeline.sync();
+	}
 
 	@Override
 	protected Serializable doCreate(Session session) {
@@ -231,15 +427,30 @@ public class JedisSessionDAO extends AbstractSessionDAO implements SessionDAO {
 		if (s != null){
 			return s;
 		}
+		
+		// 从近端缓存获取
+		if (nearCacheMillis > 0){
+			CachedSession cached = nearCache.get(sessionId.toString());
+			if (cached != null && cached.expireTime >= System.currentTimeMillis()){
+				if (request != null){
+					request.setAttribute("session_"+sessionId, cached.session);
+				}
+				return cached.session;
+			}
+		}
 
 		Session session = null;
 		Jedis jedis = null;
+		long version = invalidateVersion.get();
 		try {
 			jedis = JedisUtils.getResource();
 //			if (jedis.exists(sessionKeyPrefix + sessionId)){
-				session = (Session)JedisUtils.toObject(jedis.get(
+				session = (Session)serializer.deserialize(jedis.get(
 						JedisUtils.getBytesKey(sessionKeyPrefix + sessionId)));
 //			}
+			if (nearCacheMillis > 0 && session != null && version == invalidateVersion.get()){
+				putNearCache(sessionId.toString(), session, getFingerprint(session), session.getLastAccessTime().getTime());
+			}
 			logger.debug("doReadSession {} {}", sessionId, request != null ? request.getRequestURI() : "");
 		} catch (Exception e) {
 			logger.error("doReadSession {} {}", sessionId, request != null ? request.getRequestURI() : "", e);
@@ -263,6 +474,99 @@ public class JedisSessionDAO extends AbstractSessionDAO implements SessionDAO {
 		}
     }
 
+	/**
+	 * 放入近端缓存，超过最大数量时先清除过期会话，仍超过则全部清除
+	 */
+	private void putNearCache(String sessionId, Session session, byte[] fingerprint, long writeAccessTime){
+		if (nearCache.size() >= nearCacheSize && !nearCache.containsKey(sessionId)){
+			long now = System.currentTimeMillis();
+			for (Iterator<CachedSession> it = nearCache.values().iterator(); it.hasNext();){
+				if (it.next().expireTime < now){
+					it.remove();
+				}
+			}
+			if (nearCache.size() >= nearCacheSize){
+				nearCache.clear();
+			}
+		}
+		nearCache.put(sessionId, new CachedSession(session, fingerprint, writeAccessTime,
+				System.currentTimeMillis() + nearCacheMillis));
+	}
+	
+	/**
+	 * 会话除最后访问时间以外的内容摘要（超时时间、停止状态、属性序列化后的MD5），用于判断是否只有最后访问时间发生变化；
+	 * 按序列化内容计算，属性值被原地修改时摘要也会变化；无法计算时返回null（视为已变化）
+	 */
+	private byte[] getFingerprint(Session session){
+		if (!(session instanceof SimpleSession)){
+			return null;
+		}
+		SimpleSession ss = (SimpleSession)session;
+		try {
+			StringBuilder sb = new StringBuilder();
+			sb.append(ss.getTimeout()).append('|').append(ss.getStopTimestamp() != null ? ss.getStopTimestamp().getTime() : 0)
+					.append('|').append(ss.isExpired());
+			byte[] attributes = ss.getAttributes() != null ? serializer.serialize(ss.getAttributes()) : new byte[0];
+			byte[] header = StringUtils.getBytes(sb.toString());
+			byte[] input = new byte[header.length + attributes.length];
+			System.arraycopy(header, 0, input, 0, header.length);
+			System.arraycopy(attributes, 0, input, header.length, attributes.length);
+			return Digests.md5(input);
+		} catch (Exception e) {
+			logger.debug("fingerprint {}", session.getId(), e);
+			return null;
+		}
+	}
+	
+	private String getInvalidateChannel(){
+		return sessionKeyPrefix + "invalidate";
+	}
+	
+	/**
+	 * 最后访问时间索引（有序集合，分值为最后访问时间）
+	 */
+	private String getAccessIndexKey(){
+		return sessionKeyPrefix + "index:access";
+	}
+	
+	/**
+	 * 超期时间索引（有序集合，分值为超期时间）
+	 */
+	private String getExpireIndexKey(){
+		return sessionKeyPrefix + "index:expire";
+	}
+	
+	/**
+	 * 登录者索引（集合，登录者的会话编号）
+	 */
+	private String getPrincipalIndexKey(String principalId){
+		return sessionKeyPrefix + "index:principal:" + principalId;
+	}
+	
+	/**
+	 * 近端缓存的会话
+	 */
+	private static class CachedSession {
+		private final Session session;
+		private final byte[] fingerprint;
+		private final long writeAccessTime;
+		private final long expireTime;
+		private CachedSession(Session session, byte[] fingerprint, long writeAccessTime, long expireTime){
+			this.session = session;
+			this.fingerprint = fingerprint;
+			this.writeAccessTime = writeAccessTime;
+			this.expireTime = expireTime;
+		}
+	}
+
+	public Serializer getSerializer() {
+		return serializer;
+	}
+
+	public void setSerializer(Serializer serializer) {
+		this.serializer = serializer;
+	}
+
 	public String getSessionKeyPrefix() {
 		return sessionKeyPrefix;
 	}
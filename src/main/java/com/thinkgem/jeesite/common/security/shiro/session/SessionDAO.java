@@ -22,4 +22,11 @@ public interface SessionDAO extends org.apache.shiro.session.mgt.eis.SessionDAO
 	 */
 	public Collection<Session> getActiveSessions(boolean includeLeave, Object principal, Session filterSession);
 	
+	/**
+	 * 获取活动会话数量
+	 * @param includeLeave 是否包括离线（最后访问时间大于3分钟为离线会话）
+	 * @return
+	 */
+	public int getActiveSessionCount(boolean includeLeave);
+	
 }
@@ -0,0 +1,622 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.shiro.session.mgt.SimpleSession;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.thinkgem.jeesite.common.utils.ObjectUtils;
+
+/**
+ * 紧凑的二进制序列化实现
+ * 数据格式：标识(1字节) + 版本(1字节) + 标志(1字节，是否压缩) + 数据。
+ * 常用类型（字符串、数字、日期、常用集合、SimpleSession、SimplePrincipalCollection）及通过register注册的类型直接编码，
+ * 其它类型使用Java序列化；读取时兼容原Java序列化数据（0xACED开头）。
+ * 每个线程复用一个写缓冲区；序列化后超过compressThreshold字节时使用Deflate压缩。
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class BinarySerializer implements Serializer {
+
+	private static Logger logger = LoggerFactory.getLogger(BinarySerializer.class);
+
+	/**
+	 * 数据格式标识及版本
+	 */
+	public static final byte MAGIC = (byte)0xBE;
+	public static final byte VERSION = 1;
+
+	private static final byte FLAG_DEFLATE = 1;
+	private static final int HEADER_SIZE = 3;
+
+	/**
+	 * 复用写缓冲区的最大大小，超过后不再复用，避免线程长期占用大块内存
+	 */
+	private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * 集合嵌套超过此深度时使用Java序列化
+	 */
+	private static final int MAX_NATIVE_DEPTH = 8;
+
+	private static final byte TYPE_NULL = 0;
+	private static final byte TYPE_STRING = 1;
+	private static final byte TYPE_INTEGER = 2;
+	private static final byte TYPE_LONG = 3;
+	private static final byte TYPE_TRUE = 4;
+	private static final byte TYPE_FALSE = 5;
+	private static final byte TYPE_DOUBLE = 6;
+	private static final byte TYPE_DATE = 7;
+	private static final byte TYPE_BYTES = 8;
+	private static final byte TYPE_ARRAY_LIST = 9;
+	private static final byte TYPE_HASH_SET = 10;
+	private static final byte TYPE_LINKED_HASH_SET = 11;
+	private static final byte TYPE_HASH_MAP = 12;
+	private static final byte TYPE_LINKED_HASH_MAP = 13;
+	private static final byte TYPE_SESSION = 14;
+	private static final byte TYPE_PRINCIPALS = 15;
+	private static final byte TYPE_REGISTERED = 16;
+	private static final byte TYPE_JAVA = 17;
+
+	private static final Map<Class<?>, Registration> classRegistrations = new ConcurrentHashMap<Class<?>, Registration>();
+	private static final Map<Integer, Registration> idRegistrations = new ConcurrentHashMap<Integer, Registration>();
+
+	private static final ThreadLocal<Output> outputs = new ThreadLocal<Output>() {
+		@Override
+		protected Output initialValue() {
+			return new Output();
+		}
+	};
+
+	/**
+	 * 压缩阈值（字节），0为不压缩
+	 */
+	private int compressThreshold;
+
+	public BinarySerializer() {
+		this(0);
+	}
+
+	public BinarySerializer(int compressThreshold) {
+		this.compressThreshold = compressThreshold;
+	}
+
+	/**
+	 * 注册类型编码，注册后该类型的对象不再使用Java序列化。
+	 * 编号写入序列化数据中，各节点需使用相同的编号，且已使用的编号不能改作它用。
+	 * @param id 编号，大于0
+	 * @param type 类型（只匹配该类型本身，不包括子类）
+	 * @param codec 编码器
+	 */
+	public static <T> void register(int id, Class<T> type, Codec<T> codec) {
+		if (id <= 0){
+			throw new IllegalArgumentException("Registration id must be greater than 0: " + id);
+		}
+		Registration registration = idRegistrations.get(id);
+		if (registration != null && registration.type != type){
+			throw new IllegalArgumentException("Registration id " + id + " already used by " + registration.type.getName());
+		}
+		registration = new Registration(id, type, codec);
+		idRegistrations.put(id, registration);
+		classRegistrations.put(type, registration);
+	}
+
+	/**
+	 * 是否为本格式的数据
+	 */
+	public static boolean isBinary(byte[] bytes) {
+		return bytes != null && bytes.length >= HEADER_SIZE && bytes[0] == MAGIC;
+	}
+
+	/**
+	 * 是否为Java序列化数据
+	 */
+	private static boolean isJava(byte[] bytes) {
+		return bytes.length >= 2 && bytes[0] == (byte)0xAC && bytes[1] == (byte)0xED;
+	}
+
+	@Override
+	public byte[] serialize(Object object) {
+		if (object == null){
+			return null;
+		}
+		Output out = outputs.get();
+		try {
+			out.reset();
+			out.write(MAGIC);
+			out.write(VERSION);
+			out.write(0);
+			out.writeObject(object);
+			if (compressThreshold > 0 && out.size() - HEADER_SIZE > compressThreshold){
+				ByteArrayOutputStream baos = new ByteArrayOutputStream(out.size() / 2);
+				baos.write(MAGIC);
+				baos.write(VERSION);
+				baos.write(FLAG_DEFLATE);
+				Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+				try {
+					DeflaterOutputStream dos = new DeflaterOutputStream(baos, deflater);
+					dos.write(out.buffer, HEADER_SIZE, out.size() - HEADER_SIZE);
+					dos.finish();
+				} finally {
+					deflater.end();
+				}
+				return baos.toByteArray();
+			}
+			return out.toByteArray();
+		} catch (Exception e) {
+			logger.error("serialize {}", object.getClass().getName(), e);
+			return null;
+		} finally {
+			out.release();
+		}
+	}
+
+	@Override
+	public Object deserialize(byte[] bytes) {
+		if (bytes == null || bytes.length == 0){
+			return null;
+		}
+		if (isJava(bytes)){
+			return ObjectUtils.unserialize(bytes);
+		}
+		if (!isBinary(bytes)){
+			logger.warn("deserialize unknown format, first byte: {}", bytes[0]);
+			return null;
+		}
+		if (bytes[1] > VERSION){
+			logger.warn("deserialize unsupported version: {}", bytes[1]);
+			return null;
+		}
+		try {
+			Input in;
+			if ((bytes[2] & FLAG_DEFLATE) != 0){
+				InputStream is = new InflaterInputStream(new ByteArrayInputStream(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE));
+				byte[] data = IOUtils.toByteArray(is);
+				in = new Input(data, 0);
+			}else{
+				in = new Input(bytes, HEADER_SIZE);
+			}
+			return in.readObject();
+		} catch (Exception e) {
+			logger.error("deserialize", e);
+			return null;
+		}
+	}
+
+	/**
+	 * 是否可以直接编码（不需要Java序列化），集合中的元素需全部可以直接编码
+	 */
+	private static boolean isNative(Object object, int depth) {
+		if (object == null){
+			return true;
+		}
+		Class<?> type = object.getClass();
+		if (type == String.class || type == Integer.class || type == Long.class || type == Boolean.class
+				|| type == Double.class || type == Date.class || type == byte[].class
+				|| type == SimpleSession.class || type == SimplePrincipalCollection.class
+				|| classRegistrations.containsKey(type)){
+			return true;
+		}
+		if (depth >= MAX_NATIVE_DEPTH){
+			return false;
+		}
+		if (type == ArrayList.class || type == HashSet.class || type == LinkedHashSet.class){
+			for (Object o : (Collection<?>)object){
+				if (!isNative(o, depth + 1)){
+					return false;
+				}
+			}
+			return true;
+		}
+		if (type == HashMap.class || type == LinkedHashMap.class){
+			for (Map.Entry<?, ?> e : ((Map<?, ?>)object).entrySet()){
+				if (!isNative(e.getKey(), depth + 1) || !isNative(e.getValue(), depth + 1)){
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 类型编码器
+	 */
+	public interface Codec<T> {
+
+		public void write(Output out, T object) throws IOException;
+
+		public T read(Input in) throws IOException;
+
+	}
+
+	private static class Registration {
+		private final int id;
+		private final Class<?> type;
+		private final Codec<Object> codec;
+		@SuppressWarnings("unchecked")
+		private Registration(int id, Class<?> type, Codec<?> codec) {
+			this.id = id;
+			this.type = type;
+			this.codec = (Codec<Object>)codec;
+		}
+	}
+
+	/**
+	 * 写缓冲区
+	 */
+	public static class Output extends OutputStream {
+
+		private byte[] buffer = new byte[256];
+		private int size;
+
+		private void reset() {
+			size = 0;
+		}
+
+		private void release() {
+			if (buffer.length > MAX_POOLED_BUFFER_SIZE){
+				buffer = new byte[256];
+			}
+			size = 0;
+		}
+
+		private int size() {
+			return size;
+		}
+
+		private byte[] toByteArray() {
+			byte[] bytes = new byte[size];
+			System.arraycopy(buffer, 0, bytes, 0, size);
+			return bytes;
+		}
+
+		private void ensureCapacity(int length) {
+			if (size + length > buffer.length){
+				byte[] newBuffer = new byte[Math.max(buffer.length * 2, size + length)];
+				System.arraycopy(buffer, 0, newBuffer, 0, size);
+				buffer = newBuffer;
+			}
+		}
+
+		@Override
+		public void write(int b) {
+			ensureCapacity(1);
+			buffer[size++] = (byte)b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			ensureCapacity(len);
+			System.arraycopy(b, off, buffer, size, len);
+			size += len;
+		}
+
+		public void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0){
+				buffer[size++] = (byte)((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buffer[size++] = (byte)value;
+		}
+
+		public void writeVarInt(int value) {
+			writeVarLong(value & 0xFFFFFFFFL);
+		}
+
+		/**
+		 * 写入有符号数（ZigZag编码，绝对值小的负数同样占用较少字节）
+		 */
+		public void writeSignedVarLong(long value) {
+			writeVarLong((value << 1) ^ (value >> 63));
+		}
+
+		public void writeBoolean(boolean value) {
+			write(value ? 1 : 0);
+		}
+
+		/**
+		 * 写入字符串，允许为空
+		 */
+		public void writeString(String value) {
+			if (value == null){
+				writeVarInt(0);
+				return;
+			}
+			int length = value.length();
+			writeVarInt(length + 1);
+			ensureCapacity(length * 3);
+			for (int i = 0; i < length; i++){
+				char c = value.charAt(i);
+				if (c < 0x80){
+					buffer[size++] = (byte)c;
+				}else if (c < 0x800){
+					buffer[size++] = (byte)(0xC0 | (c >> 6));
+					buffer[size++] = (byte)(0x80 | (c & 0x3F));
+				}else{
+					buffer[size++] = (byte)(0xE0 | (c >> 12));
+					buffer[size++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+					buffer[size++] = (byte)(0x80 | (c & 0x3F));
+				}
+			}
+		}
+
+		/**
+		 * 写入任意对象，允许为空
+		 */
+		public void writeObject(Object object) throws IOException {
+			if (object == null){
+				write(TYPE_NULL);
+				return;
+			}
+			Class<?> type = object.getClass();
+			if (type == String.class){
+				write(TYPE_STRING);
+				writeString((String)object);
+			}else if (type == Integer.class){
+				write(TYPE_INTEGER);
+				writeSignedVarLong((Integer)object);
+			}else if (type == Long.class){
+				write(TYPE_LONG);
+				writeSignedVarLong((Long)object);
+			}else if (type == Boolean.class){
+				write((Boolean)object ? TYPE_TRUE : TYPE_FALSE);
+			}else if (type == Double.class){
+				write(TYPE_DOUBLE);
+				long bits = Double.doubleToLongBits((Double)object);
+				for (int i = 56; i >= 0; i -= 8){
+					write((int)(bits >>> i));
+				}
+			}else if (type == Date.class){
+				write(TYPE_DATE);
+				writeSignedVarLong(((Date)object).getTime());
+			}else if (type == byte[].class){
+				byte[] bytes = (byte[])object;
+				write(TYPE_BYTES);
+				writeVarInt(bytes.length);
+				write(bytes, 0, bytes.length);
+			}else if ((type == ArrayList.class || type == HashSet.class || type == LinkedHashSet.class)
+					&& isNative(object, 0)){
+				Collection<?> collection = (Collection<?>)object;
+				write(type == ArrayList.class ? TYPE_ARRAY_LIST : type == HashSet.class ? TYPE_HASH_SET : TYPE_LINKED_HASH_SET);
+				writeVarInt(collection.size());
+				for (Object o : collection){
+					writeObject(o);
+				}
+			}else if ((type == HashMap.class || type == LinkedHashMap.class) && isNative(object, 0)){
+				Map<?, ?> map = (Map<?, ?>)object;
+				write(type == HashMap.class ? TYPE_HASH_MAP : TYPE_LINKED_HASH_MAP);
+				writeVarInt(map.size());
+				for (Map.Entry<?, ?> e : map.entrySet()){
+					writeObject(e.getKey());
+					writeObject(e.getValue());
+				}
+			}else if (type == SimpleSession.class){
+				SimpleSession session = (SimpleSession)object;
+				write(TYPE_SESSION);
+				writeObject(session.getId());
+				writeObject(session.getStartTimestamp());
+				writeObject(session.getStopTimestamp());
+				writeObject(session.getLastAccessTime());
+				writeSignedVarLong(session.getTimeout());
+				writeBoolean(session.isExpired());
+				writeString(session.getHost());
+				writeObject(session.getAttributes());
+			}else if (type == SimplePrincipalCollection.class){
+				SimplePrincipalCollection principals = (SimplePrincipalCollection)object;
+				write(TYPE_PRINCIPALS);
+				if (principals.getRealmNames() == null){
+					writeVarInt(0);
+				}else{
+					writeVarInt(principals.getRealmNames().size());
+					for (String realmName : principals.getRealmNames()){
+						writeString(realmName);
+						writeObject(new ArrayList<Object>(principals.fromRealm(realmName)));
+					}
+				}
+			}else if (classRegistrations.containsKey(type)){
+				Registration registration = classRegistrations.get(type);
+				write(TYPE_REGISTERED);
+				writeVarInt(registration.id);
+				registration.codec.write(this, object);
+			}else{
+				// 长度占4字节，写入后回填
+				write(TYPE_JAVA);
+				int lengthIndex = size;
+				ensureCapacity(4);
+				size += 4;
+				ObjectOutputStream oos = new ObjectOutputStream(this);
+				oos.writeObject(object);
+				oos.flush();
+				int length = size - lengthIndex - 4;
+				buffer[lengthIndex] = (byte)(length >>> 24);
+				buffer[lengthIndex + 1] = (byte)(length >>> 16);
+				buffer[lengthIndex + 2] = (byte)(length >>> 8);
+				buffer[lengthIndex + 3] = (byte)length;
+			}
+		}
+
+	}
+
+	/**
+	 * 读缓冲区
+	 */
+	public static class Input {
+
+		private final byte[] buffer;
+		private int position;
+
+		private Input(byte[] buffer, int position) {
+			this.buffer = buffer;
+			this.position = position;
+		}
+
+		public int read() throws IOException {
+			if (position >= buffer.length){
+				throw new IOException("Unexpected end of data");
+			}
+			return buffer[position++] & 0xFF;
+		}
+
+		public long readVarLong() throws IOException {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7){
+				int b = read();
+				value |= (long)(b & 0x7F) << shift;
+				if ((b & 0x80) == 0){
+					return value;
+				}
+			}
+			throw new IOException("Malformed variable length number");
+		}
+
+		public int readVarInt() throws IOException {
+			return (int)readVarLong();
+		}
+
+		public long readSignedVarLong() throws IOException {
+			long value = readVarLong();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		public boolean readBoolean() throws IOException {
+			return read() != 0;
+		}
+
+		public String readString() throws IOException {
+			int length = readVarInt() - 1;
+			if (length < 0){
+				return null;
+			}
+			char[] chars = new char[length];
+			for (int i = 0; i < length; i++){
+				int b = read();
+				if (b < 0x80){
+					chars[i] = (char)b;
+				}else if ((b & 0xE0) == 0xC0){
+					chars[i] = (char)(((b & 0x1F) << 6) | (read() & 0x3F));
+				}else{
+					chars[i] = (char)(((b & 0x0F) << 12) | ((read() & 0x3F) << 6) | (read() & 0x3F));
+				}
+			}
+			return new String(chars);
+		}
+
+		@SuppressWarnings("unchecked")
+		public Object readObject() throws IOException {
+			int type = read();
+			switch (type) {
+			case TYPE_NULL:
+				return null;
+			case TYPE_STRING:
+				return readString();
+			case TYPE_INTEGER:
+				return Integer.valueOf((int)readSignedVarLong());
+			case TYPE_LONG:
+				return Long.valueOf(readSignedVarLong());
+			case TYPE_TRUE:
+				return Boolean.TRUE;
+			case TYPE_FALSE:
+				return Boolean.FALSE;
+			case TYPE_DOUBLE:
+				long bits = 0;
+				for (int i = 0; i < 8; i++){
+					bits = (bits << 8) | read();
+				}
+				return Double.valueOf(Double.longBitsToDouble(bits));
+			case TYPE_DATE:
+				return new Date(readSignedVarLong());
+			case TYPE_BYTES:
+				byte[] bytes = new byte[readVarInt()];
+				for (int i = 0; i < bytes.length; i++){
+					bytes[i] = (byte)read();
+				}
+				return bytes;
+			case TYPE_ARRAY_LIST:
+			case TYPE_HASH_SET:
+			case TYPE_LINKED_HASH_SET:
+				int length = readVarInt();
+				Collection<Object> collection = type == TYPE_ARRAY_LIST ? new ArrayList<Object>(length)
+						: type == TYPE_HASH_SET ? new HashSet<Object>(length * 4 / 3 + 1) : new LinkedHashSet<Object>(length * 4 / 3 + 1);
+				for (int i = 0; i < length; i++){
+					collection.add(readObject());
+				}
+				return collection;
+			case TYPE_HASH_MAP:
+			case TYPE_LINKED_HASH_MAP:
+				int mapSize = readVarInt();
+				Map<Object, Object> map = type == TYPE_HASH_MAP ? new HashMap<Object, Object>(mapSize * 4 / 3 + 1)
+						: new LinkedHashMap<Object, Object>(mapSize * 4 / 3 + 1);
+				for (int i = 0; i < mapSize; i++){
+					map.put(readObject(), readObject());
+				}
+				return map;
+			case TYPE_SESSION:
+				SimpleSession session = new SimpleSession();
+				session.setId((Serializable)readObject());
+				session.setStartTimestamp((Date)readObject());
+				session.setStopTimestamp((Date)readObject());
+				session.setLastAccessTime((Date)readObject());
+				session.setTimeout(readSignedVarLong());
+				session.setExpired(readBoolean());
+				session.setHost(readString());
+				session.setAttributes((Map<Object, Object>)readObject());
+				return session;
+			case TYPE_PRINCIPALS:
+				SimplePrincipalCollection principals = new SimplePrincipalCollection();
+				int realmSize = readVarInt();
+				for (int i = 0; i < realmSize; i++){
+					String realmName = readString();
+					principals.addAll((Collection<Object>)readObject(), realmName);
+				}
+				return principals;
+			case TYPE_REGISTERED:
+				int id = readVarInt();
+				Registration registration = idRegistrations.get(id);
+				if (registration == null){
+					throw new IOException("Unregistered type id: " + id);
+				}
+				return registration.codec.read(this);
+			case TYPE_JAVA:
+				int javaLength = (read() << 24) | (read() << 16) | (read() << 8) | read();
+				ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(buffer, position, javaLength));
+				position += javaLength;
+				try {
+					return ois.readObject();
+				} catch (ClassNotFoundException e) {
+					throw new IOException(e);
+				}
+			default:
+				throw new IOException("Unknown type: " + type);
+			}
+		}
+
+	}
+
+}
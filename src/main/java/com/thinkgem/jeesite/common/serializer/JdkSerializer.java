@@ -0,0 +1,30 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.serializer;
+
+import com.thinkgem.jeesite.common.utils.ObjectUtils;
+
+/**
+ * Java序列化实现，读取时兼容BinarySerializer写入的数据，便于回退
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class JdkSerializer implements Serializer {
+
+	private final BinarySerializer binarySerializer = new BinarySerializer();
+
+	@Override
+	public byte[] serialize(Object object) {
+		return ObjectUtils.serialize(object);
+	}
+
+	@Override
+	public Object deserialize(byte[] bytes) {
+		if (BinarySerializer.isBinary(bytes)){
+			return binarySerializer.deserialize(bytes);
+		}
+		return ObjectUtils.unserialize(bytes);
+	}
+
+}
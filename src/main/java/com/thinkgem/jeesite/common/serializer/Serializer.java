@@ -0,0 +1,27 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.serializer;
+
+/**
+ * 对象序列化接口，用于Redis中保存的会话及缓存对象（JedisUtils、JedisSessionDAO、JedisCacheManager）
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public interface Serializer {
+
+	/**
+	 * 序列化对象
+	 * @param object 对象，为空时返回null
+	 * @return
+	 */
+	public byte[] serialize(Object object);
+
+	/**
+	 * 反序列化对象
+	 * @param bytes 序列化数据，为空时返回null
+	 * @return
+	 */
+	public Object deserialize(byte[] bytes);
+
+}
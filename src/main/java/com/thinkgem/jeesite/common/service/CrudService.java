@@ -4,13 +4,24 @@
 package com.thinkgem.jeesite.common.service;
 
 import java.util.List;
+import java.util.Set;
 
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.thinkgem.jeesite.common.config.Global;
+import com.thinkgem.jeesite.common.persistence.BatchDao;
 import com.thinkgem.jeesite.common.persistence.CrudDao;
 import com.thinkgem.jeesite.common.persistence.DataEntity;
 import com.thinkgem.jeesite.common.persistence.Page;
+import com.thinkgem.jeesite.common.utils.Exceptions;
+import com.thinkgem.jeesite.common.utils.Reflections;
+import com.thinkgem.jeesite.common.utils.StringUtils;
 
 /**
  * Service基类
@@ -26,6 +37,17 @@ public abstract class CrudService<D extends CrudDao<T>, T extends DataEntity<T>>
 	@Autowired
 	protected D dao;
 	
+	/**
+	 * MyBatis会话工厂，用于打开批量执行会话
+	 */
+	@Autowired
+	private SqlSessionFactory sqlSessionFactory;
+	
+	/**
+	 * 默认批量操作每批行数
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+	
 	/**
 	 * 获取单条数据
 	 * @param id
@@ -88,5 +110,169 @@ public abstract class CrudService<D extends CrudDao<T>, T extends DataEntity<T>>
 	public void delete(T entity) {
 		dao.delete(entity);
 	}
+	
+	/**
+	 * 保存子表数据（主子表），在主表保存的事务中调用，调用前设置好子表数据的主表对象。
+	 * 子表数据分为删除、更新、插入三组，通过BATCH执行器会话按组执行JDBC批处理，会话与当前事务共用数据库连接。
+	 * @param daoClass 子表Dao接口
+	 * @param childList 提交的子表数据：编号为null的行忽略；删除标记不为正常的行删除；编号为空的行插入；其余行更新
+	 * @param persistedList 已保存的子表数据，不在提交数据中的行删除；传null表示不比较
+	 */
+	protected <C extends DataEntity<C>> void saveChildList(Class<? extends CrudDao<C>> daoClass, List<C> childList, List<C> persistedList) {
+		List<C> insertList = Lists.newArrayList();
+		List<C> updateList = Lists.newArrayList();
+		List<C> deleteList = Lists.newArrayList();
+		Set<String> submittedIds = Sets.newHashSet();
+		if (childList != null){
+			for (C child : childList){
+				if (child.getId() == null){
+					continue;
+				}
+				if (StringUtils.isNotBlank(child.getId())){
+					submittedIds.add(child.getId());
+				}
+				if (DataEntity.DEL_FLAG_NORMAL.equals(child.getDelFlag())){
+					if (StringUtils.isBlank(child.getId())){
+						child.preInsert();
+						insertList.add(child);
+					}else{
+						child.preUpdate();
+						updateList.add(child);
+					}
+				}else if (StringUtils.isNotBlank(child.getId())){
+					deleteList.add(child);
+				}
+			}
+		}
+		if (persistedList != null){
+			for (C child : persistedList){
+				if (!submittedIds.contains(child.getId())){
+					deleteList.add(child);
+				}
+			}
+		}
+		if (insertList.isEmpty() && updateList.isEmpty() && deleteList.isEmpty()){
+			return;
+		}
+		executeBatch(daoClass, deleteList, updateList, insertList);
+	}
+	
+	/**
+	 * 批量插入数据，每条数据调用preInsert；Dao继承BatchDao时按批次执行多行插入，否则通过BATCH执行器执行
+	 * @param list
+	 */
+	@SuppressWarnings("unchecked")
+	@Transactional(readOnly = false)
+	public void insertBatch(List<T> list) {
+		for (T entity : list){
+			entity.preInsert();
+		}
+		if (dao instanceof BatchDao){
+			for (List<T> part : Lists.partition(list, getBatchSize())){
+				((BatchDao<T>)dao).insertBatch(part);
+			}
+		}else{
+			executeBatch(getDaoClass(), null, null, list);
+		}
+	}
+	
+	/**
+	 * 批量更新数据，每条数据调用preUpdate，通过BATCH执行器执行
+	 * @param list
+	 */
+	@Transactional(readOnly = false)
+	public void updateBatch(List<T> list) {
+		for (T entity : list){
+			entity.preUpdate();
+		}
+		executeBatch(getDaoClass(), null, list, null);
+	}
+	
+	/**
+	 * 按编号批量删除数据，通过BATCH执行器逐条执行delete
+	 * @param ids
+	 */
+	@Transactional(readOnly = false)
+	public void deleteByIds(List<String> ids) {
+		List<T> list = Lists.newArrayListWithCapacity(ids.size());
+		Class<T> entityClass = getGenericType(1);
+		try {
+			for (String id : ids){
+				T entity = entityClass.newInstance();
+				entity.setId(id);
+				list.add(entity);
+			}
+		} catch (Exception e) {
+			throw Exceptions.unchecked(e);
+		}
+		executeBatch(getDaoClass(), list, null, null);
+	}
+	
+	/**
+	 * 批量操作每批行数（jdbc.batchSize），最小为1
+	 */
+	protected int getBatchSize() {
+		return Math.max(1, Global.getConfigInt("jdbc.batchSize", DEFAULT_BATCH_SIZE));
+	}
+	
+	/**
+	 * 通过BATCH执行器会话依次执行删除、更新、插入，每 batchSize 条执行一次JDBC批处理；
+	 * 会话与当前事务共用数据库连接，存在Spring事务时由事务统一提交
+	 */
+	private <C> void executeBatch(Class<? extends CrudDao<C>> daoClass, List<C> deleteList, List<C> updateList, List<C> insertList) {
+		int batchSize = getBatchSize();
+		int count = 0;
+		SqlSession batchSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+		try {
+			CrudDao<C> batchDao = batchSession.getMapper(daoClass);
+			if (deleteList != null){
+				for (C entity : deleteList){
+					batchDao.delete(entity);
+					if (++count % batchSize == 0){
+						batchSession.flushStatements();
+					}
+				}
+			}
+			if (updateList != null){
+				for (C entity : updateList){
+					batchDao.update(entity);
+					if (++count % batchSize == 0){
+						batchSession.flushStatements();
+					}
+				}
+			}
+			if (insertList != null){
+				for (C entity : insertList){
+					batchDao.insert(entity);
+					if (++count % batchSize == 0){
+						batchSession.flushStatements();
+					}
+				}
+			}
+			batchSession.commit();
+		} finally {
+			batchSession.close();
+		}
+	}
+	
+	/**
+	 * 当前Dao接口类型
+	 */
+	private Class<D> getDaoClass() {
+		return getGenericType(0);
+	}
+	
+	/**
+	 * 获取子类声明的泛型参数类型（0：Dao接口，1：实体），子类未声明泛型参数（如经过代理或中间基类）时抛出异常
+	 */
+	@SuppressWarnings("unchecked")
+	private <C> Class<C> getGenericType(int index) {
+		Class<?> type = Reflections.getClassGenricType(getClass(), index);
+		if (type == Object.class){
+			throw new IllegalStateException(getClass().getName()
+					+ " must declare the generic parameters of CrudService<D, T> to use batch operations.");
+		}
+		return (Class<C>)type;
+	}
 
 }
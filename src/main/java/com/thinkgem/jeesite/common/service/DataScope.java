@@ -0,0 +1,384 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.service;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.thinkgem.jeesite.common.config.Global;
+import com.thinkgem.jeesite.common.utils.StringUtils;
+import com.thinkgem.jeesite.modules.sys.entity.Office;
+import com.thinkgem.jeesite.modules.sys.entity.Role;
+import com.thinkgem.jeesite.modules.sys.entity.User;
+import com.thinkgem.jeesite.modules.sys.utils.CurrentUserContext;
+
+/**
+ * 数据范围过滤条件
+ * 根据用户的角色数据范围编译为带参数的SQL片段，并按用户缓存，用户的角色、数据范围、公司或部门变化后重新编译。
+ * SQL片段中的参数值通过 #{sqlMap.键_序号} 引用，数据范围相同的用户生成相同的SQL，数据库及连接池可复用预编译语句。
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class DataScope {
+
+	/**
+	 * 最多缓存条数，超过时淘汰最近最少使用的条目
+	 */
+	private static final int CACHE_SIZE = 10000;
+
+	private static final Map<String, DataScope> cache = CacheBuilder.newBuilder()
+			.maximumSize(CACHE_SIZE).<String, DataScope>build().asMap();
+
+	/**
+	 * 空条件（超级管理员或包含全部数据权限）
+	 */
+	private static final DataScope EMPTY = new DataScope(null, new String[]{""}, new String[0]);
+
+	private final String version;
+	private final String[] segments;
+	private final String[] params;
+
+	private DataScope(String version, String[] segments, String[] params) {
+		this.version = version;
+		this.segments = segments;
+		this.params = params;
+	}
+
+	/**
+	 * 获取按表别名关联的数据范围过滤条件，各角色数据范围之间为或者关系
+	 * @param user 当前用户对象
+	 * @param officeAlias 机构表别名，多个用“,”逗号隔开。
+	 * @param userAlias 用户表别名，多个用“,”逗号隔开，传递空，忽略此参数
+	 * @return
+	 */
+	public static DataScope getAliasScope(User user, String officeAlias, String userAlias) {
+		if (user.isAdmin()){
+			return EMPTY;
+		}
+		String key = "alias|" + user.getId() + "|" + officeAlias + "|" + userAlias;
+		CurrentUserContext context = getContext(user);
+		DataScope dataScope = context != null ? context.getDataScope(key) : null;
+		if (dataScope != null){
+			return dataScope;
+		}
+		String version = getVersion(user);
+		dataScope = cache.get(key);
+		if (dataScope == null || !version.equals(dataScope.version)){
+			dataScope = compileAliasScope(user, officeAlias, userAlias, version);
+			putCache(key, dataScope);
+		}
+		if (context != null){
+			context.putDataScope(key, dataScope);
+		}
+		return dataScope;
+	}
+
+	/**
+	 * 获取按exists方法关联的数据范围过滤条件，取用户最大的数据范围（符合业务表字段不同的时候使用）
+	 * @param user 当前用户对象
+	 * @param officeWheres office表条件，组成：部门表字段=业务表的部门字段
+	 * @param userWheres user表条件，组成：用户表字段=业务表的用户字段
+	 * @return
+	 */
+	public static DataScope getExistsScope(User user, String officeWheres, String userWheres) {
+		if (user.isAdmin()){
+			return EMPTY;
+		}
+		String key = "exists|" + user.getId() + "|" + officeWheres + "|" + userWheres;
+		CurrentUserContext context = getContext(user);
+		DataScope dataScope = context != null ? context.getDataScope(key) : null;
+		if (dataScope != null){
+			return dataScope;
+		}
+		String version = getVersion(user);
+		dataScope = cache.get(key);
+		if (dataScope == null || !version.equals(dataScope.version)){
+			dataScope = compileExistsScope(user, officeWheres, userWheres, version);
+			putCache(key, dataScope);
+		}
+		if (context != null){
+			context.putDataScope(key, dataScope);
+		}
+		return dataScope;
+	}
+
+	/**
+	 * 将过滤条件及参数值设置到自定义SQL对象，在xml中使用 ${sqlMap.键} 调用
+	 * @param sqlMap 实体的自定义SQL对象
+	 * @param sqlMapKey sqlMap的键值
+	 */
+	public void apply(Map<String, String> sqlMap, String sqlMapKey) {
+		sqlMap.put(sqlMapKey, toSql(sqlMapKey));
+		for (int i = 0; i < params.length; i++){
+			sqlMap.put(sqlMapKey + "_" + i, params[i]);
+		}
+	}
+
+	/**
+	 * 获取带参数引用的SQL片段，参数值需通过apply设置到同一个sqlMap中
+	 * @param sqlMapKey sqlMap的键值
+	 * @return
+	 */
+	public String toSql(String sqlMapKey) {
+		StringBuilder sql = new StringBuilder(segments[0]);
+		for (int i = 0; i < params.length; i++){
+			sql.append("#{sqlMap.").append(sqlMapKey).append("_").append(i).append("}").append(segments[i + 1]);
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * 获取参数值直接拼接到SQL中的片段（兼容直接使用SQL字符串的调用）
+	 * @return
+	 */
+	public String toLiteralSql() {
+		StringBuilder sql = new StringBuilder(segments[0]);
+		for (int i = 0; i < params.length; i++){
+			sql.append("'").append(StringUtils.replace(params[i], "'", "''")).append("'").append(segments[i + 1]);
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * 获取参数值
+	 * @return
+	 */
+	public String[] getParams() {
+		return params.clone();
+	}
+
+	/**
+	 * 编译按表别名关联的过滤条件
+	 */
+	private static DataScope compileAliasScope(User user, String officeAlias, String userAlias, String version) {
+		Builder sql = new Builder();
+
+		// 进行权限过滤，多个角色权限范围之间为或者关系。
+		List<String> dataScope = Lists.newArrayList();
+		boolean isDataScopeAll = false;
+		for (Role r : user.getRoleList()){
+			for (String oa : StringUtils.split(officeAlias, ",")){
+				if (!dataScope.contains(r.getDataScope()) && StringUtils.isNotBlank(oa)){
+					if (Role.DATA_SCOPE_ALL.equals(r.getDataScope())){
+						isDataScopeAll = true;
+					}
+					else if (Role.DATA_SCOPE_COMPANY_AND_CHILD.equals(r.getDataScope())){
+						if (Global.isOfficeClosureEnabled()){
+							sql.or().append(oa + ".id IN (SELECT descendant_id FROM sys_office_closure WHERE ancestor_id = ").param(user.getCompany().getId()).append(")");
+						}else{
+							sql.or().append(oa + ".id = ").param(user.getCompany().getId());
+							sql.or().append(oa + ".parent_ids LIKE ").param(user.getCompany().getParentIds() + user.getCompany().getId() + ",%");
+						}
+					}
+					else if (Role.DATA_SCOPE_COMPANY.equals(r.getDataScope())){
+						sql.or().append(oa + ".id = ").param(user.getCompany().getId());
+						// 包括本公司下的部门 （type=1:公司；type=2：部门）
+						sql.or().append("(" + oa + ".parent_id = ").param(user.getCompany().getId()).append(" AND " + oa + ".type = '2')");
+					}
+					else if (Role.DATA_SCOPE_OFFICE_AND_CHILD.equals(r.getDataScope())){
+						if (Global.isOfficeClosureEnabled()){
+							sql.or().append(oa + ".id IN (SELECT descendant_id FROM sys_office_closure WHERE ancestor_id = ").param(user.getOffice().getId()).append(")");
+						}else{
+							sql.or().append(oa + ".id = ").param(user.getOffice().getId());
+							sql.or().append(oa + ".parent_ids LIKE ").param(user.getOffice().getParentIds() + user.getOffice().getId() + ",%");
+						}
+					}
+					else if (Role.DATA_SCOPE_OFFICE.equals(r.getDataScope())){
+						sql.or().append(oa + ".id = ").param(user.getOffice().getId());
+					}
+					else if (Role.DATA_SCOPE_CUSTOM.equals(r.getDataScope())){
+						sql.or().append("EXISTS (SELECT 1 FROM sys_role_office WHERE role_id = ").param(r.getId());
+						sql.append(" AND office_id = " + oa + ".id)");
+					}
+					//else if (Role.DATA_SCOPE_SELF.equals(r.getDataScope())){
+					dataScope.add(r.getDataScope());
+				}
+			}
+		}
+		// 如果包含全部权限，则去掉之前添加的所有条件
+		if (isDataScopeAll){
+			return new DataScope(version, EMPTY.segments, EMPTY.params);
+		}
+		// 如果没有全部数据权限，并设置了用户别名，则当前权限为本人；如果未设置别名，当前无权限为已植入权限
+		if (StringUtils.isNotBlank(userAlias)){
+			for (String ua : StringUtils.split(userAlias, ",")){
+				sql.or().append(ua + ".id = ").param(user.getId());
+			}
+		}else {
+			for (String oa : StringUtils.split(officeAlias, ",")){
+				sql.or().append(oa + ".id IS NULL");
+			}
+		}
+		if (sql.isEmpty()){
+			return new DataScope(version, EMPTY.segments, EMPTY.params);
+		}
+		return sql.build(version, " AND (", ")");
+	}
+
+	/**
+	 * 追加机构及其所有下级机构的条件，启用闭包表时通过闭包表索引关联，否则使用parent_ids LIKE
+	 */
+	private static void appendSubtree(Builder sql, Office office) {
+		if (Global.isOfficeClosureEnabled()){
+			sql.append(" AND id IN (SELECT descendant_id FROM sys_office_closure WHERE ancestor_id = ").param(office.getId()).append(")");
+		}else{
+			sql.append(" AND (id = ").param(office.getId());
+			sql.append(" OR parent_ids LIKE ").param(office.getParentIds() + office.getId() + ",%").append(")");
+		}
+	}
+
+	/**
+	 * 编译按exists方法关联的过滤条件
+	 */
+	private static DataScope compileExistsScope(User user, String officeWheres, String userWheres, String version) {
+		// 数据范围（1：所有数据；2：所在公司及以下数据；3：所在公司数据；4：所在部门及以下数据；5：所在部门数据；8：仅本人数据；9：按明细设置）
+		Builder sql = new Builder();
+
+		// 获取到最大的数据权限范围
+		String roleId = "";
+		int dataScopeInteger = 8;
+		for (Role r : user.getRoleList()){
+			int ds = Integer.valueOf(r.getDataScope());
+			if (ds == 9){
+				roleId = r.getId();
+				dataScopeInteger = ds;
+				break;
+			}else if (ds < dataScopeInteger){
+				roleId = r.getId();
+				dataScopeInteger = ds;
+			}
+		}
+		String dataScopeString = String.valueOf(dataScopeInteger);
+
+		// 生成部门权限SQL语句
+		for (String where : StringUtils.split(officeWheres, ",")){
+			if (Role.DATA_SCOPE_COMPANY_AND_CHILD.equals(dataScopeString)){
+				// 包括本公司下的部门 （type=1:公司；type=2：部门）
+				sql.append(" AND EXISTS (SELECT 1 FROM SYS_OFFICE");
+				sql.append(" WHERE type='2'");
+				appendSubtree(sql, user.getCompany());
+				sql.append(" AND " + where + ")");
+			}
+			else if (Role.DATA_SCOPE_COMPANY.equals(dataScopeString)){
+				sql.append(" AND EXISTS (SELECT 1 FROM SYS_OFFICE");
+				sql.append(" WHERE type='2'");
+				sql.append(" AND id = ").param(user.getCompany().getId());
+				sql.append(" AND " + where + ")");
+			}
+			else if (Role.DATA_SCOPE_OFFICE_AND_CHILD.equals(dataScopeString)){
+				sql.append(" AND EXISTS (SELECT 1 FROM SYS_OFFICE");
+				sql.append(" WHERE 1=1");
+				appendSubtree(sql, user.getOffice());
+				sql.append(" AND " + where + ")");
+			}
+			else if (Role.DATA_SCOPE_OFFICE.equals(dataScopeString)){
+				sql.append(" AND EXISTS (SELECT 1 FROM SYS_OFFICE");
+				sql.append(" WHERE id = ").param(user.getOffice().getId());
+				sql.append(" AND " + where + ")");
+			}
+			else if (Role.DATA_SCOPE_CUSTOM.equals(dataScopeString)){
+				sql.append(" AND EXISTS (SELECT 1 FROM sys_role_office ro123456, sys_office o123456");
+				sql.append(" WHERE ro123456.office_id = o123456.id");
+				sql.append(" AND ro123456.role_id = ").param(roleId);
+				sql.append(" AND o123456." + where + ")");
+			}
+		}
+		// 生成个人权限SQL语句
+		for (String where : StringUtils.split(userWheres, ",")){
+			if (Role.DATA_SCOPE_SELF.equals(dataScopeString)){
+				sql.append(" AND EXISTS (SELECT 1 FROM sys_user");
+				sql.append(" WHERE id = ").param(user.getId());
+				sql.append(" AND " + where + ")");
+			}
+		}
+		return sql.build(version, "", "");
+	}
+
+	/**
+	 * 获取请求上下文，用户为当前用户时，同一请求内直接使用已获取的数据范围，不再计算版本
+	 */
+	private static CurrentUserContext getContext(User user) {
+		CurrentUserContext context = CurrentUserContext.get();
+		return context != null && context.getUser() == user ? context : null;
+	}
+
+	/**
+	 * 用户数据范围版本：角色及其数据范围、公司、部门发生变化，或切换机构闭包表（可热加载）时版本随之变化
+	 */
+	private static String getVersion(User user) {
+		StringBuilder version = new StringBuilder();
+		version.append(Global.isOfficeClosureEnabled()).append("|");
+		appendOffice(version, user.getCompany());
+		appendOffice(version, user.getOffice());
+		for (Role r : user.getRoleList()){
+			version.append(r.getId()).append(":").append(r.getDataScope()).append(",");
+		}
+		return version.toString();
+	}
+
+	private static void appendOffice(StringBuilder version, Office office) {
+		if (office != null){
+			version.append(office.getId()).append(":").append(office.getParentIds());
+		}
+		version.append("|");
+	}
+
+	/**
+	 * 放入缓存，超过最大数量时由缓存淘汰最近最少使用的条目
+	 */
+	private static void putCache(String key, DataScope dataScope) {
+		cache.put(key, dataScope);
+	}
+
+	/**
+	 * SQL片段构建器，参数值与SQL文本分开保存
+	 */
+	private static class Builder {
+
+		private final List<String> segments = Lists.newArrayList();
+		private final List<String> params = Lists.newArrayList();
+		private StringBuilder segment = new StringBuilder();
+		private boolean empty = true;
+
+		/**
+		 * 开始一个“或者”条件
+		 */
+		private Builder or() {
+			if (!empty){
+				segment.append(" OR ");
+			}
+			empty = false;
+			return this;
+		}
+
+		private Builder append(String sql) {
+			segment.append(sql);
+			empty = false;
+			return this;
+		}
+
+		private Builder param(String value) {
+			segments.add(segment.toString());
+			params.add(value);
+			segment = new StringBuilder();
+			return this;
+		}
+
+		private boolean isEmpty() {
+			return empty;
+		}
+
+		private DataScope build(String version, String prefix, String suffix) {
+			List<String> list = Lists.newArrayList(segments);
+			list.add(segment.toString());
+			list.set(0, prefix + list.get(0));
+			list.set(list.size() - 1, list.get(list.size() - 1) + suffix);
+			return new DataScope(version, list.toArray(new String[list.size()]), params.toArray(new String[params.size()]));
+		}
+
+	}
+
+}
@@ -46,6 +46,7 @@ public abstract class TreeService<D extends TreeDao<T>, T extends TreeEntity<T>>
 		
 		// 获取修改前的parentIds，用于更新子节点的parentIds
 		String oldParentIds = entity.getParentIds(); 
+		boolean isNewRecord = entity.getIsNewRecord();
 		
 		// 设置新的父节点串
 		entity.setParentIds(entity.getParent().getParentIds()+entity.getParent().getId()+",");
@@ -53,29 +54,33 @@ public abstract class TreeService<D extends TreeDao<T>, T extends TreeEntity<T>>
 		// 保存或更新实体
 		super.save(entity);
 		
-		// 更新子节点 parentIds
-		T o = null;
-		try {
-			o = entityClass.newInstance();
-		} catch (Exception e) {
-			throw new ServiceException(e);
-		}
-		o.setParentIds("%,"+entity.getId()+",%");
-		List<T> list = dao.findByParentIdsLike(o);
-		for (T e : list){
-			if (e.getParentIds() != null && oldParentIds != null){
-				e.setParentIds(e.getParentIds().replace(oldParentIds, entity.getParentIds()));
-				preUpdateChild(entity, e);
-				dao.updateParentIds(e);
-			}
+		// 维护闭包表等附加的树结构
+		saveClosure(entity, isNewRecord, oldParentIds);
+		
+		// 更新子节点 parentIds：以一条语句替换整个子树parentIds中的原前缀
+		if (!isNewRecord && oldParentIds != null && !entity.getParentIds().equals(oldParentIds)){
+			entity.getSqlMap().put("oldParentIds", oldParentIds);
+			dao.updateChildParentIds(entity);
 		}
 		
 	}
 	
+	/**
+	 * 预留接口，保存节点后调用，用于维护闭包表等附加的树结构
+	 * @param entity 已保存的节点
+	 * @param isNewRecord 是否新节点
+	 * @param oldParentIds 修改前的parentIds
+	 */
+	protected void saveClosure(T entity, boolean isNewRecord, String oldParentIds) {
+		
+	}
+	
 	/**
 	 * 预留接口，用户更新子节前调用
 	 * @param childEntity
+	 * @deprecated 子节点的parentIds改为通过 TreeDao.updateChildParentIds 批量更新，不再逐条调用
 	 */
+	@Deprecated
 	protected void preUpdateChild(T entity, T childEntity) {
 		
 	}
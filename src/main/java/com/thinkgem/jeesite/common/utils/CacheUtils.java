@@ -3,12 +3,23 @@
  */
 package com.thinkgem.jeesite.common.utils;
 
+import java.io.Serializable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Element;
 
+import com.google.common.collect.Sets;
+import com.thinkgem.jeesite.common.config.Global;
+
 /**
  * Cache工具类
+ * 一级缓存为本节点的Ehcache（堆内有界，见ehcache配置），开启cache.redis.enabled后以Redis为二级缓存：
+ * 本地未命中时读取Redis并回填本地；写入和移除时同步Redis，并通过Redis发布订阅通知其它节点清除本地缓存。
+ * 读取Redis期间收到失效通知时不回填本地，订阅中断（期间可能丢失通知）时清除本地缓存。
  * @author ThinkGem
  * @version 2013-5-29
  */
@@ -18,6 +29,57 @@ public class CacheUtils {
 
 	private static final String SYS_CACHE = "sysCache";
 
+	/**
+	 * 是否启用Redis二级缓存
+	 */
+	private static final boolean REDIS_ENABLED = Global.TRUE.equals(Global.getConfig("cache.redis.enabled"));
+
+	/**
+	 * Redis二级缓存超时时间（秒），0为不超时
+	 */
+	private static final int REDIS_EXPIRE_SECONDS = StringUtils.toInteger(Global.getConfig("cache.redis.expireSeconds"));
+
+	private static final String REDIS_KEY_PREFIX = Global.getConfig("redis.keyPrefix") + "_cache_";
+	private static final String INVALIDATE_CHANNEL = Global.getConfig("redis.keyPrefix") + "_cache_invalidate";
+
+	/**
+	 * 失效版本号，本节点写入、移除或收到失效通知时递增；读取Redis前后版本号不同时不回填本地缓存
+	 */
+	private static final AtomicLong invalidateVersion = new AtomicLong();
+
+	/**
+	 * 通过CacheUtils使用过的缓存名称，订阅中断时清除
+	 */
+	private static final Set<String> cacheNames = Sets.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	static {
+		if (REDIS_ENABLED){
+			new JedisInvalidateSubscriber(INVALIDATE_CHANNEL) {
+				@Override
+				protected void onInvalidate(String key) {
+					invalidateVersion.incrementAndGet();
+					// 消息内容：缓存名称:键
+					String[] ss = StringUtils.splitPreserveAllTokens(key, ":", 2);
+					Cache cache = ss != null && ss.length == 2 ? cacheManager.getCache(ss[0]) : null;
+					if (cache != null){
+						cache.remove(ss[1]);
+					}
+				}
+				@Override
+				protected void onDisconnect() {
+					// 订阅中断期间可能丢失失效通知，本地缓存不过期，需全部清除
+					invalidateVersion.incrementAndGet();
+					for (String cacheName : cacheNames){
+						Cache cache = cacheManager.getCache(cacheName);
+						if (cache != null){
+							cache.removeAll();
+						}
+					}
+				}
+			}.start(CacheUtils.class.getSimpleName() + "-Subscriber");
+		}
+	}
+
 	/**
 	 * 获取SYS_CACHE缓存
 	 * @param key
@@ -52,8 +114,21 @@ public class CacheUtils {
 	 * @return
 	 */
 	public static Object get(String cacheName, String key) {
-		Element element = getCache(cacheName).get(key);
-		return element==null?null:element.getObjectValue();
+		Cache cache = getCache(cacheName);
+		Element element = cache.get(key);
+		if (element != null){
+			return element.getObjectValue();
+		}
+		if (REDIS_ENABLED){
+			long version = invalidateVersion.get();
+			Object value = JedisUtils.getObject(getRedisKey(cacheName, key));
+			if (value != null && version == invalidateVersion.get()){
+				// 读取期间有写入或失效通知时不回填，避免旧值覆盖本地缓存
+				cache.putIfAbsent(new Element(key, value));
+			}
+			return value;
+		}
+		return null;
 	}
 
 	/**
@@ -64,7 +139,16 @@ public class CacheUtils {
 	 */
 	public static void put(String cacheName, String key, Object value) {
 		Element element = new Element(key, value);
+		invalidateVersion.incrementAndGet();
 		getCache(cacheName).put(element);
+		if (REDIS_ENABLED){
+			if (value instanceof Serializable){
+				JedisUtils.setObject(getRedisKey(cacheName, key), value, REDIS_EXPIRE_SECONDS);
+			}else{
+				JedisUtils.delObject(getRedisKey(cacheName, key));
+			}
+			publishInvalidate(cacheName, key);
+		}
 	}
 
 	/**
@@ -73,7 +157,12 @@ public class CacheUtils {
 	 * @param key
 	 */
 	public static void remove(String cacheName, String key) {
+		invalidateVersion.incrementAndGet();
 		getCache(cacheName).remove(key);
+		if (REDIS_ENABLED){
+			JedisUtils.delObject(getRedisKey(cacheName, key));
+			publishInvalidate(cacheName, key);
+		}
 	}
 	
 	/**
@@ -88,6 +177,7 @@ public class CacheUtils {
 			cache = cacheManager.getCache(cacheName);
 			cache.getCacheConfiguration().setEternal(true);
 		}
+		cacheNames.add(cacheName);
 		return cache;
 	}
 
@@ -95,4 +185,15 @@ public class CacheUtils {
 		return cacheManager;
 	}
 	
+	private static String getRedisKey(String cacheName, String key){
+		return REDIS_KEY_PREFIX + cacheName + ":" + key;
+	}
+
+	/**
+	 * 通知其它节点清除本地缓存，消息格式：节点标识:缓存名称:键
+	 */
+	private static void publishInvalidate(String cacheName, String key){
+		JedisUtils.publish(INVALIDATE_CHANNEL, JedisInvalidateSubscriber.getMessage(cacheName + ":" + key));
+	}
+
 }
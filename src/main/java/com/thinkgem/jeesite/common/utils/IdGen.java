@@ -5,29 +5,115 @@ package com.thinkgem.jeesite.common.utils;
 
 import java.io.Serializable;
 import java.security.SecureRandom;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.shiro.session.Session;
 import org.apache.shiro.session.mgt.eis.SessionIdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import com.google.common.collect.Sets;
+import com.thinkgem.jeesite.common.config.ConfigChangeListener;
+import com.thinkgem.jeesite.common.config.Global;
+
 /**
  * 封装各种生成唯一性ID算法的工具类.
+ * 实体主键通过nextId()生成，策略由 id.generator 配置：uuid（默认）、snowflake（时间有序的64位整数）、
+ * snowflake62（snowflake的定长Base62形式）、ulid（单调递增ULID）；时间有序的ID插入时集中在索引末端，减少B-tree页分裂。
+ * snowflake、snowflake62策略必须配置集群内唯一的 id.workerId，未配置时启动失败。
+ * 会话ID由 session.idGenerator 配置，只支持不可预测的 uuid（默认）或 ulid（非单调）。
  * @author ThinkGem
  * @version 2013-01-15
  */
 @Service
 @Lazy(false)
-public class IdGen implements SessionIdGenerator {
+public class IdGen implements SessionIdGenerator, InitializingBean {
+
+  private static Logger logger = LoggerFactory.getLogger(IdGen.class);
+
+  public static final String TYPE_UUID = "uuid";
+  public static final String TYPE_SNOWFLAKE = "snowflake";
+  public static final String TYPE_SNOWFLAKE62 = "snowflake62";
+  public static final String TYPE_ULID = "ulid";
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
 
   private static SecureRandom random = new SecureRandom();
 
+  private static volatile IdGenerator idGenerator;
+  private static volatile IdGenerator sessionIdGenerator;
+
+  static {
+    // 会话ID策略可随配置切换；实体主键策略切换可能产生重复的snowflake，需重启生效
+    Global.addConfigChangeListener(new ConfigChangeListener() {
+      @Override
+      public void onChange(Set<String> changedKeys) {
+        if (changedKeys.contains("session.idGenerator")) {
+          sessionIdGenerator = null;
+        }
+        if (changedKeys.contains("id.generator") || changedKeys.contains("id.workerId")) {
+          logger.warn("id.generator/id.workerId changed, restart to take effect.");
+        }
+      }
+    });
+  }
+
+  /**
+   * 启动时创建实体主键生成策略，配置错误（如snowflake未设置id.workerId）时启动失败.
+   */
+  @Override
+  public void afterPropertiesSet() {
+    if (idGenerator == null) {
+      idGenerator = newIdGenerator(Global.getConfig("id.generator"), true);
+    }
+  }
+
   /**
    * 封装JDK自带的UUID, 通过Random数字生成, 中间无-分割.
    */
   public static String uuid() {
-    return UUID.randomUUID().toString().replaceAll("-", "");
+    UUID uuid = UUID.randomUUID();
+    char[] chars = new char[32];
+    toHex(uuid.getMostSignificantBits(), chars, 0);
+    toHex(uuid.getLeastSignificantBits(), chars, 16);
+    return new String(chars);
+  }
+
+  /**
+   * 按 id.generator 配置的策略生成实体主键.
+   */
+  public static String nextId() {
+    IdGenerator generator = idGenerator;
+    if (generator == null) {
+      generator = newIdGenerator(Global.getConfig("id.generator"), true);
+      idGenerator = generator;
+    }
+    return generator.nextId();
+  }
+
+  /**
+   * 创建ID生成策略.
+   * @param type 策略类型：uuid、snowflake、snowflake62、ulid，为空时使用uuid
+   * @param monotonic ulid是否单调递增（同一毫秒内随机部分加1）
+   */
+  public static IdGenerator newIdGenerator(String type, boolean monotonic) {
+    if (TYPE_SNOWFLAKE.equals(type)) {
+      return new Snowflake(getWorkerId(), false);
+    } else if (TYPE_SNOWFLAKE62.equals(type)) {
+      return new Snowflake(getWorkerId(), true);
+    } else if (TYPE_ULID.equals(type)) {
+      return new Ulid(monotonic);
+    } else if (StringUtils.isNotBlank(type) && !TYPE_UUID.equals(type)) {
+      logger.warn("Unknown id generator [{}], use uuid.", type);
+    }
+    return new Uuid();
   }
 
   /**
@@ -48,14 +134,225 @@ public class IdGen implements SessionIdGenerator {
 
   @Override
   public Serializable generateId(final Session session) {
-    return IdGen.uuid();
+    IdGenerator generator = sessionIdGenerator;
+    if (generator == null) {
+      String type = Global.getConfig("session.idGenerator");
+      if (TYPE_SNOWFLAKE.equals(type) || TYPE_SNOWFLAKE62.equals(type)) {
+        // 时间有序的整数ID可被推测，不能作为会话ID
+        logger.warn("Session id generator [{}] is predictable, use uuid.", type);
+        type = TYPE_UUID;
+      }
+      generator = newIdGenerator(type, false);
+      sessionIdGenerator = generator;
+    }
+    return generator.nextId();
+  }
+
+  /**
+   * 工作节点编号（id.workerId，0~1023），必须配置；由进程名等计算的编号在集群中可能重复，导致生成重复的ID.
+   */
+  private static long getWorkerId() {
+    String workerId = Global.getConfig("id.workerId");
+    if (StringUtils.isBlank(workerId)) {
+      throw new IllegalStateException("id.workerId (0~" + Snowflake.MAX_WORKER_ID
+          + ") must be set and unique in the cluster when id.generator is snowflake or snowflake62.");
+    }
+    try {
+      return Long.parseLong(workerId.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException("Invalid id.workerId: " + workerId, e);
+    }
+  }
+
+  private static void toHex(long value, char[] chars, int offset) {
+    for (int i = 15; i >= 0; i--) {
+      chars[offset + i] = HEX[(int) (value & 0xF)];
+      value >>>= 4;
+    }
+  }
+
+  /**
+   * UUID（32位十六进制）.
+   */
+  public static class Uuid implements IdGenerator {
+
+    @Override
+    public String nextId() {
+      return uuid();
+    }
+
+  }
+
+  /**
+   * 时间有序的64位ID：41位毫秒时间（自2014-11-01起）+ 10位工作节点 + 12位序号.
+   * 时间与序号保存在一个AtomicLong中，通过CAS无锁递增；同一毫秒内序号用尽或系统时钟回拨时，借用后续毫秒继续递增，保证单调不重复.
+   * 字符串形式为19位定长十进制（左补0）或11位定长Base62（需要区分大小写的排序规则，如MySQL的utf8_bin），按字符串排序与生成顺序一致.
+   */
+  public static class Snowflake implements IdGenerator {
+
+    public static final long EPOCH = 1414800000000L;
+
+    private static final int WORKER_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final long MAX_WORKER_ID = (1L << WORKER_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final char[] BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private final long workerId;
+    private final boolean base62;
+    private final AtomicLong state = new AtomicLong();
+
+    public Snowflake(long workerId, boolean base62) {
+      if (workerId < 0 || workerId > MAX_WORKER_ID) {
+        throw new IllegalArgumentException("workerId must be between 0 and " + MAX_WORKER_ID + ": " + workerId);
+      }
+      this.workerId = workerId;
+      this.base62 = base62;
+    }
+
+    /**
+     * 生成64位ID.
+     */
+    public long nextLong() {
+      long now = System.currentTimeMillis() - EPOCH;
+      for (;;) {
+        long current = state.get();
+        long next = (current >>> SEQUENCE_BITS) < now ? now << SEQUENCE_BITS : current + 1;
+        if (state.compareAndSet(current, next)) {
+          return (next >>> SEQUENCE_BITS) << (WORKER_BITS + SEQUENCE_BITS) | workerId << SEQUENCE_BITS
+              | (next & SEQUENCE_MASK);
+        }
+      }
+    }
+
+    @Override
+    public String nextId() {
+      long id = nextLong();
+      char[] chars;
+      if (base62) {
+        chars = new char[11];
+        for (int i = chars.length - 1; i >= 0; i--) {
+          chars[i] = BASE62[(int) (id % 62)];
+          id /= 62;
+        }
+      } else {
+        chars = new char[19];
+        for (int i = chars.length - 1; i >= 0; i--) {
+          chars[i] = (char) ('0' + id % 10);
+          id /= 10;
+        }
+      }
+      return new String(chars);
+    }
+
   }
 
-  public static void main(final String[] args) {
-    System.out.println(IdGen.uuid());
-    System.out.println(IdGen.uuid().length());
-    for (int i=0; i<1000; i++){
-      System.out.println(IdGen.randomLong() + "  " + IdGen.randomBase62(5));
+  /**
+   * ULID：48位毫秒时间 + 80位随机数，26位Crockford Base32编码，按字符串排序与时间顺序一致且不区分大小写.
+   * 单调模式下同一毫秒内随机部分加1（随机部分只在每毫秒首次生成时取自SecureRandom），保证同一进程内严格递增.
+   */
+  public static class Ulid implements IdGenerator {
+
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final boolean monotonic;
+    private long lastTime = -1;
+    private long lastHigh;
+    private long lastLow;
+
+    public Ulid(boolean monotonic) {
+      this.monotonic = monotonic;
+    }
+
+    @Override
+    public String nextId() {
+      long time = System.currentTimeMillis();
+      long high;
+      long low;
+      if (monotonic) {
+        synchronized (this) {
+          if (time <= lastTime) {
+            time = lastTime;
+            lastLow++;
+            if (lastLow == 0) {
+              lastHigh = (lastHigh + 1) & 0xFFFF;
+              if (lastHigh == 0) {
+                // 同一毫秒内随机部分溢出，借用下一毫秒
+                time = ++lastTime;
+                lastHigh = random.nextInt() & 0xFFFF;
+                lastLow = random.nextLong();
+              }
+            }
+          } else {
+            lastTime = time;
+            lastHigh = random.nextInt() & 0xFFFF;
+            lastLow = random.nextLong();
+          }
+          high = lastHigh;
+          low = lastLow;
+        }
+      } else {
+        high = random.nextInt() & 0xFFFF;
+        low = random.nextLong();
+      }
+      char[] chars = new char[26];
+      for (int i = 9; i >= 0; i--) {
+        chars[i] = CROCKFORD[(int) (time & 31)];
+        time >>>= 5;
+      }
+      for (int i = 25; i >= 10; i--) {
+        chars[i] = CROCKFORD[(int) (low & 31)];
+        low = (low >>> 5) | ((high & 31) << 59);
+        high >>>= 5;
+      }
+      return new String(chars);
+    }
+
+  }
+
+  /**
+   * 多线程吞吐量测试：各策略在 availableProcessors 个线程下生成ID的速度，并检查是否重复.
+   */
+  public static void main(final String[] args) throws Exception {
+    final int threads = Runtime.getRuntime().availableProcessors();
+    final int count = 200000;
+    IdGenerator[] generators = new IdGenerator[] { new Uuid(), new Snowflake(1, false), new Snowflake(1, true),
+        new Ulid(true) };
+    for (final IdGenerator generator : generators) {
+      System.out.println(generator.getClass().getSimpleName() + ": " + generator.nextId());
+      for (int round = 0; round < 3; round++) {
+        final boolean check = round == 0;
+        final Set<String> ids = check ? Sets.newSetFromMap(new ConcurrentHashMap<String, Boolean>()) : null;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch end = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+          new Thread() {
+            @Override
+            public void run() {
+              try {
+                start.await();
+                for (int i = 0; i < count; i++) {
+                  String id = generator.nextId();
+                  if (check && !ids.add(id)) {
+                    System.out.println("  duplicate: " + id);
+                  }
+                }
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              } finally {
+                end.countDown();
+              }
+            }
+          }.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        end.await();
+        long time = System.nanoTime() - begin;
+        System.out.println("  " + threads + " threads x " + count + (check ? " (unique check)" : "") + ": "
+            + (long) (threads * (double) count * 1000000000L / time) + " ids/s");
+      }
     }
   }
 
@@ -0,0 +1,19 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.utils;
+
+/**
+ * 唯一ID生成策略
+ * @see IdGen
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public interface IdGenerator {
+
+  /**
+   * 生成下一个ID
+   */
+  public String nextId();
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+/**
+ * 本地缓存失效通知订阅者（CacheUtils、JedisSessionDAO共用）.
+ * 消息格式为“节点标识:键”，通过getMessage生成；本节点发出的消息被忽略，其它节点的消息回调onInvalidate.
+ * 在后台线程中订阅，连接断开后回调onDisconnect（期间可能丢失消息，应清除本地缓存）并在5秒后重新订阅.
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public abstract class JedisInvalidateSubscriber extends JedisPubSub implements Runnable {
+
+	private static Logger logger = LoggerFactory.getLogger(JedisInvalidateSubscriber.class);
+
+	/**
+	 * 本节点标识
+	 */
+	private static final String NODE_ID = IdGen.uuid();
+
+	private final String channel;
+
+	public JedisInvalidateSubscriber(String channel) {
+		this.channel = channel;
+	}
+
+	/**
+	 * 生成失效消息
+	 * @param key 失效的键
+	 */
+	public static String getMessage(String key) {
+		return NODE_ID + ":" + key;
+	}
+
+	/**
+	 * 在后台守护线程中开始订阅
+	 * @param threadName 线程名称
+	 */
+	public void start(String threadName) {
+		Thread thread = new Thread(this, threadName);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * 收到其它节点的失效消息
+	 * @param key 失效的键
+	 */
+	protected abstract void onInvalidate(String key);
+
+	/**
+	 * 订阅连接断开（期间可能丢失失效消息）
+	 */
+	protected void onDisconnect() {
+	}
+
+	public String getChannel() {
+		return channel;
+	}
+
+	@Override
+	public void run() {
+		while (true){
+			Jedis jedis = null;
+			try {
+				jedis = JedisUtils.getResource();
+				jedis.subscribe(this, channel);
+			} catch (Exception e) {
+				logger.warn("subscribe {} error, retry after 5s.", channel, e);
+				JedisUtils.returnBrokenResource(jedis);
+				jedis = null;
+				onDisconnect();
+				Threads.sleep(5000);
+			} finally {
+				JedisUtils.returnResource(jedis);
+			}
+		}
+	}
+
+	@Override
+	public void onMessage(String channel, String message) {
+		String[] ss = StringUtils.splitPreserveAllTokens(message, ":", 2);
+		if (ss == null || ss.length != 2 || NODE_ID.equals(ss[0])){
+			return;
+		}
+		onInvalidate(ss[1]);
+	}
+
+	@Override
+	public void onPMessage(String pattern, String channel, String message) {
+	}
+
+	@Override
+	public void onSubscribe(String channel, int subscribedChannels) {
+		logger.debug("subscribe {}", channel);
+	}
+
+	@Override
+	public void onUnsubscribe(String channel, int subscribedChannels) {
+	}
+
+	@Override
+	public void onPUnsubscribe(String pattern, int subscribedChannels) {
+	}
+
+	@Override
+	public void onPSubscribe(String pattern, int subscribedChannels) {
+	}
+
+}
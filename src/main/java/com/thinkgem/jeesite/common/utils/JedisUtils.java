@@ -14,6 +14,9 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.thinkgem.jeesite.common.config.Global;
+import com.thinkgem.jeesite.common.serializer.BinarySerializer;
+import com.thinkgem.jeesite.common.serializer.JdkSerializer;
+import com.thinkgem.jeesite.common.serializer.Serializer;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
@@ -33,6 +36,12 @@ public class JedisUtils {
 
 	public static final String KEY_PREFIX = Global.getConfig("redis.keyPrefix");
 	
+	/**
+	 * 对象序列化方式（redis.serializer）：binary 紧凑二进制格式（默认）；jdk Java序列化。两种方式均可读取对方写入的数据。
+	 */
+	private static Serializer serializer = "jdk".equals(Global.getConfig("redis.serializer")) ? new JdkSerializer()
+			: new BinarySerializer(StringUtils.toInteger(Global.getConfig("redis.compressThreshold")));
+	
 	/**
 	 * 获取缓存
 	 * @param key 键
@@ -762,6 +771,27 @@ public class JedisUtils {
 		return result;
 	}
 
+	/**
+	 * 发布消息
+	 * @param channel 频道
+	 * @param message 消息
+	 * @return 收到消息的订阅者数量
+	 */
+	public static long publish(String channel, String message) {
+		long result = 0;
+		Jedis jedis = null;
+		try {
+			jedis = getResource();
+			result = jedis.publish(channel, message);
+			logger.debug("publish {} {}", channel, message);
+		} catch (Exception e) {
+			logger.warn("publish {} {}", channel, message, e);
+		} finally {
+			returnResource(jedis);
+		}
+		return result;
+	}
+
 	/**
 	 * 获取资源
 	 * @return
@@ -821,7 +851,7 @@ public class JedisUtils {
 	 * @return
 	 */
 	public static byte[] toBytes(Object object){
-    	return ObjectUtils.serialize(object);
+    	return serializer.serialize(object);
 	}
 
 	/**
@@ -830,7 +860,15 @@ public class JedisUtils {
 	 * @return
 	 */
 	public static Object toObject(byte[] bytes){
-		return ObjectUtils.unserialize(bytes);
+		return serializer.deserialize(bytes);
+	}
+
+	/**
+	 * 获取对象序列化实现
+	 * @return
+	 */
+	public static Serializer getSerializer(){
+		return serializer;
 	}
 
 }
@@ -9,6 +9,8 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
@@ -16,9 +18,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 
+import com.google.common.cache.CacheBuilder;
+
 /**
  * 反射工具类.
  * 提供调用getter/setter方法, 访问私有变量, 调用私有方法, 获取泛型类型Class, 被AOP过的真实类等工具函数.
+ * Field/Method查找结果（包括未找到）按类型缓存.
  * @author calvin
  * @version 2013-01-15
  */
@@ -33,6 +38,20 @@ public class Reflections {
 	
 	private static Logger logger = LoggerFactory.getLogger(Reflections.class);
 
+	/**
+	 * 查找结果为空的缓存标记
+	 */
+	private static final Object NOT_FOUND = new Object();
+
+	/**
+	 * 已解析的Field/Method缓存（类型 -> 名称或签名 -> 已设置为可访问的Field/Method），未找到的结果同样缓存，
+	 * 避免每次调用都逐级向上调用getDeclaredField/getDeclaredMethod(s)。
+	 * 类型为弱引用、缓存内容为软引用（Field/Method引用其所属的类），应用重新部署后不会因缓存而无法卸载原类加载器
+	 */
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> fieldCache = newClassCache();
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> methodCache = newClassCache();
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> methodByNameCache = newClassCache();
+
 	/**
 	 * 调用Getter方法.
 	 * 支持多级，如：对象名.对象名.方法
@@ -145,17 +164,25 @@ public class Reflections {
 	public static Field getAccessibleField(final Object obj, final String fieldName) {
 		Validate.notNull(obj, "object can't be null");
 		Validate.notBlank(fieldName, "fieldName can't be blank");
+		ConcurrentMap<String, Object> cache = getClassCache(fieldCache, obj.getClass());
+		Object cached = cache.get(fieldName);
+		if (cached != null) {
+			return cached != NOT_FOUND ? (Field) cached : null;
+		}
+		Field result = null;
 		for (Class<?> superClass = obj.getClass(); superClass != Object.class; superClass = superClass.getSuperclass()) {
 			try {
 				Field field = superClass.getDeclaredField(fieldName);
 				makeAccessible(field);
-				return field;
+				result = field;
+				break;
 			} catch (NoSuchFieldException e) {//NOSONAR
 				// Field不在当前类定义,继续向上转型
 				continue;// new add
 			}
 		}
-		return null;
+		cache.putIfAbsent(fieldName, result != null ? result : NOT_FOUND);
+		return result;
 	}
 
 	/**
@@ -170,17 +197,26 @@ public class Reflections {
 		Validate.notNull(obj, "object can't be null");
 		Validate.notBlank(methodName, "methodName can't be blank");
 
+		ConcurrentMap<String, Object> cache = getClassCache(methodCache, obj.getClass());
+		String key = getMethodKey(methodName, parameterTypes);
+		Object cached = cache.get(key);
+		if (cached != null) {
+			return cached != NOT_FOUND ? (Method) cached : null;
+		}
+		Method result = null;
 		for (Class<?> searchType = obj.getClass(); searchType != Object.class; searchType = searchType.getSuperclass()) {
 			try {
 				Method method = searchType.getDeclaredMethod(methodName, parameterTypes);
 				makeAccessible(method);
-				return method;
+				result = method;
+				break;
 			} catch (NoSuchMethodException e) {
 				// Method不在当前类定义,继续向上转型
 				continue;// new add
 			}
 		}
-		return null;
+		cache.putIfAbsent(key, result != null ? result : NOT_FOUND);
+		return result;
 	}
 
 	/**
@@ -194,16 +230,65 @@ public class Reflections {
 		Validate.notNull(obj, "object can't be null");
 		Validate.notBlank(methodName, "methodName can't be blank");
 
+		ConcurrentMap<String, Object> cache = getClassCache(methodByNameCache, obj.getClass());
+		Object cached = cache.get(methodName);
+		if (cached != null) {
+			return cached != NOT_FOUND ? (Method) cached : null;
+		}
+		Method result = null;
+		search:
 		for (Class<?> searchType = obj.getClass(); searchType != Object.class; searchType = searchType.getSuperclass()) {
 			Method[] methods = searchType.getDeclaredMethods();
 			for (Method method : methods) {
 				if (method.getName().equals(methodName)) {
 					makeAccessible(method);
-					return method;
+					result = method;
+					break search;
+				}
+			}
+		}
+		cache.putIfAbsent(methodName, result != null ? result : NOT_FOUND);
+		return result;
+	}
+
+	/**
+	 * 获取类型对应的Field/Method缓存
+	 */
+	private static ConcurrentMap<String, Object> getClassCache(ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> caches,
+			Class<?> clazz) {
+		ConcurrentMap<String, Object> cache = caches.get(clazz);
+		if (cache == null) {
+			cache = new ConcurrentHashMap<String, Object>();
+			ConcurrentMap<String, Object> existing = caches.putIfAbsent(clazz, cache);
+			if (existing != null) {
+				cache = existing;
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * 创建类型缓存：类型为弱引用（按==比较），缓存内容为软引用
+	 */
+	private static ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> newClassCache() {
+		return CacheBuilder.newBuilder().weakKeys().softValues()
+				.<Class<?>, ConcurrentMap<String, Object>>build().asMap();
+	}
+
+	/**
+	 * 方法缓存键：方法名(参数类型,...)
+	 */
+	private static String getMethodKey(String methodName, Class<?>... parameterTypes) {
+		StringBuilder sb = new StringBuilder(methodName).append('(');
+		if (parameterTypes != null) {
+			for (int i = 0; i < parameterTypes.length; i++) {
+				if (i > 0) {
+					sb.append(',');
 				}
+				sb.append(parameterTypes[i] != null ? parameterTypes[i].getName() : "null");
 			}
 		}
-		return null;
+		return sb.append(')').toString();
 	}
 
 	/**
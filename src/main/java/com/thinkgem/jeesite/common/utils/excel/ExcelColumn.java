@@ -0,0 +1,346 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.utils.excel;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+import com.google.common.collect.Lists;
+import com.thinkgem.jeesite.common.utils.Reflections;
+import com.thinkgem.jeesite.common.utils.excel.annotation.ExcelField;
+
+/**
+ * Excel列元数据：ExcelField注解、取值/设值方法链及类型转换方法，在首次使用时解析，按（类型、导入导出类型、分组）缓存。
+ * 每个单元格直接调用已解析的Method，不再按名称查找方法；无法静态解析的属性（如返回类型为泛型）回退为Reflections按名称调用。
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class ExcelColumn {
+
+	private static final String GETTER_PREFIX = "get";
+	private static final String SETTER_PREFIX = "set";
+
+	private static final String FIELD_TYPE_PACKAGE = ExcelColumn.class.getPackage().getName() + ".fieldtype.";
+
+	/**
+	 * 列元数据缓存，键为 Arrays.asList(类型, 导入导出类型, 分组)
+	 */
+	private static final Map<List<Object>, List<ExcelColumn>> columnsCache = new ConcurrentHashMap<List<Object>, List<ExcelColumn>>();
+
+	/**
+	 * 按值类型查找的fieldtype转换方法缓存（导出时fieldType未指定）
+	 */
+	private static final Map<Class<?>, Method[]> typeConverterCache = new ConcurrentHashMap<Class<?>, Method[]>();
+
+	private final ExcelField excelField;
+	private final AccessibleObject member;
+
+	/**
+	 * 导出取值方法链，为null时按名称调用
+	 */
+	private final Method[] getters;
+
+	/**
+	 * 导入设值方法，为null时按名称调用
+	 */
+	private final Method setter;
+
+	/**
+	 * 导入值类型
+	 */
+	private final Class<?> valueType;
+
+	/**
+	 * ExcelField.fieldType指定的转换方法（getValue/setValue）
+	 */
+	private final Method importConverter;
+	private final Method exportConverter;
+
+	private ExcelColumn(Class<?> cls, ExcelField ef, AccessibleObject member) {
+		this.excelField = ef;
+		this.member = member;
+		// 导出取值
+		if (StringUtils.isNotBlank(ef.value())){
+			this.getters = resolveGetters(cls, StringUtils.split(ef.value(), "."));
+		}else if (member instanceof Field){
+			this.getters = resolveGetters(cls, new String[]{((Field)member).getName()});
+		}else{
+			Method m = (Method)member;
+			this.getters = m.getParameterTypes().length == 0 ? new Method[]{accessible(m)} : null;
+		}
+		// 导入设值（与ImportExcel原有规则一致：字段调用setter；方法为getter时调用对应setter，为setter时调用自身）
+		Class<?> type = Class.class;
+		Method set = null;
+		if (member instanceof Field){
+			type = ((Field)member).getType();
+			set = findMethodByName(cls, SETTER_PREFIX + StringUtils.capitalize(((Field)member).getName()));
+		}else{
+			Method m = (Method)member;
+			if (m.getName().startsWith(GETTER_PREFIX)){
+				type = m.getReturnType();
+				set = findMethod(cls, SETTER_PREFIX + StringUtils.substringAfter(m.getName(), GETTER_PREFIX), type);
+			}else if (m.getName().startsWith(SETTER_PREFIX) && m.getParameterTypes().length == 1){
+				type = m.getParameterTypes()[0];
+				set = accessible(m);
+			}
+		}
+		this.valueType = type;
+		this.setter = set;
+		// 类型转换
+		this.importConverter = ef.fieldType() != Class.class ? findStaticMethod(ef.fieldType(), "getValue", String.class) : null;
+		this.exportConverter = ef.fieldType() != Class.class ? findStaticMethod(ef.fieldType(), "setValue", Object.class) : null;
+	}
+
+	/**
+	 * 获取类型的Excel列元数据（已按sort排序）
+	 * @param cls 实体类型
+	 * @param type 导入导出类型（1：导出数据；2：导出模板、导入）
+	 * @param groups 分组
+	 */
+	public static List<ExcelColumn> getColumns(Class<?> cls, int type, int... groups) {
+		List<Object> key = Arrays.<Object>asList(cls, type, groups != null ? Arrays.toString(groups) : "");
+		List<ExcelColumn> columns = columnsCache.get(key);
+		if (columns == null){
+			columns = Collections.unmodifiableList(scanColumns(cls, type, groups));
+			columnsCache.put(key, columns);
+		}
+		return columns;
+	}
+
+	private static List<ExcelColumn> scanColumns(Class<?> cls, int type, int... groups) {
+		List<ExcelColumn> columns = Lists.newArrayList();
+		// Get annotation field
+		for (Field f : cls.getDeclaredFields()){
+			ExcelField ef = f.getAnnotation(ExcelField.class);
+			if (ef != null && (ef.type()==0 || ef.type()==type) && inGroups(ef, groups)){
+				columns.add(new ExcelColumn(cls, ef, f));
+			}
+		}
+		// Get annotation method
+		for (Method m : cls.getDeclaredMethods()){
+			ExcelField ef = m.getAnnotation(ExcelField.class);
+			if (ef != null && (ef.type()==0 || ef.type()==type) && inGroups(ef, groups)){
+				columns.add(new ExcelColumn(cls, ef, m));
+			}
+		}
+		// Field sorting
+		Collections.sort(columns, new Comparator<ExcelColumn>() {
+			public int compare(ExcelColumn o1, ExcelColumn o2) {
+				return new Integer(o1.excelField.sort()).compareTo(new Integer(o2.excelField.sort()));
+			};
+		});
+		return columns;
+	}
+
+	private static boolean inGroups(ExcelField ef, int... groups) {
+		if (groups == null || groups.length == 0){
+			return true;
+		}
+		for (int g : groups){
+			for (int efg : ef.groups()){
+				if (g == efg){
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	public ExcelField getExcelField() {
+		return excelField;
+	}
+
+	/**
+	 * 注解所在的Field或Method
+	 */
+	public AccessibleObject getMember() {
+		return member;
+	}
+
+	/**
+	 * 导入值类型
+	 */
+	public Class<?> getValueType() {
+		return valueType;
+	}
+
+	/**
+	 * 获取导出值（未转换字典）
+	 */
+	public Object getValue(Object obj) throws Exception {
+		if (getters == null){
+			if (StringUtils.isNotBlank(excelField.value())){
+				return Reflections.invokeGetter(obj, excelField.value());
+			}else if (member instanceof Field){
+				return Reflections.invokeGetter(obj, ((Field)member).getName());
+			}
+			return Reflections.invokeMethod(obj, ((Method)member).getName(), new Class[] {}, new Object[] {});
+		}
+		Object object = obj;
+		for (Method getter : getters){
+			if (object == null){
+				// 与Reflections.invokeGetter一致，中间对象为空时抛出异常，由调用方处理
+				throw new IllegalArgumentException("Could not invoke method [" + getter.getName() + "] on null target");
+			}
+			object = invoke(getter, object);
+		}
+		return object;
+	}
+
+	/**
+	 * 设置导入值
+	 */
+	public void setValue(Object obj, Object value) throws Exception {
+		if (setter == null){
+			if (member instanceof Field){
+				Reflections.invokeSetter(obj, ((Field)member).getName(), value);
+			}else{
+				String methodName = ((Method)member).getName();
+				if (methodName.startsWith(GETTER_PREFIX)){
+					methodName = SETTER_PREFIX + StringUtils.substringAfter(methodName, GETTER_PREFIX);
+				}
+				Reflections.invokeMethod(obj, methodName, new Class[] {valueType}, new Object[] {value});
+			}
+			return;
+		}
+		invoke(setter, obj, value);
+	}
+
+	/**
+	 * 导入值转换：将单元格值转换为导入值类型
+	 */
+	public Object toValue(Object val) throws Exception {
+		if (valueType == String.class){
+			String s = String.valueOf(val.toString());
+			if(StringUtils.endsWith(s, ".0")){
+				return StringUtils.substringBefore(s, ".0");
+			}
+			return s;
+		}else if (valueType == Integer.class){
+			return Double.valueOf(val.toString()).intValue();
+		}else if (valueType == Long.class){
+			return Double.valueOf(val.toString()).longValue();
+		}else if (valueType == Double.class){
+			return Double.valueOf(val.toString());
+		}else if (valueType == Float.class){
+			return Float.valueOf(val.toString());
+		}else if (valueType == Date.class){
+			return DateUtil.getJavaDate((Double)val);
+		}else if (importConverter != null){
+			return invoke(importConverter, null, val.toString());
+		}
+		Method[] converters = getTypeConverters(valueType);
+		if (converters == null){
+			throw new ClassNotFoundException(FIELD_TYPE_PACKAGE + valueType.getSimpleName() + "Type");
+		}
+		return invoke(converters[0], null, val.toString());
+	}
+
+	/**
+	 * 导出值转换：将对象值转换为单元格文本（ExcelField.fieldType指定，或fieldtype包中按值类型名称查找）
+	 */
+	public String toCellValue(Object val) throws Exception {
+		if (exportConverter != null){
+			return (String)invoke(exportConverter, null, val);
+		}
+		Method[] converters = getTypeConverters(val.getClass());
+		if (converters == null){
+			throw new ClassNotFoundException(FIELD_TYPE_PACKAGE + val.getClass().getSimpleName() + "Type");
+		}
+		return (String)invoke(converters[1], null, val);
+	}
+
+	/**
+	 * 按类型名称查找fieldtype包中的转换类（如Office对应OfficeType），返回{getValue, setValue}，不存在返回null
+	 */
+	private static Method[] getTypeConverters(Class<?> type) {
+		Method[] converters = typeConverterCache.get(type);
+		if (converters == null){
+			converters = new Method[0];
+			try {
+				Class<?> converterClass = Class.forName(FIELD_TYPE_PACKAGE + type.getSimpleName() + "Type");
+				converters = new Method[]{findStaticMethod(converterClass, "getValue", String.class),
+						findStaticMethod(converterClass, "setValue", Object.class)};
+			} catch (ClassNotFoundException e) {
+				// 无对应转换类，缓存为空
+			}
+			typeConverterCache.put(type, converters);
+		}
+		return converters.length == 2 && converters[0] != null && converters[1] != null ? converters : null;
+	}
+
+	private static Object invoke(Method method, Object obj, Object... args) throws Exception {
+		try {
+			return method.invoke(obj, args);
+		} catch (InvocationTargetException e) {
+			Throwable t = e.getTargetException();
+			throw t instanceof Exception ? (Exception)t : e;
+		}
+	}
+
+	/**
+	 * 按属性路径静态解析getter方法链，无法解析时返回null
+	 */
+	private static Method[] resolveGetters(Class<?> cls, String[] names) {
+		Method[] getters = new Method[names.length];
+		Class<?> type = cls;
+		for (int i = 0; i < names.length; i++){
+			Method getter = findMethod(type, GETTER_PREFIX + StringUtils.capitalize(names[i]));
+			if (getter == null){
+				return null;
+			}
+			getters[i] = getter;
+			type = getter.getReturnType();
+		}
+		return getters;
+	}
+
+	private static Method findMethod(Class<?> cls, String name, Class<?>... parameterTypes) {
+		for (Class<?> searchType = cls; searchType != null && searchType != Object.class; searchType = searchType.getSuperclass()){
+			try {
+				return accessible(searchType.getDeclaredMethod(name, parameterTypes));
+			} catch (NoSuchMethodException e) {
+				continue;
+			}
+		}
+		return null;
+	}
+
+	private static Method findMethodByName(Class<?> cls, String name) {
+		for (Class<?> searchType = cls; searchType != null && searchType != Object.class; searchType = searchType.getSuperclass()){
+			for (Method m : searchType.getDeclaredMethods()){
+				if (m.getName().equals(name)){
+					return accessible(m);
+				}
+			}
+		}
+		return null;
+	}
+
+	private static Method findStaticMethod(Class<?> cls, String name, Class<?>... parameterTypes) {
+		try {
+			return accessible(cls.getMethod(name, parameterTypes));
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	private static Method accessible(Method method) {
+		Reflections.makeAccessible(method);
+		return method;
+	}
+
+}
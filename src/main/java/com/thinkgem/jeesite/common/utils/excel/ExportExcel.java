@@ -7,10 +7,6 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -19,6 +15,8 @@ import java.util.Map;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.Comment;
@@ -37,7 +35,6 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
 import com.thinkgem.jeesite.common.utils.Encodes;
-import com.thinkgem.jeesite.common.utils.Reflections;
 import com.thinkgem.jeesite.common.utils.excel.annotation.ExcelField;
 import com.thinkgem.jeesite.modules.sys.utils.DictUtils;
 
@@ -50,6 +47,11 @@ public class ExportExcel {
 	
 	private static Logger log = LoggerFactory.getLogger(ExportExcel.class);
 			
+	/**
+	 * 内存中保留的行数，超出的行写入临时文件
+	 */
+	public static final int ROW_ACCESS_WINDOW_SIZE = 500;
+	
 	/**
 	 * 工作薄对象
 	 */
@@ -71,9 +73,9 @@ public class ExportExcel {
 	private int rownum;
 	
 	/**
-	 * 注解列表（Object[]{ ExcelField, Field/Method }）
+	 * Excel列元数据（按类型、导出类型及分组缓存）
 	 */
-	List<Object[]> annotationList = Lists.newArrayList();
+	List<ExcelColumn> annotationList = Lists.newArrayList();
 	
 	/**
 	 * 构造函数
@@ -92,65 +94,11 @@ public class ExportExcel {
 	 * @param groups 导入分组
 	 */
 	public ExportExcel(String title, Class<?> cls, int type, int... groups){
-		// Get annotation field 
-		Field[] fs = cls.getDeclaredFields();
-		for (Field f : fs){
-			ExcelField ef = f.getAnnotation(ExcelField.class);
-			if (ef != null && (ef.type()==0 || ef.type()==type)){
-				if (groups!=null && groups.length>0){
-					boolean inGroup = false;
-					for (int g : groups){
-						if (inGroup){
-							break;
-						}
-						for (int efg : ef.groups()){
-							if (g == efg){
-								inGroup = true;
-								annotationList.add(new Object[]{ef, f});
-								break;
-							}
-						}
-					}
-				}else{
-					annotationList.add(new Object[]{ef, f});
-				}
-			}
-		}
-		// Get annotation method
-		Method[] ms = cls.getDeclaredMethods();
-		for (Method m : ms){
-			ExcelField ef = m.getAnnotation(ExcelField.class);
-			if (ef != null && (ef.type()==0 || ef.type()==type)){
-				if (groups!=null && groups.length>0){
-					boolean inGroup = false;
-					for (int g : groups){
-						if (inGroup){
-							break;
-						}
-						for (int efg : ef.groups()){
-							if (g == efg){
-								inGroup = true;
-								annotationList.add(new Object[]{ef, m});
-								break;
-							}
-						}
-					}
-				}else{
-					annotationList.add(new Object[]{ef, m});
-				}
-			}
-		}
-		// Field sorting
-		Collections.sort(annotationList, new Comparator<Object[]>() {
-			public int compare(Object[] o1, Object[] o2) {
-				return new Integer(((ExcelField)o1[0]).sort()).compareTo(
-						new Integer(((ExcelField)o2[0]).sort()));
-			};
-		});
+		annotationList = ExcelColumn.getColumns(cls, type, groups);
 		// Initialize
 		List<String> headerList = Lists.newArrayList();
-		for (Object[] os : annotationList){
-			String t = ((ExcelField)os[0]).title();
+		for (ExcelColumn column : annotationList){
+			String t = column.getExcelField().title();
 			// 如果是导出，则去掉注释
 			if (type==1){
 				String[] ss = StringUtils.split(t, "**", 2);
@@ -187,7 +135,8 @@ public class ExportExcel {
 	 * @param headerList 表头列表
 	 */
 	private void initialize(String title, List<String> headerList) {
-		this.wb = new SXSSFWorkbook(500);
+		this.wb = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
+		this.wb.setCompressTempFiles(true);
 		this.sheet = wb.createSheet("Export");
 		this.styles = createStyles(wb);
 		// Create title
@@ -358,46 +307,83 @@ public class ExportExcel {
 		return cell;
 	}
 
+	/**
+	 * 是否为可直接写入单元格的值类型
+	 */
+	private static boolean isCellValueType(Object val){
+		return val instanceof String || val instanceof Integer || val instanceof Long
+				|| val instanceof Double || val instanceof Float || val instanceof Date;
+	}
+
 	/**
 	 * 添加数据（通过annotation.ExportField添加数据）
 	 * @return list 数据列表
 	 */
 	public <E> ExportExcel setDataList(List<E> list){
 		for (E e : list){
-			int colunm = 0;
-			Row row = this.addRow();
-			StringBuilder sb = new StringBuilder();
-			for (Object[] os : annotationList){
-				ExcelField ef = (ExcelField)os[0];
-				Object val = null;
-				// Get entity value
-				try{
-					if (StringUtils.isNotBlank(ef.value())){
-						val = Reflections.invokeGetter(e, ef.value());
-					}else{
-						if (os[1] instanceof Field){
-							val = Reflections.invokeGetter(e, ((Field)os[1]).getName());
-						}else if (os[1] instanceof Method){
-							val = Reflections.invokeMethod(e, ((Method)os[1]).getName(), new Class[] {}, new Object[] {});
-						}
-					}
-					// If is dict, get dict label
-					if (StringUtils.isNotBlank(ef.dictType())){
-						val = DictUtils.getDictLabel(val==null?"":val.toString(), ef.dictType(), "");
-					}
-				}catch(Exception ex) {
-					// Failure to ignore
-					log.info(ex.toString());
-					val = "";
+			addData(e);
+		}
+		return this;
+	}
+	
+	/**
+	 * 添加一行数据（通过annotation.ExportField添加数据）
+	 * 工作薄只在内存中保留最近 ROW_ACCESS_WINDOW_SIZE 行，其余行写入临时文件，逐行添加时内存占用与数据量无关
+	 * @param e 数据对象
+	 */
+	public <E> ExportExcel addData(E e){
+		int colunm = 0;
+		Row row = this.addRow();
+		StringBuilder sb = log.isDebugEnabled() ? new StringBuilder() : null;
+		for (ExcelColumn column : annotationList){
+			ExcelField ef = column.getExcelField();
+			Object val = null;
+			// Get entity value
+			try{
+				val = column.getValue(e);
+				// If is dict, get dict label
+				if (StringUtils.isNotBlank(ef.dictType())){
+					val = DictUtils.getDictLabel(val==null?"":val.toString(), ef.dictType(), "");
+				}
+			}catch(Exception ex) {
+				// Failure to ignore
+				log.info(ex.toString());
+				val = "";
+			}
+			// Convert custom type value by cached fieldtype method
+			if (val != null && !isCellValueType(val)){
+				try {
+					val = column.toCellValue(val);
+				} catch (Exception ex) {
+					log.info("Set cell value ["+row.getRowNum()+","+colunm+"] error: " + ex.toString());
+					val = val.toString();
 				}
-				this.addCell(row, colunm++, val, ef.align(), ef.fieldType());
+			}
+			this.addCell(row, colunm++, val, ef.align(), ef.fieldType());
+			if (sb != null){
 				sb.append(val + ", ");
 			}
+		}
+		if (sb != null){
 			log.debug("Write success: ["+row.getRowNum()+"] "+sb.toString());
 		}
 		return this;
 	}
 	
+	/**
+	 * 获取MyBatis结果处理器，查询结果逐行写入工作薄，不在内存中保留完整的结果列表
+	 * @example
+	 * 		userDao.findList(user, new ExportExcel("用户数据", User.class).getResultHandler());
+	 */
+	public ResultHandler getResultHandler(){
+		return new ResultHandler() {
+			@Override
+			public void handleResult(ResultContext context) {
+				addData(context.getResultObject());
+			}
+		};
+	}
+	
 	/**
 	 * 输出数据流
 	 * @param os 输出数据流
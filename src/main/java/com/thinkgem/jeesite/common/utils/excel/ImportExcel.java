@@ -7,18 +7,12 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Date;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.DateUtil;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
@@ -28,7 +22,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.google.common.collect.Lists;
-import com.thinkgem.jeesite.common.utils.Reflections;
+import com.thinkgem.jeesite.common.utils.Exceptions;
 import com.thinkgem.jeesite.common.utils.excel.annotation.ExcelField;
 import com.thinkgem.jeesite.modules.sys.utils.DictUtils;
 
@@ -214,139 +208,75 @@ public class ImportExcel {
 	 * @param groups 导入分组
 	 */
 	public <E> List<E> getDataList(Class<E> cls, int... groups) throws InstantiationException, IllegalAccessException{
-		List<Object[]> annotationList = Lists.newArrayList();
-		// Get annotation field 
-		Field[] fs = cls.getDeclaredFields();
-		for (Field f : fs){
-			ExcelField ef = f.getAnnotation(ExcelField.class);
-			if (ef != null && (ef.type()==0 || ef.type()==2)){
-				if (groups!=null && groups.length>0){
-					boolean inGroup = false;
-					for (int g : groups){
-						if (inGroup){
-							break;
-						}
-						for (int efg : ef.groups()){
-							if (g == efg){
-								inGroup = true;
-								annotationList.add(new Object[]{ef, f});
-								break;
-							}
-						}
-					}
-				}else{
-					annotationList.add(new Object[]{ef, f});
-				}
-			}
-		}
-		// Get annotation method
-		Method[] ms = cls.getDeclaredMethods();
-		for (Method m : ms){
-			ExcelField ef = m.getAnnotation(ExcelField.class);
-			if (ef != null && (ef.type()==0 || ef.type()==2)){
-				if (groups!=null && groups.length>0){
-					boolean inGroup = false;
-					for (int g : groups){
-						if (inGroup){
-							break;
-						}
-						for (int efg : ef.groups()){
-							if (g == efg){
-								inGroup = true;
-								annotationList.add(new Object[]{ef, m});
-								break;
-							}
-						}
-					}
-				}else{
-					annotationList.add(new Object[]{ef, m});
-				}
-			}
-		}
-		// Field sorting
-		Collections.sort(annotationList, new Comparator<Object[]>() {
-			public int compare(Object[] o1, Object[] o2) {
-				return new Integer(((ExcelField)o1[0]).sort()).compareTo(
-						new Integer(((ExcelField)o2[0]).sort()));
-			};
-		});
+		List<ExcelColumn> annotationList = getAnnotationList(cls, groups);
 		//log.debug("Import column count:"+annotationList.size());
 		// Get excel data
 		List<E> dataList = Lists.newArrayList();
 		for (int i = this.getDataRowNum(); i < this.getLastDataRowNum(); i++) {
-			E e = (E)cls.newInstance();
-			int column = 0;
 			Row row = this.getRow(i);
-			StringBuilder sb = new StringBuilder();
-			for (Object[] os : annotationList){
-				Object val = this.getCellValue(row, column++);
-				if (val != null){
-					ExcelField ef = (ExcelField)os[0];
-					// If is dict type, get dict value
-					if (StringUtils.isNotBlank(ef.dictType())){
-						val = DictUtils.getDictValue(val.toString(), ef.dictType(), "");
-						//log.debug("Dictionary type value: ["+i+","+colunm+"] " + val);
-					}
-					// Get param type and type cast
-					Class<?> valType = Class.class;
-					if (os[1] instanceof Field){
-						valType = ((Field)os[1]).getType();
-					}else if (os[1] instanceof Method){
-						Method method = ((Method)os[1]);
-						if ("get".equals(method.getName().substring(0, 3))){
-							valType = method.getReturnType();
-						}else if("set".equals(method.getName().substring(0, 3))){
-							valType = ((Method)os[1]).getParameterTypes()[0];
-						}
-					}
-					//log.debug("Import value type: ["+i+","+column+"] " + valType);
-					try {
-						if (valType == String.class){
-							String s = String.valueOf(val.toString());
-							if(StringUtils.endsWith(s, ".0")){
-								val = StringUtils.substringBefore(s, ".0");
-							}else{
-								val = String.valueOf(val.toString());
-							}
-						}else if (valType == Integer.class){
-							val = Double.valueOf(val.toString()).intValue();
-						}else if (valType == Long.class){
-							val = Double.valueOf(val.toString()).longValue();
-						}else if (valType == Double.class){
-							val = Double.valueOf(val.toString());
-						}else if (valType == Float.class){
-							val = Float.valueOf(val.toString());
-						}else if (valType == Date.class){
-							val = DateUtil.getJavaDate((Double)val);
-						}else{
-							if (ef.fieldType() != Class.class){
-								val = ef.fieldType().getMethod("getValue", String.class).invoke(null, val.toString());
-							}else{
-								val = Class.forName(this.getClass().getName().replaceAll(this.getClass().getSimpleName(), 
-										"fieldtype."+valType.getSimpleName()+"Type")).getMethod("getValue", String.class).invoke(null, val.toString());
-							}
-						}
-					} catch (Exception ex) {
-						log.info("Get cell value ["+i+","+column+"] error: " + ex.toString());
-						val = null;
-					}
-					// set entity value
-					if (os[1] instanceof Field){
-						Reflections.invokeSetter(e, ((Field)os[1]).getName(), val);
-					}else if (os[1] instanceof Method){
-						String mthodName = ((Method)os[1]).getName();
-						if ("get".equals(mthodName.substring(0, 3))){
-							mthodName = "set"+StringUtils.substringAfter(mthodName, "get");
-						}
-						Reflections.invokeMethod(e, mthodName, new Class[] {valType}, new Object[] {val});
-					}
+			List<Object> values = Lists.newArrayListWithCapacity(annotationList.size());
+			for (int column = 0; column < annotationList.size(); column++){
+				values.add(this.getCellValue(row, column));
+			}
+			dataList.add(toEntity(cls, annotationList, i, values));
+		}
+		return dataList;
+	}
+	
+	/**
+	 * 获取导入对象的Excel列元数据，按排序号排序
+	 * @param cls 导入对象类型
+	 * @param groups 导入分组
+	 */
+	static List<ExcelColumn> getAnnotationList(Class<?> cls, int... groups){
+		return ExcelColumn.getColumns(cls, 2, groups);
+	}
+	
+	/**
+	 * 将一行单元格值转换为导入对象
+	 * @param cls 导入对象类型
+	 * @param annotationList Excel列元数据
+	 * @param i 行号
+	 * @param values 单元格值，按列顺序
+	 */
+	static <E> E toEntity(Class<E> cls, List<ExcelColumn> annotationList, int i, List<Object> values) throws InstantiationException, IllegalAccessException{
+		E e = (E)cls.newInstance();
+		int column = 0;
+		StringBuilder sb = log.isDebugEnabled() ? new StringBuilder() : null;
+		for (ExcelColumn excelColumn : annotationList){
+			Object val = column < values.size() ? values.get(column) : "";
+			column++;
+			if (val != null){
+				ExcelField ef = excelColumn.getExcelField();
+				// If is dict type, get dict value
+				if (StringUtils.isNotBlank(ef.dictType())){
+					val = DictUtils.getDictValue(val.toString(), ef.dictType(), "");
+					//log.debug("Dictionary type value: ["+i+","+colunm+"] " + val);
+				}
+				// Type cast
+				try {
+					val = excelColumn.toValue(val);
+				} catch (Exception ex) {
+					log.info("Get cell value ["+i+","+column+"] error: " + ex.toString());
+					val = null;
+				}
+				// set entity value
+				try {
+					excelColumn.setValue(e, val);
+				} catch (RuntimeException ex) {
+					throw ex;
+				} catch (Exception ex) {
+					throw Exceptions.unchecked(ex);
 				}
+			}
+			if (sb != null){
 				sb.append(val+", ");
 			}
-			dataList.add(e);
+		}
+		if (sb != null){
 			log.debug("Read success: ["+i+"] "+sb.toString());
 		}
-		return dataList;
+		return e;
 	}
 
 //	/**
@@ -0,0 +1,368 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.utils.excel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.google.common.collect.Lists;
+
+/**
+ * 流式导入Excel文件
+ * XLSX格式基于SAX逐行解析工作表（共享字符串表只读加载），每读取 batchSize 行回调一次，内存占用与批次大小相关，与文件大小无关；
+ * XLS格式（最多65536行）仍通过ImportExcel读取后按批次回调。单元格值及转换规则与ImportExcel一致（XLSX共享公式的引用单元格除外，见SheetHandler）。
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class StreamImportExcel {
+
+	private static Logger log = LoggerFactory.getLogger(StreamImportExcel.class);
+
+	/**
+	 * 默认批次大小
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	/**
+	 * 批次处理接口
+	 */
+	public interface BatchHandler<E> {
+
+		/**
+		 * 处理一批导入对象
+		 * @param list 导入对象列表
+		 */
+		public void handle(List<E> list) throws Exception;
+
+	}
+
+	/**
+	 * 原文件名，用于判断文档格式
+	 */
+	private String fileName;
+
+	/**
+	 * 导入文件，上传文件保存为临时文件，dispose时删除
+	 */
+	private File file;
+
+	private boolean tempFile;
+
+	/**
+	 * 标题行号
+	 */
+	private int headerNum;
+
+	/**
+	 * 工作表编号
+	 */
+	private int sheetIndex;
+
+	/**
+	 * 构造函数
+	 * @param file 导入文件对象
+	 * @param headerNum 标题行号，数据行号=标题行号+1
+	 * @param sheetIndex 工作表编号
+	 */
+	public StreamImportExcel(File file, int headerNum, int sheetIndex) {
+		this.fileName = file.getName();
+		this.file = file;
+		this.headerNum = headerNum;
+		this.sheetIndex = sheetIndex;
+	}
+
+	/**
+	 * 构造函数
+	 * @param multipartFile 上传文件对象，保存为临时文件后读取
+	 * @param headerNum 标题行号，数据行号=标题行号+1
+	 * @param sheetIndex 工作表编号
+	 * @throws IOException
+	 */
+	public StreamImportExcel(MultipartFile multipartFile, int headerNum, int sheetIndex) throws IOException {
+		this.fileName = multipartFile.getOriginalFilename();
+		if (StringUtils.isBlank(fileName)){
+			throw new RuntimeException("导入文档为空!");
+		}
+		this.file = File.createTempFile("import", "." + StringUtils.substringAfterLast(fileName, "."));
+		this.tempFile = true;
+		multipartFile.transferTo(file);
+		this.headerNum = headerNum;
+		this.sheetIndex = sheetIndex;
+	}
+
+	/**
+	 * 读取导入数据，按批次回调
+	 * @param cls 导入对象类型
+	 * @param batchSize 批次大小
+	 * @param handler 批次处理
+	 * @param groups 导入分组
+	 * @return 读取的数据行数
+	 */
+	public <E> int read(Class<E> cls, int batchSize, BatchHandler<E> handler, int... groups) throws Exception {
+		Batch<E> batch = new Batch<E>(cls, ImportExcel.getAnnotationList(cls, groups), batchSize, handler);
+		if (StringUtils.isBlank(fileName)){
+			throw new RuntimeException("导入文档为空!");
+		}else if (fileName.toLowerCase().endsWith("xls")){
+			ImportExcel ei = new ImportExcel(file, headerNum, sheetIndex);
+			for (E e : ei.getDataList(cls, groups)){
+				batch.add(e);
+			}
+		}else if (fileName.toLowerCase().endsWith("xlsx")){
+			readXlsx(batch);
+		}else{
+			throw new RuntimeException("文档格式不正确!");
+		}
+		batch.flush();
+		log.debug("Read success: " + batch.count + " rows.");
+		return batch.count;
+	}
+
+	/**
+	 * 删除临时文件
+	 */
+	public StreamImportExcel dispose() {
+		if (tempFile && file != null && !file.delete()){
+			file.deleteOnExit();
+		}
+		return this;
+	}
+
+	/**
+	 * SAX解析XLSX工作表
+	 */
+	private <E> void readXlsx(final Batch<E> batch) throws Exception {
+		OPCPackage pkg = OPCPackage.open(file.getPath(), PackageAccess.READ);
+		InputStream sheet = null;
+		try {
+			XSSFReader reader = new XSSFReader(pkg);
+			ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+			XSSFReader.SheetIterator it = (XSSFReader.SheetIterator)reader.getSheetsData();
+			for (int i = 0; it.hasNext(); i++){
+				InputStream is = it.next();
+				if (i == sheetIndex){
+					sheet = is;
+					break;
+				}
+				IOUtils.closeQuietly(is);
+			}
+			if (sheet == null){
+				throw new RuntimeException("文档中没有工作表!");
+			}
+			SAXParserFactory factory = SAXParserFactory.newInstance();
+			factory.setNamespaceAware(true);
+			// 工作表XML来自上传文件，禁止DTD及外部实体（XXE）
+			factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+			factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+			factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+			factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+			SAXParser parser = factory.newSAXParser();
+			try {
+				parser.parse(sheet, new SheetHandler(strings) {
+					@Override
+					protected void row(int rownum, List<Object> values) throws Exception {
+						if (rownum > headerNum){
+							batch.add(ImportExcel.toEntity(batch.cls, batch.annotationList, rownum, values));
+						}
+					}
+				});
+			} catch (SAXException e) {
+				if (e.getException() != null){
+					throw e.getException();
+				}
+				throw e;
+			}
+		} finally {
+			IOUtils.closeQuietly(sheet);
+			pkg.revert();
+		}
+	}
+
+	/**
+	 * 批次缓冲
+	 */
+	private static class Batch<E> {
+
+		private final Class<E> cls;
+		private final List<ExcelColumn> annotationList;
+		private final int batchSize;
+		private final BatchHandler<E> handler;
+		private List<E> list;
+		private int count;
+
+		private Batch(Class<E> cls, List<ExcelColumn> annotationList, int batchSize, BatchHandler<E> handler) {
+			this.cls = cls;
+			this.annotationList = annotationList;
+			this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+			this.handler = handler;
+			this.list = Lists.newArrayListWithCapacity(this.batchSize);
+		}
+
+		private void add(E e) throws Exception {
+			list.add(e);
+			count++;
+			if (list.size() >= batchSize){
+				flush();
+			}
+		}
+
+		private void flush() throws Exception {
+			if (!list.isEmpty()){
+				List<E> current = list;
+				list = Lists.newArrayListWithCapacity(batchSize);
+				handler.handle(current);
+			}
+		}
+	}
+
+	/**
+	 * 工作表XML解析，逐行回调单元格值：数值为Double（日期为Excel日期数值），文本为String，布尔为Boolean，错误为错误代码Byte，
+	 * 空单元格为空字符串；公式单元格与ImportExcel一致取公式文本（不含“=”），但共享公式的引用单元格在XML中没有公式文本，取计算结果；
+	 * 全部为空的行忽略。
+	 */
+	private static abstract class SheetHandler extends DefaultHandler {
+
+		private final ReadOnlySharedStringsTable strings;
+		private final StringBuilder text = new StringBuilder();
+		private final StringBuilder formula = new StringBuilder();
+		private List<Object> values;
+		private int rownum = -1;
+		private int column;
+		private String cellType;
+		private boolean inValue;
+		private boolean inFormula;
+		private boolean blankRow;
+
+		private SheetHandler(ReadOnlySharedStringsTable strings) {
+			this.strings = strings;
+		}
+
+		/**
+		 * 读取一行
+		 * @param rownum 行号（从0开始）
+		 * @param values 单元格值
+		 */
+		protected abstract void row(int rownum, List<Object> values) throws Exception;
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) {
+			if ("row".equals(localName)){
+				String r = attributes.getValue("r");
+				rownum = r != null ? Integer.parseInt(r) - 1 : rownum + 1;
+				values = Lists.newArrayList();
+				blankRow = true;
+			}else if ("c".equals(localName)){
+				cellType = attributes.getValue("t");
+				column = getColumnIndex(attributes.getValue("r"), values.size());
+				text.setLength(0);
+				formula.setLength(0);
+			}else if ("f".equals(localName)){
+				inFormula = true;
+			}else if ("v".equals(localName) || ("t".equals(localName) && "inlineStr".equals(cellType))){
+				inValue = true;
+			}
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			if (inValue){
+				text.append(ch, start, length);
+			}else if (inFormula){
+				formula.append(ch, start, length);
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) throws SAXException {
+			if ("v".equals(localName) || "t".equals(localName)){
+				inValue = false;
+			}else if ("f".equals(localName)){
+				inFormula = false;
+			}else if ("c".equals(localName)){
+				Object val = getValue();
+				while (values.size() < column){
+					values.add("");
+				}
+				values.add(val);
+				if (!"".equals(val)){
+					blankRow = false;
+				}
+			}else if ("row".equals(localName)){
+				if (!blankRow){
+					try {
+						row(rownum, values);
+					} catch (Exception e) {
+						throw new SAXException(e);
+					}
+				}
+				values = null;
+			}
+		}
+
+		private Object getValue() {
+			if (formula.length() > 0){
+				return formula.toString();
+			}
+			String s = text.toString();
+			if ("s".equals(cellType)){
+				return s.length() > 0 ? strings.getEntryAt(Integer.parseInt(s.trim())) : "";
+			}else if ("b".equals(cellType)){
+				return "1".equals(s.trim());
+			}else if ("e".equals(cellType)){
+				try {
+					return FormulaError.forString(s.trim()).getCode();
+				} catch (IllegalArgumentException e) {
+					return s;
+				}
+			}else if ("inlineStr".equals(cellType) || "str".equals(cellType)){
+				return s;
+			}else if (s.trim().length() > 0){
+				try {
+					return Double.valueOf(s.trim());
+				} catch (NumberFormatException e) {
+					return s;
+				}
+			}
+			return "";
+		}
+
+		/**
+		 * 根据单元格引用（如：AB12）获取列号（从0开始）
+		 */
+		private static int getColumnIndex(String ref, int defaultIndex) {
+			if (ref == null){
+				return defaultIndex;
+			}
+			int index = 0;
+			for (int i = 0; i < ref.length(); i++){
+				char c = ref.charAt(i);
+				if (c < 'A' || c > 'Z'){
+					break;
+				}
+				index = index * 26 + (c - 'A' + 1);
+			}
+			return index - 1;
+		}
+	}
+
+}
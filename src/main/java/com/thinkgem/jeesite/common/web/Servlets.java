@@ -8,8 +8,10 @@ package com.thinkgem.jeesite.common.web;
 import java.io.UnsupportedEncodingException;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
 
@@ -21,7 +23,9 @@ import org.apache.commons.lang3.Validate;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import com.google.common.collect.Lists;
 import com.google.common.net.HttpHeaders;
+import com.thinkgem.jeesite.common.config.ConfigChangeListener;
 import com.thinkgem.jeesite.common.config.Global;
 import com.thinkgem.jeesite.common.utils.Encodes;
 import com.thinkgem.jeesite.common.utils.StringUtils;
@@ -37,13 +41,23 @@ public class Servlets {
 
 	// -- 常用数值定义 --//
 	public static final long ONE_YEAR_SECONDS = 60 * 60 * 24 * 365;
-	
-	// 静态文件后缀
-	private final static String[] staticFiles = StringUtils.split(Global.getConfig("web.staticFile"), ",");
-	
-	// 动态映射URL后缀
-	private final static String urlSuffix = Global.getUrlSuffix();
 
+	// 静态资源匹配器
+	private static volatile StaticResourceMatcher staticResourceMatcher;
+
+	static {
+		// 修改静态资源配置后重建匹配器
+		Global.addConfigChangeListener(new ConfigChangeListener() {
+			@Override
+			public void onChange(Set<String> changedKeys) {
+				if (changedKeys.contains("web.staticFile") || changedKeys.contains("web.staticPath")
+						|| changedKeys.contains("urlSuffix")){
+					staticResourceMatcher = null;
+				}
+			}
+		});
+	}
+	
 	/**
 	 * 设置客户端缓存过期时间 的Header.
 	 */
@@ -235,26 +249,42 @@ public class Servlets {
 	}
 
 	/**
-     * 判断访问URI是否是静态文件请求
-	 * @throws Exception 
+     * 判断访问URI是否是静态文件请求（后缀匹配 web.staticFile 或路径前缀匹配 web.staticPath）
      */
     public static boolean isStaticFile(String uri){
-		if (staticFiles == null){
-			try {
-				throw new Exception("检测到“app.properties”中没有配置“web.staticFile”属性。配置示例：\n#静态文件后缀\n"
-					+"web.staticFile=.css,.js,.png,.jpg,.gif,.jpeg,.bmp,.ico,.swf,.psd,.htc,.crx,.xpi,.exe,.ipa,.apk");
-			} catch (Exception e) {
-				e.printStackTrace();
+		return getStaticResourceMatcher().matches(uri);
+    }
+
+	/**
+	 * 判断应用内路径（ServletPath）是否匹配静态资源路径前缀（web.staticPath），匹配的请求不经过Shiro
+	 * @see com.thinkgem.jeesite.common.filter.StaticResourceFilter
+	 */
+	public static boolean isStaticPath(String path){
+		return getStaticResourceMatcher().matchesPath(path);
+	}
+
+	/**
+	 * 获取静态资源匹配器，首次使用时按配置构建，修改相关配置后重建
+	 */
+	public static StaticResourceMatcher getStaticResourceMatcher(){
+		StaticResourceMatcher matcher = staticResourceMatcher;
+		if (matcher == null){
+			List<String> staticFiles = Global.getConfigList("web.staticFile");
+			if (staticFiles.isEmpty()){
+				try {
+					throw new Exception("检测到“app.properties”中没有配置“web.staticFile”属性。配置示例：\n#静态文件后缀\n"
+						+"web.staticFile=.css,.js,.png,.jpg,.gif,.jpeg,.bmp,.ico,.swf,.psd,.htc,.crx,.xpi,.exe,.ipa,.apk");
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
 			}
+			List<String> excludes = Lists.newArrayList(".jsp", ".java");
+			if (StringUtils.isNotBlank(Global.getUrlSuffix())){
+				excludes.add(Global.getUrlSuffix());
+			}
+			matcher = new StaticResourceMatcher(staticFiles, excludes, Global.getConfigList("web.staticPath"));
+			staticResourceMatcher = matcher;
 		}
-//		if ((StringUtils.startsWith(uri, "/static/") || StringUtils.endsWithAny(uri, sfs)) 
-//				&& !StringUtils.endsWithAny(uri, ".jsp") && !StringUtils.endsWithAny(uri, ".java")){
-//			return true;
-//		}
-		if (StringUtils.endsWithAny(uri, staticFiles) && !StringUtils.endsWithAny(uri, urlSuffix)
-				&& !StringUtils.endsWithAny(uri, ".jsp") && !StringUtils.endsWithAny(uri, ".java")){
-			return true;
-		}
-		return false;
-    }
+		return matcher;
+	}
 }
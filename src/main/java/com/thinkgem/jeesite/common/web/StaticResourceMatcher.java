@@ -0,0 +1,180 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.web;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.thinkgem.jeesite.common.utils.StringUtils;
+
+/**
+ * 静态资源匹配器，由配置的后缀及路径前缀预先构建，匹配时不分配对象.
+ * 后缀（web.staticFile）与排除后缀（URL后缀、.jsp、.java）编译为一棵按字符倒序的字典树，从URI末尾向前逐字符查找，
+ * 后缀不区分大小写，排除后缀优先；URI中的路径参数（;jsessionid=...）不参与匹配.
+ * 路径前缀（web.staticPath，如 /static/）匹配的请求可由StaticResourceFilter直接转发，不经过Shiro及会话处理.
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class StaticResourceMatcher {
+
+	/**
+	 * 节点类型：静态资源后缀、排除后缀
+	 */
+	private static final byte STATIC = 1;
+	private static final byte EXCLUDE = 2;
+
+	private final Node root;
+	private final String[] pathPrefixes;
+
+	/**
+	 * @param suffixes 静态资源后缀，如 .css
+	 * @param excludeSuffixes 排除的后缀，如 .jsp
+	 * @param pathPrefixes 静态资源路径前缀，如 /static/
+	 */
+	public StaticResourceMatcher(Collection<String> suffixes, Collection<String> excludeSuffixes, Collection<String> pathPrefixes) {
+		Builder builder = new Builder();
+		if (suffixes != null){
+			for (String suffix : suffixes){
+				builder.add(suffix, STATIC);
+			}
+		}
+		if (excludeSuffixes != null){
+			for (String suffix : excludeSuffixes){
+				builder.add(suffix, EXCLUDE);
+			}
+		}
+		this.root = builder.build();
+		this.pathPrefixes = pathPrefixes != null ? pathPrefixes.toArray(new String[pathPrefixes.size()]) : new String[0];
+	}
+
+	/**
+	 * 是否是静态资源：匹配静态资源后缀或路径前缀，且不匹配排除后缀
+	 * @param uri 请求路径（ServletPath或RequestURI）
+	 */
+	public boolean matches(String uri) {
+		if (uri == null){
+			return false;
+		}
+		int end = getEnd(uri);
+		byte type = matchSuffix(uri, end);
+		if (type == EXCLUDE){
+			return false;
+		}
+		return type == STATIC || matchPrefix(uri);
+	}
+
+	/**
+	 * 是否匹配静态资源路径前缀（且不匹配排除后缀）
+	 * @param path 应用内路径（ServletPath）
+	 */
+	public boolean matchesPath(String path) {
+		if (path == null || !matchPrefix(path)){
+			return false;
+		}
+		return matchSuffix(path, getEnd(path)) != EXCLUDE;
+	}
+
+	private boolean matchPrefix(String path) {
+		for (String prefix : pathPrefixes){
+			if (path.startsWith(prefix)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 从末尾向前查找后缀，返回匹配的类型（排除优先），不匹配返回0
+	 */
+	private byte matchSuffix(String uri, int end) {
+		Node node = root;
+		byte type = 0;
+		for (int i = end - 1; i >= 0 && node != null; i--){
+			node = node.child(toLowerCase(uri.charAt(i)));
+			if (node != null && node.type != 0){
+				if (node.type == EXCLUDE){
+					return EXCLUDE;
+				}
+				type = node.type;
+			}
+		}
+		return type;
+	}
+
+	/**
+	 * 去掉路径参数（;jsessionid=...）后的结束位置
+	 */
+	private static int getEnd(String uri) {
+		int end = uri.indexOf(';');
+		return end >= 0 ? end : uri.length();
+	}
+
+	private static char toLowerCase(char c) {
+		return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+	}
+
+	/**
+	 * 字典树节点，子节点按字符排序后二分查找
+	 */
+	private static class Node {
+
+		private final char[] keys;
+		private final Node[] children;
+		private final byte type;
+
+		private Node(char[] keys, Node[] children, byte type) {
+			this.keys = keys;
+			this.children = children;
+			this.type = type;
+		}
+
+		private Node child(char c) {
+			int index = Arrays.binarySearch(keys, c);
+			return index >= 0 ? children[index] : null;
+		}
+
+	}
+
+	/**
+	 * 构建用的可变节点
+	 */
+	private static class Builder {
+
+		private final Map<Character, Builder> children = new TreeMap<Character, Builder>();
+		private byte type;
+
+		private void add(String suffix, byte type) {
+			if (StringUtils.isBlank(suffix)){
+				return;
+			}
+			suffix = suffix.trim();
+			Builder node = this;
+			for (int i = suffix.length() - 1; i >= 0; i--){
+				Character c = toLowerCase(suffix.charAt(i));
+				Builder child = node.children.get(c);
+				if (child == null){
+					child = new Builder();
+					node.children.put(c, child);
+				}
+				node = child;
+			}
+			node.type = (byte) Math.max(node.type, type);
+		}
+
+		private Node build() {
+			char[] keys = new char[children.size()];
+			Node[] nodes = new Node[children.size()];
+			int i = 0;
+			for (Map.Entry<Character, Builder> entry : children.entrySet()){
+				keys[i] = entry.getKey();
+				nodes[i++] = entry.getValue().build();
+			}
+			return new Node(keys, nodes, type);
+		}
+
+	}
+
+}
@@ -3,7 +3,7 @@
  */
 package com.thinkgem.jeesite.modules.sys.dao;
 
-import com.thinkgem.jeesite.common.persistence.CrudDao;
+import com.thinkgem.jeesite.common.persistence.BatchDao;
 import com.thinkgem.jeesite.common.persistence.annotation.MyBatisDao;
 import com.thinkgem.jeesite.modules.sys.entity.Log;
 
@@ -13,6 +13,6 @@ import com.thinkgem.jeesite.modules.sys.entity.Log;
  * @version 2014-05-16
  */
 @MyBatisDao
-public interface LogDao extends CrudDao<Log> {
+public interface LogDao extends BatchDao<Log> {
 
 }
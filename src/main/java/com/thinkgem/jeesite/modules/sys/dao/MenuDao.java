@@ -23,6 +23,8 @@ public interface MenuDao extends CrudDao<Menu> {
 	
 	public int updateParentIds(Menu menu);
 	
+	public int updateChildParentIds(Menu menu);
+	
 	public int updateSort(Menu menu);
 	
 }
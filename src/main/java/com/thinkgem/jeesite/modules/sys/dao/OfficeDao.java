@@ -3,6 +3,8 @@
  */
 package com.thinkgem.jeesite.modules.sys.dao;
 
+import java.util.List;
+
 import com.thinkgem.jeesite.common.persistence.TreeDao;
 import com.thinkgem.jeesite.common.persistence.annotation.MyBatisDao;
 import com.thinkgem.jeesite.modules.sys.entity.Office;
@@ -15,4 +17,32 @@ import com.thinkgem.jeesite.modules.sys.entity.Office;
 @MyBatisDao
 public interface OfficeDao extends TreeDao<Office> {
 	
+	/**
+	 * 通过闭包表找到所有子节点（不含自身）
+	 * @param office
+	 * @return
+	 */
+	public List<Office> findDescendants(Office office);
+	
+	/**
+	 * 插入新节点的闭包关系：到自身及到父节点的所有祖先
+	 * @param office
+	 * @return
+	 */
+	public int insertClosure(Office office);
+	
+	/**
+	 * 移动节点：删除以该节点为根的子树与原祖先之间的闭包关系
+	 * @param office
+	 * @return
+	 */
+	public int deleteClosureAncestors(Office office);
+	
+	/**
+	 * 移动节点：插入以该节点为根的子树与新祖先之间的闭包关系
+	 * @param office
+	 * @return
+	 */
+	public int insertClosureAncestors(Office office);
+	
 }
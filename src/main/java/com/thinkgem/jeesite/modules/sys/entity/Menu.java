@@ -12,6 +12,7 @@ import org.hibernate.validator.constraints.Length;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.thinkgem.jeesite.common.persistence.DataEntity;
+import com.thinkgem.jeesite.common.persistence.TreeIndex;
 
 /**
  * 菜单Entity
@@ -131,26 +132,31 @@ public class Menu extends DataEntity<Menu> {
 
 	@JsonIgnore
 	public static void sortList(List<Menu> list, List<Menu> sourcelist, String parentId, boolean cascade){
-		for (int i=0; i<sourcelist.size(); i++){
-			Menu e = sourcelist.get(i);
-			if (e.getParent()!=null && e.getParent().getId()!=null
-					&& e.getParent().getId().equals(parentId)){
-				list.add(e);
-				if (cascade){
-					// 判断是否还有子节点, 有则继续获取子节点
-					for (int j=0; j<sourcelist.size(); j++){
-						Menu child = sourcelist.get(j);
-						if (child.getParent()!=null && child.getParent().getId()!=null
-								&& child.getParent().getId().equals(e.getId())){
-							sortList(list, sourcelist, e.getId(), true);
-							break;
-						}
-					}
-				}
-			}
-		}
+		list.addAll(newTreeIndex(sourcelist).getDescendants(parentId, cascade));
+	}
+
+	/**
+	 * 根据菜单列表构建树结构索引
+	 */
+	public static TreeIndex<Menu> newTreeIndex(List<Menu> list){
+		return new TreeIndex<Menu>(list, TREE_ACCESSOR);
 	}
 
+	private static final TreeIndex.Accessor<Menu> TREE_ACCESSOR = new TreeIndex.Accessor<Menu>() {
+		@Override
+		public String getId(Menu node) {
+			return node.getId();
+		}
+		@Override
+		public String getParentId(Menu node) {
+			return node.getParent() != null ? node.getParent().getId() : null;
+		}
+		@Override
+		public String getName(Menu node) {
+			return node.getName();
+		}
+	};
+
 	@JsonIgnore
 	public static String getRootId(){
 		return "1";
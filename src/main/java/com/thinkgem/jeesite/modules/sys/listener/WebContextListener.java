@@ -1,9 +1,11 @@
 package com.thinkgem.jeesite.modules.sys.listener;
 
 import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
 
 import org.springframework.web.context.WebApplicationContext;
 
+import com.thinkgem.jeesite.common.config.Global;
 import com.thinkgem.jeesite.modules.sys.service.SystemService;
 
 public class WebContextListener extends org.springframework.web.context.ContextLoaderListener {
@@ -13,6 +15,13 @@ public class WebContextListener extends org.springframework.web.context.ContextL
 		if (!SystemService.printKeyLoadMessage()){
 			return null;
 		}
+		Global.startWatch();
 		return super.initWebApplicationContext(servletContext);
 	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		Global.stopWatch();
+		super.contextDestroyed(event);
+	}
 }
@@ -0,0 +1,57 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.modules.sys.security;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.apache.shiro.authz.SimpleAuthorizationInfo;
+
+/**
+ * 带权限位图的授权信息，首次判断权限时编译字符串权限，修改权限后重新编译。
+ * 位图依赖进程内的权限编号，不参与序列化，从Session缓存反序列化后重新编译。
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class BitmapAuthorizationInfo extends SimpleAuthorizationInfo {
+
+	private static final long serialVersionUID = 1L;
+
+	private transient volatile PermissionBitmap bitmap;
+
+	/**
+	 * 判断是否拥有权限
+	 * @return 无法按位图判断时（被查询权限含通配符，或包含对象权限）返回null
+	 */
+	public Boolean isPermitted(String permission) {
+		if (getObjectPermissions() != null && !getObjectPermissions().isEmpty()){
+			return null;
+		}
+		PermissionBitmap bitmap = this.bitmap;
+		if (bitmap == null){
+			bitmap = PermissionBitmap.compile(getStringPermissions());
+			this.bitmap = bitmap;
+		}
+		return bitmap.isPermitted(permission);
+	}
+
+	@Override
+	public void setStringPermissions(Set<String> stringPermissions) {
+		super.setStringPermissions(stringPermissions);
+		this.bitmap = null;
+	}
+
+	@Override
+	public void addStringPermission(String permission) {
+		super.addStringPermission(permission);
+		this.bitmap = null;
+	}
+
+	@Override
+	public void addStringPermissions(Collection<String> permissions) {
+		super.addStringPermissions(permissions);
+		this.bitmap = null;
+	}
+
+}
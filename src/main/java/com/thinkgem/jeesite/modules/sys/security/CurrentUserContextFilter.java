@@ -0,0 +1,35 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.modules.sys.security;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.thinkgem.jeesite.modules.sys.utils.CurrentUserContext;
+
+/**
+ * 当前用户上下文过滤器，为每个请求绑定CurrentUserContext，请求结束时解除（配置在shiroFilter之后）
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class CurrentUserContextFilter extends OncePerRequestFilter {
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		CurrentUserContext previous = CurrentUserContext.begin();
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			CurrentUserContext.restore(previous);
+		}
+	}
+
+}
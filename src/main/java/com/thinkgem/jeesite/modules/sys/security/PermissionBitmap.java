@@ -0,0 +1,127 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.modules.sys.security;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.shiro.authz.permission.WildcardPermission;
+
+import com.google.common.collect.Lists;
+
+/**
+ * 权限位图，将用户拥有的权限字符串编译为位集合，权限判断由逐条WildcardPermission匹配改为按位判断。
+ * 权限字符串在当前进程内统一编号（不区分大小写，与WildcardPermission一致）；
+ * 简单权限（不含“*”及“,”）以位表示，被查询权限的每一级前缀都判断一次（如拥有sys:user即拥有sys:user:view）；
+ * 含通配符的权限保留为WildcardPermission，仅在位判断未命中时逐条匹配。
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class PermissionBitmap {
+
+	/**
+	 * 权限字符串编号，进程内唯一，只增不减
+	 */
+	private static final Map<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+	private final BitSet bits;
+	private final List<WildcardPermission> wildcards;
+
+	private PermissionBitmap(BitSet bits, List<WildcardPermission> wildcards) {
+		this.bits = bits;
+		this.wildcards = wildcards;
+	}
+
+	/**
+	 * 编译权限字符串集合
+	 */
+	public static PermissionBitmap compile(Collection<String> permissions) {
+		BitSet bits = new BitSet();
+		List<WildcardPermission> wildcards = Lists.newArrayList();
+		if (permissions != null){
+			for (String permission : permissions){
+				String normalized = normalize(permission);
+				if (normalized != null){
+					bits.set(intern(normalized));
+				}else if (permission != null && permission.trim().length() > 0){
+					wildcards.add(new WildcardPermission(permission));
+				}
+			}
+		}
+		return new PermissionBitmap(bits, wildcards);
+	}
+
+	/**
+	 * 判断是否拥有权限
+	 * @param permission 权限字符串
+	 * @return 被查询权限含通配符或格式不规范时返回null，由调用方按WildcardPermission判断
+	 */
+	public Boolean isPermitted(String permission) {
+		String normalized = normalize(permission);
+		if (normalized == null){
+			return null;
+		}
+		// 依次判断 a、a:b、a:b:c
+		int index = 0;
+		while (index != -1){
+			index = normalized.indexOf(':', index + 1);
+			Integer id = ids.get(index == -1 ? normalized : normalized.substring(0, index));
+			if (id != null && bits.get(id)){
+				return Boolean.TRUE;
+			}
+		}
+		if (!wildcards.isEmpty()){
+			WildcardPermission p = new WildcardPermission(permission);
+			for (WildcardPermission wildcard : wildcards){
+				if (wildcard.implies(p)){
+					return Boolean.TRUE;
+				}
+			}
+		}
+		return Boolean.FALSE;
+	}
+
+	/**
+	 * 获取权限字符串编号，不存在则分配新编号
+	 */
+	private static int intern(String permission) {
+		Integer id = ids.get(permission);
+		if (id == null){
+			synchronized (ids) {
+				id = ids.get(permission);
+				if (id == null){
+					id = ids.size();
+					ids.put(permission, id);
+				}
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * 规范化简单权限：各级去除首尾空格并转为小写；含“*”、“,”或空级别时返回null
+	 */
+	private static String normalize(String permission) {
+		if (permission == null){
+			return null;
+		}
+		String[] parts = permission.split(":", -1);
+		StringBuilder sb = new StringBuilder(permission.length());
+		for (int i = 0; i < parts.length; i++){
+			String part = parts[i].trim();
+			if (part.length() == 0 || part.indexOf('*') != -1 || part.indexOf(',') != -1){
+				return null;
+			}
+			if (i > 0){
+				sb.append(':');
+			}
+			sb.append(part.toLowerCase());
+		}
+		return sb.toString();
+	}
+
+}
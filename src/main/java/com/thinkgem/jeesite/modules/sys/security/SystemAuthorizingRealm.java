@@ -3,6 +3,7 @@
  */
 package com.thinkgem.jeesite.modules.sys.security;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.List;
@@ -14,21 +15,20 @@ import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
 import org.apache.shiro.authc.SimpleAuthenticationInfo;
-import org.apache.shiro.authc.credential.HashedCredentialsMatcher;
+import org.apache.shiro.authc.credential.CredentialsMatcher;
 import org.apache.shiro.authz.AuthorizationInfo;
 import org.apache.shiro.authz.Permission;
-import org.apache.shiro.authz.SimpleAuthorizationInfo;
 import org.apache.shiro.realm.AuthorizingRealm;
 import org.apache.shiro.session.Session;
 import org.apache.shiro.subject.PrincipalCollection;
-import org.apache.shiro.util.ByteSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import com.thinkgem.jeesite.common.config.Global;
+import com.thinkgem.jeesite.common.security.PasswordHasher;
+import com.thinkgem.jeesite.common.serializer.BinarySerializer;
 import com.thinkgem.jeesite.common.servlet.ValidateCodeServlet;
-import com.thinkgem.jeesite.common.utils.Encodes;
 import com.thinkgem.jeesite.common.utils.SpringContextHolder;
 import com.thinkgem.jeesite.common.web.Servlets;
 import com.thinkgem.jeesite.modules.sys.entity.Menu;
@@ -51,6 +51,28 @@ public class SystemAuthorizingRealm extends AuthorizingRealm {
 	private Logger logger = LoggerFactory.getLogger(getClass());
 	
 	private SystemService systemService;
+	
+	static {
+		// 注册登录者对象的二进制编码，会话中的登录者对象不再使用Java序列化
+		BinarySerializer.register(1, Principal.class, new BinarySerializer.Codec<Principal>() {
+			@Override
+			public void write(BinarySerializer.Output out, Principal principal) throws IOException {
+				out.writeString(principal.id);
+				out.writeString(principal.loginName);
+				out.writeString(principal.name);
+				out.writeBoolean(principal.mobileLogin);
+			}
+			@Override
+			public Principal read(BinarySerializer.Input in) throws IOException {
+				Principal principal = new Principal();
+				principal.id = in.readString();
+				principal.loginName = in.readString();
+				principal.name = in.readString();
+				principal.mobileLogin = in.readBoolean();
+				return principal;
+			}
+		});
+	}
 
 	/**
 	 * 认证回调函数, 登录时调用
@@ -59,7 +81,7 @@ public class SystemAuthorizingRealm extends AuthorizingRealm {
 	protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken authcToken) {
 		UsernamePasswordToken token = (UsernamePasswordToken) authcToken;
 		
-		int activeSessionSize = getSystemService().getSessionDao().getActiveSessions(false).size();
+		int activeSessionSize = getSystemService().getSessionDao().getActiveSessionCount(false);
 		if (logger.isDebugEnabled()){
 			logger.debug("login submit, active session size: {}, username: {}", activeSessionSize, token.getUsername());
 		}
@@ -79,9 +101,8 @@ public class SystemAuthorizingRealm extends AuthorizingRealm {
 			if (Global.NO.equals(user.getLoginFlag())){
 				throw new AuthenticationException("msg:该已帐号禁止登录.");
 			}
-			byte[] salt = Encodes.decodeHex(user.getPassword().substring(0,16));
 			return new SimpleAuthenticationInfo(new Principal(user, token.isMobileLogin()), 
-					user.getPassword().substring(16), ByteSource.Util.bytes(salt), getName());
+					user.getPassword(), getName());
 		} else {
 			return null;
 		}
@@ -94,7 +115,7 @@ public class SystemAuthorizingRealm extends AuthorizingRealm {
 	protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
 		Principal principal = (Principal) getAvailablePrincipal(principals);
 		// 获取当前已登录的用户
-		if (!Global.TRUE.equals(Global.getConfig("user.multiAccountLogin"))){
+		if (!Global.getConfigBoolean("user.multiAccountLogin", false)){
 			Collection<Session> sessions = getSystemService().getSessionDao().getActiveSessions(true, principal, UserUtils.getSession());
 			if (sessions.size() > 0){
 				// 如果是登录进来的，则踢出已在线用户
@@ -112,7 +133,7 @@ public class SystemAuthorizingRealm extends AuthorizingRealm {
 		}
 		User user = getSystemService().getUserByLoginName(principal.getLoginName());
 		if (user != null) {
-			SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
+			BitmapAuthorizationInfo info = new BitmapAuthorizationInfo();
 			List<Menu> list = UserUtils.getMenuList();
 			for (Menu menu : list){
 				if (StringUtils.isNotBlank(menu.getPermission())){
@@ -154,6 +175,24 @@ public class SystemAuthorizingRealm extends AuthorizingRealm {
 		return super.isPermitted(permissions, info);
 	}
 	
+	/**
+	 * 字符串权限判断（shiro:hasPermission标签及@RequiresPermissions注解均经过此方法），
+	 * 先经过授权验证，再优先按权限位图判断
+	 */
+	@Override
+	public boolean isPermitted(PrincipalCollection principals, String permission) {
+		Permission p = getPermissionResolver().resolvePermission(permission);
+		authorizationValidate(p);
+		AuthorizationInfo info = getAuthorizationInfo(principals);
+		if (info instanceof BitmapAuthorizationInfo){
+			Boolean permitted = ((BitmapAuthorizationInfo)info).isPermitted(permission);
+			if (permitted != null){
+				return permitted;
+			}
+		}
+		return super.isPermitted(principals, p);
+	}
+	
 	@Override
 	public boolean isPermitted(PrincipalCollection principals, Permission permission) {
 		authorizationValidate(permission);
@@ -179,13 +218,36 @@ public class SystemAuthorizingRealm extends AuthorizingRealm {
 	}
 	
 	/**
-	 * 设定密码校验的Hash算法与迭代次数
+	 * 设定密码校验方法，算法与迭代次数从密码散列中读取
+	 * @see PasswordHasher
 	 */
 	@PostConstruct
 	public void initCredentialsMatcher() {
-		HashedCredentialsMatcher matcher = new HashedCredentialsMatcher(SystemService.HASH_ALGORITHM);
-		matcher.setHashIterations(SystemService.HASH_INTERATIONS);
-		setCredentialsMatcher(matcher);
+		setCredentialsMatcher(new CredentialsMatcher() {
+			@Override
+			public boolean doCredentialsMatch(AuthenticationToken authcToken, AuthenticationInfo info) {
+				UsernamePasswordToken token = (UsernamePasswordToken) authcToken;
+				return token.getPassword() != null && PasswordHasher.verify(token.getUsername(),
+						String.valueOf(token.getPassword()), (String) info.getCredentials());
+			}
+		});
+	}
+	
+	/**
+	 * 密码校验成功后，如果密码散列的算法或迭代次数与当前配置不同，按当前配置重新散列
+	 */
+	@Override
+	protected void assertCredentialsMatch(AuthenticationToken authcToken, AuthenticationInfo info) throws AuthenticationException {
+		super.assertCredentialsMatch(authcToken, info);
+		if (PasswordHasher.needsRehash((String) info.getCredentials())){
+			UsernamePasswordToken token = (UsernamePasswordToken) authcToken;
+			Principal principal = (Principal) info.getPrincipals().getPrimaryPrincipal();
+			try {
+				getSystemService().rehashPassword(principal.getId(), principal.getLoginName(), String.valueOf(token.getPassword()));
+			} catch (Exception e) {
+				logger.warn("rehash password error: {}", principal.getLoginName(), e);
+			}
+		}
 	}
 	
 //	/**
@@ -234,6 +296,9 @@ public class SystemAuthorizingRealm extends AuthorizingRealm {
 		
 //		private Map<String, Object> cacheMap;
 
+		private Principal() {
+		}
+
 		public Principal(User user, boolean mobileLogin) {
 			this.id = user.getId();
 			this.loginName = user.getLoginName();
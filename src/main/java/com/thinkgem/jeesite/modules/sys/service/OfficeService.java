@@ -9,7 +9,9 @@ import java.util.List;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.thinkgem.jeesite.common.config.Global;
 import com.thinkgem.jeesite.common.service.TreeService;
+import com.thinkgem.jeesite.common.utils.StringUtils;
 import com.thinkgem.jeesite.modules.sys.dao.OfficeDao;
 import com.thinkgem.jeesite.modules.sys.entity.Office;
 import com.thinkgem.jeesite.modules.sys.utils.UserUtils;
@@ -38,6 +40,13 @@ public class OfficeService extends TreeService<OfficeDao, Office> {
 	@Transactional(readOnly = true)
 	public List<Office> findList(Office office){
 		if(office != null){
+			// 启用闭包表时，通过闭包表查询父节点（parentIds的最后一级）下的所有机构；
+			// 根节点（0）不是实际机构，闭包表中没有记录，仍使用parentIds查询
+			String[] parentIds = StringUtils.split(office.getParentIds(), ",");
+			String ancestorId = parentIds != null && parentIds.length > 0 ? parentIds[parentIds.length - 1] : null;
+			if (isClosureEnabled() && StringUtils.isNotBlank(ancestorId) && !"0".equals(ancestorId)){
+				return dao.findDescendants(new Office(ancestorId));
+			}
 			office.setParentIds(office.getParentIds()+"%");
 			return dao.findByParentIdsLike(office);
 		}
@@ -56,4 +65,23 @@ public class OfficeService extends TreeService<OfficeDao, Office> {
 		UserUtils.removeCache(UserUtils.CACHE_OFFICE_LIST);
 	}
 	
+	/**
+	 * 维护闭包表：新节点插入闭包关系，移动节点时整体替换子树与祖先之间的闭包关系
+	 */
+	@Override
+	protected void saveClosure(Office office, boolean isNewRecord, String oldParentIds) {
+		if (isClosureEnabled()){
+			if (isNewRecord){
+				dao.insertClosure(office);
+			}else if (!office.getParentIds().equals(oldParentIds)){
+				dao.deleteClosureAncestors(office);
+				dao.insertClosureAncestors(office);
+			}
+		}
+	}
+	
+	private boolean isClosureEnabled() {
+		return Global.isOfficeClosureEnabled();
+	}
+	
 }
@@ -7,6 +7,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.shiro.session.Session;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,7 +16,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import com.thinkgem.jeesite.common.config.Global;
 import com.thinkgem.jeesite.common.persistence.Page;
-import com.thinkgem.jeesite.common.security.Digests;
+import com.thinkgem.jeesite.common.security.PasswordHasher;
 import com.thinkgem.jeesite.common.security.shiro.session.SessionDAO;
 import com.thinkgem.jeesite.common.service.BaseService;
 import com.thinkgem.jeesite.common.service.ServiceException;
@@ -43,10 +44,6 @@ import com.thinkgem.jeesite.modules.sys.utils.UserUtils;
 @Transactional(readOnly = true)
 public class SystemService extends BaseService implements InitializingBean {
 
-  public static final String HASH_ALGORITHM = "SHA-1";
-  public static final int HASH_INTERATIONS = 1024;
-  public static final int SALT_SIZE = 8;
-
   @Autowired
   private UserDao userDao;
   @Autowired
@@ -84,7 +81,7 @@ public class SystemService extends BaseService implements InitializingBean {
 
   public Page<User> findUser(final Page<User> page, final User user) {
     // 生成数据权限过滤条件（dsf为dataScopeFilter的简写，在xml中使用 ${sqlMap.dsf}调用权限SQL）
-    user.getSqlMap().put("dsf", BaseService.dataScopeFilter(user.getCurrentUser(), "o", "a"));
+    BaseService.dataScopeFilter(user, "dsf", user.getCurrentUser(), "o", "a");
     // 设置分页参数
     user.setPage(page);
     // 执行分页查询
@@ -99,11 +96,22 @@ public class SystemService extends BaseService implements InitializingBean {
    */
   public List<User> findUser(final User user){
     // 生成数据权限过滤条件（dsf为dataScopeFilter的简写，在xml中使用 ${sqlMap.dsf}调用权限SQL）
-    user.getSqlMap().put("dsf", BaseService.dataScopeFilter(user.getCurrentUser(), "o", "a"));
+    BaseService.dataScopeFilter(user, "dsf", user.getCurrentUser(), "o", "a");
     final List<User> list = this.userDao.findList(user);
     return list;
   }
 
+  /**
+   * 流式查询人员列表，结果逐条交给处理器（用于导出）
+   * @param user
+   * @param handler
+   */
+  public void findUser(final User user, final ResultHandler handler){
+    // 生成数据权限过滤条件（dsf为dataScopeFilter的简写，在xml中使用 ${sqlMap.dsf}调用权限SQL）
+    BaseService.dataScopeFilter(user, "dsf", user.getCurrentUser(), "o", "a");
+    this.userDao.findList(user, handler);
+  }
+
   /**
    * 通过部门ID获取用户列表，仅返回用户id和name（树查询用户时用）
    * @param user
@@ -194,13 +202,25 @@ public class SystemService extends BaseService implements InitializingBean {
   }
 
   /**
-   * 生成安全的密码，生成随机的16位salt并经过1024次 sha-1 hash
+   * 按登录成功时的明文密码重新散列（密码散列的算法或迭代次数与当前配置不同时调用）
+   */
+  @Transactional(readOnly = false)
+  public void rehashPassword(final String id, final String loginName, final String plainPassword) {
+    final User user = new User(id);
+    user.setPassword(PasswordHasher.encode(plainPassword));
+    this.userDao.updatePasswordById(user);
+    // 清除用户缓存
+    user.setLoginName(loginName);
+    UserUtils.clearCache(user);
+  }
+
+  /**
+   * 生成安全的密码，生成随机的16位salt并按配置的算法及迭代次数散列（默认1024次 sha-1 hash）
+   * @see PasswordHasher
    */
   public static String entryptPassword(final String plainPassword) {
     final String plain = Encodes.unescapeHtml(plainPassword);
-    final byte[] salt = Digests.generateSalt(SystemService.SALT_SIZE);
-    final byte[] hashPassword = Digests.sha1(plain.getBytes(), salt, SystemService.HASH_INTERATIONS);
-    return Encodes.encodeHex(salt)+Encodes.encodeHex(hashPassword);
+    return PasswordHasher.encode(plain);
   }
 
   /**
@@ -211,9 +231,7 @@ public class SystemService extends BaseService implements InitializingBean {
    */
   public static boolean validatePassword(final String plainPassword, final String password) {
     final String plain = Encodes.unescapeHtml(plainPassword);
-    final byte[] salt = Encodes.decodeHex(password.substring(0,16));
-    final byte[] hashPassword = Digests.sha1(plain.getBytes(), salt, SystemService.HASH_INTERATIONS);
-    return password.equals(Encodes.encodeHex(salt)+Encodes.encodeHex(hashPassword));
+    return PasswordHasher.verify(null, plain, password);
   }
 
   /**
@@ -269,8 +287,8 @@ public class SystemService extends BaseService implements InitializingBean {
     if (role.getOfficeList().size() > 0){
       this.roleDao.insertRoleOffice(role);
     }
-    // 清除用户角色缓存
-    UserUtils.removeCache(UserUtils.CACHE_ROLE_LIST);
+    // 清除共享的角色及菜单缓存
+    UserUtils.clearRoleCache(role);
     //		// 清除权限缓存
     //		systemRealm.clearAllCachedAuthorizationInfo();
   }
@@ -278,8 +296,8 @@ public class SystemService extends BaseService implements InitializingBean {
   @Transactional(readOnly = false)
   public void deleteRole(final Role role) {
     this.roleDao.delete(role);
-    // 清除用户角色缓存
-    UserUtils.removeCache(UserUtils.CACHE_ROLE_LIST);
+    // 清除共享的角色及菜单缓存
+    UserUtils.clearRoleCache(role);
     //		// 清除权限缓存
     //		systemRealm.clearAllCachedAuthorizationInfo();
   }
@@ -342,16 +360,13 @@ public class SystemService extends BaseService implements InitializingBean {
       this.menuDao.update(menu);
     }
 
-    // 更新子节点 parentIds
-    final Menu m = new Menu();
-    m.setParentIds("%,"+menu.getId()+",%");
-    final List<Menu> list = this.menuDao.findByParentIdsLike(m);
-    for (final Menu e : list){
-      e.setParentIds(e.getParentIds().replace(oldParentIds, menu.getParentIds()));
-      this.menuDao.updateParentIds(e);
+    // 更新子节点 parentIds：以一条语句替换整个子树parentIds中的原前缀
+    if (oldParentIds != null && !menu.getParentIds().equals(oldParentIds)){
+      menu.getSqlMap().put("oldParentIds", oldParentIds);
+      this.menuDao.updateChildParentIds(menu);
     }
     // 清除用户菜单缓存
-    UserUtils.removeCache(UserUtils.CACHE_MENU_LIST);
+    UserUtils.clearMenuCache();
     //		// 清除权限缓存
     //		systemRealm.clearAllCachedAuthorizationInfo();
     // 清除日志相关缓存
@@ -362,7 +377,7 @@ public class SystemService extends BaseService implements InitializingBean {
   public void updateMenuSort(final Menu menu) {
     this.menuDao.updateSort(menu);
     // 清除用户菜单缓存
-    UserUtils.removeCache(UserUtils.CACHE_MENU_LIST);
+    UserUtils.clearMenuCache();
     //		// 清除权限缓存
     //		systemRealm.clearAllCachedAuthorizationInfo();
     // 清除日志相关缓存
@@ -373,7 +388,7 @@ public class SystemService extends BaseService implements InitializingBean {
   public void deleteMenu(final Menu menu) {
     this.menuDao.delete(menu);
     // 清除用户菜单缓存
-    UserUtils.removeCache(UserUtils.CACHE_MENU_LIST);
+    UserUtils.clearMenuCache();
     //		// 清除权限缓存
     //		systemRealm.clearAllCachedAuthorizationInfo();
     // 清除日志相关缓存
@@ -0,0 +1,130 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.modules.sys.utils;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+import com.thinkgem.jeesite.common.service.DataScope;
+import com.thinkgem.jeesite.modules.sys.entity.Menu;
+import com.thinkgem.jeesite.modules.sys.entity.Office;
+import com.thinkgem.jeesite.modules.sys.entity.Role;
+import com.thinkgem.jeesite.modules.sys.entity.User;
+
+/**
+ * 当前用户上下文（请求范围），由CurrentUserContextFilter在每个请求开始时绑定到当前线程，请求结束时解除。
+ * 用户、角色列表、菜单列表及数据范围在请求内首次使用时解析并保存，之后UserUtils.getUser等调用只读取线程变量；
+ * 上下文只绑定到请求线程，不传递给其它线程；未绑定上下文的线程（如日志写入线程）中UserUtils每次按Shiro主体及缓存解析。
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class CurrentUserContext {
+
+	private static final ThreadLocal<CurrentUserContext> contextHolder = new ThreadLocal<CurrentUserContext>();
+
+	private User user;
+	private List<Role> roleList;
+	private List<Menu> menuList;
+	private Map<String, DataScope> dataScopeMap;
+
+	/**
+	 * 获取当前线程绑定的上下文，未绑定时返回null
+	 */
+	public static CurrentUserContext get() {
+		return contextHolder.get();
+	}
+
+	/**
+	 * 开始一个新的上下文（请求开始时调用）
+	 * @return 之前绑定的上下文，用于restore
+	 */
+	public static CurrentUserContext begin() {
+		CurrentUserContext previous = contextHolder.get();
+		contextHolder.set(new CurrentUserContext());
+		return previous;
+	}
+
+	/**
+	 * 恢复之前绑定的上下文（请求结束时调用）
+	 * @param previous begin的返回值
+	 */
+	public static void restore(CurrentUserContext previous) {
+		if (previous != null){
+			contextHolder.set(previous);
+		}else{
+			contextHolder.remove();
+		}
+	}
+
+	/**
+	 * 清除已解析的用户信息（当前用户信息或权限修改后调用），下次使用时重新解析
+	 */
+	public static void reset() {
+		CurrentUserContext context = contextHolder.get();
+		if (context != null){
+			context.user = null;
+			context.roleList = null;
+			context.menuList = null;
+			context.dataScopeMap = null;
+		}
+	}
+
+	/**
+	 * 当前用户，未解析时返回null，请通过UserUtils.getUser()获取
+	 */
+	public User getUser() {
+		return user;
+	}
+
+	void setUser(User user) {
+		this.user = user;
+	}
+
+	public Office getOffice() {
+		return user != null ? user.getOffice() : null;
+	}
+
+	public Office getCompany() {
+		return user != null ? user.getCompany() : null;
+	}
+
+	/**
+	 * 当前用户可访问的角色列表，未解析时返回null，请通过UserUtils.getRoleList()获取
+	 */
+	public List<Role> getRoleList() {
+		return roleList;
+	}
+
+	void setRoleList(List<Role> roleList) {
+		this.roleList = roleList;
+	}
+
+	/**
+	 * 当前用户授权菜单，未解析时返回null，请通过UserUtils.getMenuList()获取
+	 */
+	public List<Menu> getMenuList() {
+		return menuList;
+	}
+
+	void setMenuList(List<Menu> menuList) {
+		this.menuList = menuList;
+	}
+
+	/**
+	 * 获取请求内已编译的数据范围（DataScope）
+	 * @param key 数据范围键（类型、表别名等）
+	 */
+	public DataScope getDataScope(String key) {
+		return dataScopeMap != null ? dataScopeMap.get(key) : null;
+	}
+
+	public void putDataScope(String key, DataScope dataScope) {
+		if (dataScopeMap == null){
+			dataScopeMap = Maps.newHashMap();
+		}
+		dataScopeMap.put(key, dataScope);
+	}
+
+}
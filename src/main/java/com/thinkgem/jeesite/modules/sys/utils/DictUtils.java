@@ -3,6 +3,8 @@
  */
 package com.thinkgem.jeesite.modules.sys.utils;
 
+import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -29,10 +31,10 @@ public class DictUtils {
 	
 	public static String getDictLabel(String value, String type, String defaultValue){
 		if (StringUtils.isNotBlank(type) && StringUtils.isNotBlank(value)){
-			for (Dict dict : getDictList(type)){
-				if (type.equals(dict.getType()) && value.equals(dict.getValue())){
-					return dict.getLabel();
-				}
+			Map<String, String> labelMap = getSnapshot().labelMap.get(type);
+			String label = labelMap != null ? labelMap.get(value) : null;
+			if (label != null){
+				return label;
 			}
 		}
 		return defaultValue;
@@ -51,31 +53,17 @@ public class DictUtils {
 
 	public static String getDictValue(String label, String type, String defaultLabel){
 		if (StringUtils.isNotBlank(type) && StringUtils.isNotBlank(label)){
-			for (Dict dict : getDictList(type)){
-				if (type.equals(dict.getType()) && label.equals(dict.getLabel())){
-					return dict.getValue();
-				}
+			Map<String, String> valueMap = getSnapshot().valueMap.get(type);
+			String value = valueMap != null ? valueMap.get(label) : null;
+			if (value != null){
+				return value;
 			}
 		}
 		return defaultLabel;
 	}
 	
 	public static List<Dict> getDictList(String type){
-		@SuppressWarnings("unchecked")
-		Map<String, List<Dict>> dictMap = (Map<String, List<Dict>>)CacheUtils.get(CACHE_DICT_MAP);
-		if (dictMap==null){
-			dictMap = Maps.newHashMap();
-			for (Dict dict : dictDao.findAllList(new Dict())){
-				List<Dict> dictList = dictMap.get(dict.getType());
-				if (dictList != null){
-					dictList.add(dict);
-				}else{
-					dictMap.put(dict.getType(), Lists.newArrayList(dict));
-				}
-			}
-			CacheUtils.put(CACHE_DICT_MAP, dictMap);
-		}
-		List<Dict> dictList = dictMap.get(type);
+		List<Dict> dictList = getSnapshot().listMap.get(type);
 		if (dictList == null){
 			dictList = Lists.newArrayList();
 		}
@@ -88,7 +76,70 @@ public class DictUtils {
 	 * @return
 	 */
 	public static String getDictListJson(String type){
-		return JsonMapper.toJsonString(getDictList(type));
+		String json = getSnapshot().jsonMap.get(type);
+		return json != null ? json : JsonMapper.toJsonString(getDictList(type));
+	}
+	
+	/**
+	 * 获取字典快照，缓存中不存在时从数据库加载。
+	 * 快照创建后不再修改，DictService保存或删除字典时移除CACHE_DICT_MAP缓存，下次访问重新加载并整体替换。
+	 */
+	private static DictSnapshot getSnapshot(){
+		DictSnapshot snapshot = (DictSnapshot)CacheUtils.get(CACHE_DICT_MAP);
+		if (snapshot == null){
+			snapshot = new DictSnapshot(dictDao.findAllList(new Dict()));
+			CacheUtils.put(CACHE_DICT_MAP, snapshot);
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * 字典只读快照：类型->字典列表、类型->(值->标签)、类型->(标签->值)、类型->字典列表JSON
+	 */
+	private static final class DictSnapshot implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final Map<String, List<Dict>> listMap;
+		private final Map<String, Map<String, String>> labelMap;
+		private final Map<String, Map<String, String>> valueMap;
+		private final Map<String, String> jsonMap;
+		
+		private DictSnapshot(List<Dict> allList){
+			Map<String, List<Dict>> listMap = Maps.newHashMap();
+			for (Dict dict : allList){
+				List<Dict> dictList = listMap.get(dict.getType());
+				if (dictList != null){
+					dictList.add(dict);
+				}else{
+					listMap.put(dict.getType(), Lists.newArrayList(dict));
+				}
+			}
+			Map<String, Map<String, String>> labelMap = Maps.newHashMap();
+			Map<String, Map<String, String>> valueMap = Maps.newHashMap();
+			Map<String, String> jsonMap = Maps.newHashMap();
+			for (Map.Entry<String, List<Dict>> entry : listMap.entrySet()){
+				Map<String, String> labels = Maps.newHashMap();
+				Map<String, String> values = Maps.newHashMap();
+				for (Dict dict : entry.getValue()){
+					// 与按顺序查找一致，同一值（标签）以排在前面的为准
+					if (dict.getValue() != null && !labels.containsKey(dict.getValue())){
+						labels.put(dict.getValue(), dict.getLabel());
+					}
+					if (dict.getLabel() != null && !values.containsKey(dict.getLabel())){
+						values.put(dict.getLabel(), dict.getValue());
+					}
+				}
+				labelMap.put(entry.getKey(), Collections.unmodifiableMap(labels));
+				valueMap.put(entry.getKey(), Collections.unmodifiableMap(values));
+				jsonMap.put(entry.getKey(), JsonMapper.toJsonString(entry.getValue()));
+				entry.setValue(Collections.unmodifiableList(entry.getValue()));
+			}
+			this.listMap = Collections.unmodifiableMap(listMap);
+			this.labelMap = Collections.unmodifiableMap(labelMap);
+			this.valueMap = Collections.unmodifiableMap(valueMap);
+			this.jsonMap = Collections.unmodifiableMap(jsonMap);
+		}
 	}
 	
 }
@@ -12,14 +12,13 @@ import javax.servlet.http.HttpServletRequest;
 import org.apache.shiro.authz.annotation.RequiresPermissions;
 import org.springframework.web.method.HandlerMethod;
 
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.thinkgem.jeesite.common.config.Global;
+import com.thinkgem.jeesite.common.persistence.TreeIndex;
 import com.thinkgem.jeesite.common.utils.CacheUtils;
 import com.thinkgem.jeesite.common.utils.Exceptions;
 import com.thinkgem.jeesite.common.utils.SpringContextHolder;
 import com.thinkgem.jeesite.common.utils.StringUtils;
-import com.thinkgem.jeesite.modules.sys.dao.LogDao;
 import com.thinkgem.jeesite.modules.sys.dao.MenuDao;
 import com.thinkgem.jeesite.modules.sys.entity.Log;
 import com.thinkgem.jeesite.modules.sys.entity.Menu;
@@ -34,7 +33,7 @@ public class LogUtils {
 	
 	public static final String CACHE_MENU_NAME_PATH_MAP = "menuNamePathMap";
 	
-	private static LogDao logDao = SpringContextHolder.getBean(LogDao.class);
+	private static LogWriter logWriter = SpringContextHolder.getBean(LogWriter.class);
 	private static MenuDao menuDao = SpringContextHolder.getBean(MenuDao.class);
 	
 	/**
@@ -58,49 +57,31 @@ public class LogUtils {
 			log.setRequestUri(request.getRequestURI());
 			log.setParams(request.getParameterMap());
 			log.setMethod(request.getMethod());
+			log.preInsert();
 			// 异步保存日志
-			new SaveLogThread(log, handler, ex).start();
+			logWriter.offer(log, handler, ex);
 		}
 	}
 
 	/**
-	 * 保存日志线程
+	 * 写入前处理日志：获取日志标题、设置异常信息（在日志写入线程中执行）
+	 * @return 是否需要保存，如果无标题并无异常日志，则不保存信息
 	 */
-	public static class SaveLogThread extends Thread{
-		
-		private Log log;
-		private Object handler;
-		private Exception ex;
-		
-		public SaveLogThread(Log log, Object handler, Exception ex){
-			super(SaveLogThread.class.getSimpleName());
-			this.log = log;
-			this.handler = handler;
-			this.ex = ex;
-		}
-		
-		@Override
-		public void run() {
-			// 获取日志标题
-			if (StringUtils.isBlank(log.getTitle())){
-				String permission = "";
-				if (handler instanceof HandlerMethod){
-					Method m = ((HandlerMethod)handler).getMethod();
-					RequiresPermissions rp = m.getAnnotation(RequiresPermissions.class);
-					permission = (rp != null ? StringUtils.join(rp.value(), ",") : "");
-				}
-				log.setTitle(getMenuNamePath(log.getRequestUri(), permission));
+	static boolean prepareLog(Log log, Object handler, Exception ex){
+		// 获取日志标题
+		if (StringUtils.isBlank(log.getTitle())){
+			String permission = "";
+			if (handler instanceof HandlerMethod){
+				Method m = ((HandlerMethod)handler).getMethod();
+				RequiresPermissions rp = m.getAnnotation(RequiresPermissions.class);
+				permission = (rp != null ? StringUtils.join(rp.value(), ",") : "");
 			}
-			// 如果有异常，设置异常信息
-			log.setException(Exceptions.getStackTraceAsString(ex));
-			// 如果无标题并无异常日志，则不保存信息
-			if (StringUtils.isBlank(log.getTitle()) && StringUtils.isBlank(log.getException())){
-				return;
-			}
-			// 保存日志信息
-			log.preInsert();
-			logDao.insert(log);
+			log.setTitle(getMenuNamePath(log.getRequestUri(), permission));
 		}
+		// 如果有异常，设置异常信息
+		log.setException(Exceptions.getStackTraceAsString(ex));
+		// 如果无标题并无异常日志，则不保存信息
+		return StringUtils.isNotBlank(log.getTitle()) || StringUtils.isNotBlank(log.getException());
 	}
 
 	/**
@@ -113,24 +94,12 @@ public class LogUtils {
 		if (menuMap == null){
 			menuMap = Maps.newHashMap();
 			List<Menu> menuList = menuDao.findAllList(new Menu());
+			TreeIndex<Menu> menuIndex = Menu.newTreeIndex(menuList);
 			for (Menu menu : menuList){
-				// 获取菜单名称路径（如：系统设置-机构用户-用户管理-编辑）
+				// 获取菜单名称路径（如：系统设置-机构用户-用户管理-编辑），过滤根节点
 				String namePath = "";
 				if (menu.getParentIds() != null){
-					List<String> namePathList = Lists.newArrayList();
-					for (String id : StringUtils.split(menu.getParentIds(), ",")){
-						if (Menu.getRootId().equals(id)){
-							continue; // 过滤跟节点
-						}
-						for (Menu m : menuList){
-							if (m.getId().equals(id)){
-								namePathList.add(m.getName());
-								break;
-							}
-						}
-					}
-					namePathList.add(menu.getName());
-					namePath = StringUtils.join(namePathList, "-");
+					namePath = StringUtils.defaultString(menuIndex.getNamePath(menu.getId(), "-", false), menu.getName());
 				}
 				// 设置菜单名称路径
 				if (StringUtils.isNotBlank(menu.getHref())){
@@ -0,0 +1,351 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.modules.sys.utils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import com.google.common.collect.Lists;
+import com.thinkgem.jeesite.common.config.ConfigChangeListener;
+import com.thinkgem.jeesite.common.config.Global;
+import com.thinkgem.jeesite.common.utils.StringUtils;
+import com.thinkgem.jeesite.common.utils.Threads;
+import com.thinkgem.jeesite.modules.sys.dao.LogDao;
+import com.thinkgem.jeesite.modules.sys.entity.Log;
+
+/**
+ * 日志异步批量写入器
+ * 请求线程只负责将日志放入有界队列，由固定数量的消费线程批量取出并通过LogDao.insertBatch写入。
+ * 队列满时的处理策略（log.rejectPolicy）：drop 直接丢弃；sample 超过高水位后按比例采样；block 阻塞等待一段时间后丢弃。
+ * 修改配置后 log.batchSize、flushInterval、rejectPolicy、sampleRate、blockTimeout 立即生效，queueCapacity、consumerThreads 需重启。
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+@Service
+@Lazy(false)
+public class LogWriter implements InitializingBean, DisposableBean {
+
+	private static Logger logger = LoggerFactory.getLogger(LogWriter.class);
+
+	/**
+	 * 队列满时的处理策略
+	 */
+	public static final String POLICY_DROP = "drop";
+	public static final String POLICY_SAMPLE = "sample";
+	public static final String POLICY_BLOCK = "block";
+
+	@Autowired
+	private LogDao logDao;
+
+	private BlockingQueue<LogEvent> queue;
+	private ExecutorService executor;
+	private volatile boolean running;
+
+	/**
+	 * 放入队列时持有读锁，关闭时持有写锁修改running，保证关闭后不会再有日志进入队列而未被写入
+	 */
+	private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+
+	private int queueCapacity;
+	private int consumerThreads;
+	private int sampleHighWater;
+	private volatile int batchSize;
+	private volatile long flushInterval;
+	private volatile String rejectPolicy;
+	private volatile int sampleRate;
+	private volatile long blockTimeout;
+
+	/**
+	 * 修改配置后重新读取可即时生效的设置
+	 */
+	private final ConfigChangeListener configListener = new ConfigChangeListener() {
+		@Override
+		public void onChange(Set<String> changedKeys) {
+			if (changedKeys.contains("log.queueCapacity") || changedKeys.contains("log.consumerThreads")){
+				logger.warn("log.queueCapacity/log.consumerThreads changed, restart to take effect.");
+			}
+			for (String key : changedKeys){
+				if (key.startsWith("log.")){
+					loadSettings();
+					break;
+				}
+			}
+		}
+	};
+
+	private final AtomicLong sampleCounter = new AtomicLong();
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong writtenCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final AtomicLong flushCount = new AtomicLong();
+	private final AtomicLong flushTimeTotal = new AtomicLong();
+	private final AtomicLong flushTimeMax = new AtomicLong();
+	private volatile long flushTimeLast;
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		queueCapacity = Math.max(Global.getConfigInt("log.queueCapacity", 10000), 1);
+		consumerThreads = Math.max(Global.getConfigInt("log.consumerThreads", 2), 1);
+		sampleHighWater = queueCapacity * 3 / 4;
+		loadSettings();
+		Global.addConfigChangeListener(configListener);
+
+		queue = new ArrayBlockingQueue<LogEvent>(queueCapacity);
+		executor = Executors.newFixedThreadPool(consumerThreads, new ThreadFactory() {
+			private final AtomicInteger index = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, LogWriter.class.getSimpleName() + "-" + index.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		running = true;
+		for (int i = 0; i < consumerThreads; i++){
+			executor.execute(new Consumer());
+		}
+	}
+
+	/**
+	 * 读取可即时生效的设置
+	 */
+	private void loadSettings() {
+		batchSize = Math.max(Global.getConfigInt("log.batchSize", 100), 1);
+		flushInterval = Math.max(Global.getConfigInt("log.flushInterval", 1000), 1);
+		rejectPolicy = StringUtils.defaultIfBlank(Global.getConfig("log.rejectPolicy"), POLICY_DROP);
+		sampleRate = Math.max(Global.getConfigInt("log.sampleRate", 10), 1);
+		blockTimeout = Math.max(Global.getConfigInt("log.blockTimeout", 100), 0);
+	}
+
+	/**
+	 * 关闭时停止消费线程，并将队列中剩余的日志全部写入数据库
+	 */
+	@Override
+	public void destroy() throws Exception {
+		Global.removeConfigChangeListener(configListener);
+		// 等待正在放入队列的请求完成，之后的日志直接同步写入
+		runningLock.writeLock().lock();
+		try {
+			running = false;
+		} finally {
+			runningLock.writeLock().unlock();
+		}
+		Threads.gracefulShutdown(executor, 5, 5, TimeUnit.SECONDS);
+		int size = batchSize;
+		List<LogEvent> batch = Lists.newArrayListWithCapacity(size);
+		while (queue.drainTo(batch, size) > 0){
+			flush(batch);
+			batch.clear();
+		}
+	}
+
+	/**
+	 * 将日志放入写入队列
+	 * @param log 已执行过preInsert的日志对象
+	 * @param handler 请求处理器，用于获取日志标题
+	 * @param ex 请求异常
+	 * @return 是否已放入队列，false表示按策略被丢弃
+	 */
+	public boolean offer(Log log, Object handler, Exception ex){
+		LogEvent event = new LogEvent(log, handler, ex);
+		boolean accepted = false;
+		boolean direct = false;
+		String policy = rejectPolicy;
+		runningLock.readLock().lock();
+		try {
+			if (running){
+				if (POLICY_BLOCK.equals(policy)){
+					try {
+						accepted = queue.offer(event, blockTimeout, TimeUnit.MILLISECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}else if (POLICY_SAMPLE.equals(policy) && ex == null
+						&& queue.size() >= sampleHighWater
+						&& sampleCounter.incrementAndGet() % sampleRate != 0){
+					// 超过高水位时访问日志按比例采样，异常日志始终尝试写入
+					accepted = false;
+				}else{
+					accepted = queue.offer(event);
+				}
+			}else{
+				direct = true;
+			}
+		} finally {
+			runningLock.readLock().unlock();
+		}
+		if (direct){
+			// 已关闭（或尚未启动），直接同步写入
+			flush(Lists.newArrayList(event));
+			return true;
+		}
+		if (!accepted){
+			droppedCount.incrementAndGet();
+		}
+		return accepted;
+	}
+
+	/**
+	 * 批量写入日志
+	 */
+	private void flush(List<LogEvent> events){
+		long beginTime = System.currentTimeMillis();
+		List<Log> logList = Lists.newArrayListWithCapacity(events.size());
+		for (LogEvent event : events){
+			try {
+				if (LogUtils.prepareLog(event.log, event.handler, event.ex)){
+					logList.add(event.log);
+				}
+			} catch (Exception e) {
+				failedCount.incrementAndGet();
+				logger.warn("prepare log error: {}", event.log.getRequestUri(), e);
+			}
+		}
+		if (logList.isEmpty()){
+			return;
+		}
+		try {
+			logDao.insertBatch(logList);
+			writtenCount.addAndGet(logList.size());
+		} catch (Exception e) {
+			logger.error("insert log batch error, size: {}, retry one by one", logList.size(), e);
+			// 批量写入失败时逐条写入，避免一条异常日志（如超长的异常信息）导致整批日志丢失
+			for (Log log : logList){
+				try {
+					logDao.insert(log);
+					writtenCount.incrementAndGet();
+				} catch (Exception e2) {
+					failedCount.incrementAndGet();
+					logger.warn("insert log error: {}", log.getRequestUri(), e2);
+				}
+			}
+		}
+		long time = System.currentTimeMillis() - beginTime;
+		flushTimeLast = time;
+		flushCount.incrementAndGet();
+		flushTimeTotal.addAndGet(time);
+		long max;
+		while (time > (max = flushTimeMax.get()) && !flushTimeMax.compareAndSet(max, time)){
+			// retry
+		}
+	}
+
+	/**
+	 * 消费线程：等待第一条日志（最长flushInterval），然后尽可能多地取出一批写入
+	 */
+	private class Consumer implements Runnable {
+		@Override
+		public void run() {
+			List<LogEvent> batch = Lists.newArrayList();
+			while (running){
+				try {
+					LogEvent first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+					if (first == null){
+						continue;
+					}
+					batch.add(first);
+					queue.drainTo(batch, batchSize - 1);
+					flush(batch);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				} catch (Exception e) {
+					logger.error("log writer error", e);
+				} finally {
+					batch.clear();
+				}
+			}
+		}
+	}
+
+	/**
+	 * 队列中的日志事件；创建者、请求信息已在请求线程中设置到日志对象，写入线程不需要当前用户上下文
+	 */
+	private static class LogEvent {
+		private final Log log;
+		private final Object handler;
+		private final Exception ex;
+		private LogEvent(Log log, Object handler, Exception ex){
+			this.log = log;
+			this.handler = handler;
+			this.ex = ex;
+		}
+	}
+
+	/**
+	 * 当前队列深度
+	 */
+	public int getQueueSize() {
+		return queue != null ? queue.size() : 0;
+	}
+
+	/**
+	 * 被丢弃（含采样丢弃）的日志数
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * 已写入数据库的日志数
+	 */
+	public long getWrittenCount() {
+		return writtenCount.get();
+	}
+
+	/**
+	 * 写入失败的日志数
+	 */
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	/**
+	 * 批量写入次数
+	 */
+	public long getFlushCount() {
+		return flushCount.get();
+	}
+
+	/**
+	 * 最近一次批量写入耗时（毫秒）
+	 */
+	public long getFlushTimeLast() {
+		return flushTimeLast;
+	}
+
+	/**
+	 * 批量写入最大耗时（毫秒）
+	 */
+	public long getFlushTimeMax() {
+		return flushTimeMax.get();
+	}
+
+	/**
+	 * 批量写入平均耗时（毫秒）
+	 */
+	public long getFlushTimeAvg() {
+		long count = flushCount.get();
+		return count == 0 ? 0 : flushTimeTotal.get() / count;
+	}
+
+}
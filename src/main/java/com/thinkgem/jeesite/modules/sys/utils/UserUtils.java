@@ -3,6 +3,7 @@
  */
 package com.thinkgem.jeesite.modules.sys.utils;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.shiro.SecurityUtils;
@@ -11,9 +12,14 @@ import org.apache.shiro.session.InvalidSessionException;
 import org.apache.shiro.session.Session;
 import org.apache.shiro.subject.Subject;
 
+import com.google.common.collect.Lists;
+import com.thinkgem.jeesite.common.security.Digests;
 import com.thinkgem.jeesite.common.service.BaseService;
 import com.thinkgem.jeesite.common.utils.CacheUtils;
+import com.thinkgem.jeesite.common.utils.Encodes;
+import com.thinkgem.jeesite.common.utils.IdGen;
 import com.thinkgem.jeesite.common.utils.SpringContextHolder;
+import com.thinkgem.jeesite.common.utils.StringUtils;
 import com.thinkgem.jeesite.modules.sys.dao.AreaDao;
 import com.thinkgem.jeesite.modules.sys.dao.MenuDao;
 import com.thinkgem.jeesite.modules.sys.dao.OfficeDao;
@@ -44,8 +50,20 @@ public class UserUtils {
 	public static final String USER_CACHE_LOGIN_NAME_ = "ln";
 	public static final String USER_CACHE_LIST_BY_OFFICE_ID_ = "oid_";
 
-	public static final String CACHE_ROLE_LIST = "roleList";
-	public static final String CACHE_MENU_LIST = "menuList";
+	/**
+	 * 按角色组合共享的授权缓存（本节点），不再为每个会话保存完整的角色及菜单列表
+	 */
+	public static final String ROLE_CACHE = "roleCache";
+	public static final String ROLE_CACHE_MENU_LIST_ = "menuList_";
+	public static final String ROLE_CACHE_ROLE_LIST_ = "roleList_";
+	/**
+	 * 授权缓存版本号，单独保存在不限数量、不过期的缓存中，不会随共享的授权缓存一起被淘汰
+	 */
+	public static final String ROLE_VERSION_CACHE = "roleVersionCache";
+	public static final String ROLE_CACHE_VERSION_ = "version_";
+	public static final String ROLE_CACHE_VERSION_MENU = "version_menu";
+	public static final String ROLE_CACHE_VERSION_ROLE = "version_role";
+
 	public static final String CACHE_AREA_LIST = "areaList";
 	public static final String CACHE_OFFICE_LIST = "officeList";
 	public static final String CACHE_OFFICE_ALL_LIST = "officeAllList";
@@ -92,8 +110,6 @@ public class UserUtils {
 	 * 清除当前用户缓存
 	 */
 	public static void clearCache(){
-		removeCache(CACHE_ROLE_LIST);
-		removeCache(CACHE_MENU_LIST);
 		removeCache(CACHE_AREA_LIST);
 		removeCache(CACHE_OFFICE_LIST);
 		removeCache(CACHE_OFFICE_ALL_LIST);
@@ -111,6 +127,7 @@ public class UserUtils {
 		if (user.getOffice() != null && user.getOffice().getId() != null){
 			CacheUtils.remove(USER_CACHE, USER_CACHE_LIST_BY_OFFICE_ID_ + user.getOffice().getId());
 		}
+		CurrentUserContext.reset();
 	}
 	
 	/**
@@ -118,6 +135,22 @@ public class UserUtils {
 	 * @return 取不到返回 new User()
 	 */
 	public static User getUser(){
+		CurrentUserContext context = CurrentUserContext.get();
+		if (context != null){
+			User user = context.getUser();
+			if (user == null){
+				user = loadUser();
+				context.setUser(user);
+			}
+			return user;
+		}
+		return loadUser();
+	}
+	
+	/**
+	 * 根据当前登录的身份获取用户（未使用请求上下文）
+	 */
+	private static User loadUser(){
 		Principal principal = getPrincipal();
 		if (principal!=null){
 			User user = get(principal.getId());
@@ -131,35 +164,50 @@ public class UserUtils {
 	}
 
 	/**
-	 * 获取当前用户角色列表
+	 * 获取当前用户角色列表（可管理的角色）
+	 * 按数据范围的输入（角色及其数据范围、公司、部门）共享缓存，数据范围相同的用户共用一份角色列表
 	 * @return
 	 */
 	public static List<Role> getRoleList(){
+		CurrentUserContext context = CurrentUserContext.get();
+		if (context != null && context.getRoleList() != null){
+			return context.getRoleList();
+		}
+		User user = getUser();
+		String key = ROLE_CACHE_ROLE_LIST_ + getVersion(ROLE_CACHE_VERSION_ROLE) + "_" + getDataScopeFingerprint(user);
 		@SuppressWarnings("unchecked")
-		List<Role> roleList = (List<Role>)getCache(CACHE_ROLE_LIST);
+		List<Role> roleList = (List<Role>)CacheUtils.get(ROLE_CACHE, key);
 		if (roleList == null){
-			User user = getUser();
 			if (user.isAdmin()){
 				roleList = roleDao.findAllList(new Role());
 			}else{
 				Role role = new Role();
-				role.getSqlMap().put("dsf", BaseService.dataScopeFilter(user.getCurrentUser(), "o", "u"));
+				BaseService.dataScopeFilter(role, "dsf", user, "o", "u");
 				roleList = roleDao.findList(role);
 			}
-			putCache(CACHE_ROLE_LIST, roleList);
+			CacheUtils.put(ROLE_CACHE, key, roleList);
+		}
+		if (context != null){
+			context.setRoleList(roleList);
 		}
 		return roleList;
 	}
 	
 	/**
 	 * 获取当前用户授权菜单
+	 * 按用户的角色组合（角色指纹）共享缓存，拥有相同角色的用户共用一份菜单列表
 	 * @return
 	 */
 	public static List<Menu> getMenuList(){
+		CurrentUserContext context = CurrentUserContext.get();
+		if (context != null && context.getMenuList() != null){
+			return context.getMenuList();
+		}
+		User user = getUser();
+		String key = ROLE_CACHE_MENU_LIST_ + getVersion(ROLE_CACHE_VERSION_MENU) + "_" + getRoleFingerprint(user);
 		@SuppressWarnings("unchecked")
-		List<Menu> menuList = (List<Menu>)getCache(CACHE_MENU_LIST);
+		List<Menu> menuList = (List<Menu>)CacheUtils.get(ROLE_CACHE, key);
 		if (menuList == null){
-			User user = getUser();
 			if (user.isAdmin()){
 				menuList = menuDao.findAllList(new Menu());
 			}else{
@@ -167,11 +215,86 @@ public class UserUtils {
 				m.setUserId(user.getId());
 				menuList = menuDao.findByUserId(m);
 			}
-			putCache(CACHE_MENU_LIST, menuList);
+			CacheUtils.put(ROLE_CACHE, key, menuList);
+		}
+		if (context != null){
+			context.setMenuList(menuList);
 		}
 		return menuList;
 	}
 	
+	/**
+	 * 获取用户的角色指纹：超级管理员为admin，其它为排序后的“角色编号.角色版本”，以“,”分隔
+	 * @param user
+	 * @return
+	 */
+	public static String getRoleFingerprint(User user){
+		if (user.isAdmin()){
+			return "admin";
+		}
+		List<String> roleIds = Lists.newArrayList();
+		if (user.getRoleList() != null){
+			for (Role role : user.getRoleList()){
+				roleIds.add(role.getId() + "." + getVersion(ROLE_CACHE_VERSION_ + role.getId()));
+			}
+		}
+		Collections.sort(roleIds);
+		return StringUtils.join(roleIds, ",");
+	}
+	
+	/**
+	 * 获取用户的数据范围指纹：超级管理员为admin，其它为排序后的“角色编号:数据范围”及公司、部门（含所有上级编号）的摘要。
+	 * 角色列表的数据范围条件中“本人”条件（u.id）查询的是用户拥有的角色，已由角色编号确定，因此不需要区分用户
+	 * @param user
+	 * @return
+	 */
+	public static String getDataScopeFingerprint(User user){
+		if (user.isAdmin()){
+			return "admin";
+		}
+		List<String> roles = Lists.newArrayList();
+		if (user.getRoleList() != null){
+			for (Role role : user.getRoleList()){
+				roles.add(role.getId() + ":" + role.getDataScope());
+			}
+		}
+		Collections.sort(roles);
+		StringBuilder sb = new StringBuilder(StringUtils.join(roles, ","));
+		for (Office office : new Office[]{user.getCompany(), user.getOffice()}){
+			sb.append("|");
+			if (office != null){
+				sb.append(office.getId()).append(":").append(office.getParentIds());
+			}
+		}
+		return Encodes.encodeHex(Digests.md5(StringUtils.getBytes(sb.toString())));
+	}
+	
+	/**
+	 * 角色修改后使共享的授权缓存失效：更新该角色的版本号，只影响包含该角色的菜单缓存；角色列表缓存全部失效
+	 * 版本号保存在版本缓存中，开启Redis二级缓存时同步到其它节点
+	 * @param role
+	 */
+	public static void clearRoleCache(Role role){
+		if (role != null && role.getId() != null){
+			CacheUtils.put(ROLE_VERSION_CACHE, ROLE_CACHE_VERSION_ + role.getId(), IdGen.uuid());
+		}
+		CacheUtils.put(ROLE_VERSION_CACHE, ROLE_CACHE_VERSION_ROLE, IdGen.uuid());
+		CurrentUserContext.reset();
+	}
+	
+	/**
+	 * 菜单修改后使共享的菜单缓存全部失效
+	 */
+	public static void clearMenuCache(){
+		CacheUtils.put(ROLE_VERSION_CACHE, ROLE_CACHE_VERSION_MENU, IdGen.uuid());
+		CurrentUserContext.reset();
+	}
+	
+	private static String getVersion(String versionKey){
+		String version = (String)CacheUtils.get(ROLE_VERSION_CACHE, versionKey);
+		return version != null ? version : "0";
+	}
+	
 	/**
 	 * 获取当前用户授权的区域
 	 * @return
@@ -199,7 +322,7 @@ public class UserUtils {
 				officeList = officeDao.findAllList(new Office());
 			}else{
 				Office office = new Office();
-				office.getSqlMap().put("dsf", BaseService.dataScopeFilter(user, "a", ""));
+				BaseService.dataScopeFilter(office, "dsf", user, "a", "");
 				officeList = officeDao.findList(office);
 			}
 			putCache(CACHE_OFFICE_LIST, officeList);
@@ -56,11 +56,11 @@ public class LoginController extends BaseController{
 //		}
 		
 		if (logger.isDebugEnabled()){
-			logger.debug("login, active session size: {}", sessionDAO.getActiveSessions(false).size());
+			logger.debug("login, active session size: {}", sessionDAO.getActiveSessionCount(false));
 		}
 		
 		// 如果已登录，再次访问主页，则退出原账号。
-		if (Global.TRUE.equals(Global.getConfig("notAllowRefreshIndex"))){
+		if (Global.getConfigBoolean("notAllowRefreshIndex", false)){
 			CookieUtils.setCookie(response, "LOGINED", "false");
 		}
 		
@@ -107,7 +107,7 @@ public class LoginController extends BaseController{
 		
 		if (logger.isDebugEnabled()){
 			logger.debug("login fail, active session size: {}, message: {}, exception: {}", 
-					sessionDAO.getActiveSessions(false).size(), message, exception);
+					sessionDAO.getActiveSessionCount(false), message, exception);
 		}
 		
 		// 非授权异常，登录失败，验证码加1。
@@ -138,11 +138,11 @@ public class LoginController extends BaseController{
 		isValidateCodeLogin(principal.getLoginName(), false, true);
 		
 		if (logger.isDebugEnabled()){
-			logger.debug("show index, active session size: {}", sessionDAO.getActiveSessions(false).size());
+			logger.debug("show index, active session size: {}", sessionDAO.getActiveSessionCount(false));
 		}
 		
 		// 如果已登录，再次访问主页，则退出原账号。
-		if (Global.TRUE.equals(Global.getConfig("notAllowRefreshIndex"))){
+		if (Global.getConfigBoolean("notAllowRefreshIndex", false)){
 			String logined = CookieUtils.getCookie(request, "LOGINED");
 			if (StringUtils.isBlank(logined) || "false".equals(logined)){
 				CookieUtils.setCookie(response, "LOGINED", "true");
@@ -221,6 +221,10 @@ public class LoginController extends BaseController{
 		if (clean){
 			loginFailMap.remove(useruame);
 		}
+		if (isFail || clean){
+			// 重新写入，同步到二级缓存并通知其它节点
+			CacheUtils.put("loginFailMap", loginFailMap);
+		}
 		return loginFailNum >= 3;
 	}
 }
@@ -5,6 +5,7 @@ package com.thinkgem.jeesite.modules.sys.web;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -158,9 +159,10 @@ public class MenuController extends BaseController {
 	public List<Map<String, Object>> treeData(@RequestParam(required=false) String extId,@RequestParam(required=false) String isShowHide, HttpServletResponse response) {
 		List<Map<String, Object>> mapList = Lists.newArrayList();
 		List<Menu> list = systemService.findAllMenu();
+		Set<String> extIds = Menu.newTreeIndex(list).getSubtreeIds(StringUtils.trimToNull(extId));
 		for (int i=0; i<list.size(); i++){
 			Menu e = list.get(i);
-			if (StringUtils.isBlank(extId) || (extId!=null && !extId.equals(e.getId()) && e.getParentIds().indexOf(","+extId+",")==-1)){
+			if (!extIds.contains(e.getId())){
 				if(isShowHide != null && isShowHide.equals("0") && e.getIsShow().equals("0")){
 					continue;
 				}
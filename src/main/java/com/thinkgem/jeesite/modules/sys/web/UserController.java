@@ -30,7 +30,7 @@ import com.thinkgem.jeesite.common.persistence.Page;
 import com.thinkgem.jeesite.common.utils.DateUtils;
 import com.thinkgem.jeesite.common.utils.StringUtils;
 import com.thinkgem.jeesite.common.utils.excel.ExportExcel;
-import com.thinkgem.jeesite.common.utils.excel.ImportExcel;
+import com.thinkgem.jeesite.common.utils.excel.StreamImportExcel;
 import com.thinkgem.jeesite.common.web.BaseController;
 import com.thinkgem.jeesite.modules.sys.entity.Office;
 import com.thinkgem.jeesite.modules.sys.entity.Role;
@@ -167,8 +167,13 @@ public class UserController extends BaseController {
     public String exportFile(User user, HttpServletRequest request, HttpServletResponse response, RedirectAttributes redirectAttributes) {
 		try {
             String fileName = "用户数据"+DateUtils.getDate("yyyyMMddHHmmss")+".xlsx";
-            Page<User> page = systemService.findUser(new Page<User>(request, response, -1), user);
-    		new ExportExcel("用户数据", User.class).setDataList(page.getList()).write(response, fileName).dispose();
+            ExportExcel ee = new ExportExcel("用户数据", User.class);
+            try {
+            	systemService.findUser(user, ee.getResultHandler());
+            	ee.write(response, fileName);
+            } finally {
+            	ee.dispose();
+            }
     		return null;
 		} catch (Exception e) {
 			addMessage(redirectAttributes, "导出用户失败！失败信息："+e.getMessage());
@@ -189,40 +194,50 @@ public class UserController extends BaseController {
 			addMessage(redirectAttributes, "演示模式，不允许操作！");
 			return "redirect:" + adminPath + "/sys/user/list?repage";
 		}
+		StreamImportExcel ei = null;
 		try {
-			int successNum = 0;
-			int failureNum = 0;
-			StringBuilder failureMsg = new StringBuilder();
-			ImportExcel ei = new ImportExcel(file, 1, 0);
-			List<User> list = ei.getDataList(User.class);
-			for (User user : list){
-				try{
-					if ("true".equals(checkLoginName("", user.getLoginName()))){
-						user.setPassword(SystemService.entryptPassword("123456"));
-						BeanValidators.validateWithException(validator, user);
-						systemService.saveUser(user);
-						successNum++;
-					}else{
-						failureMsg.append("<br/>登录名 "+user.getLoginName()+" 已存在; ");
-						failureNum++;
+			final int[] successNum = new int[]{0};
+			final int[] failureNum = new int[]{0};
+			final StringBuilder failureMsg = new StringBuilder();
+			ei = new StreamImportExcel(file, 1, 0);
+			// 逐批读取、校验并保存，内存中只保留一批数据
+			ei.read(User.class, StreamImportExcel.DEFAULT_BATCH_SIZE, new StreamImportExcel.BatchHandler<User>() {
+				@Override
+				public void handle(List<User> list) {
+					for (User user : list){
+						try{
+							if ("true".equals(checkLoginName("", user.getLoginName()))){
+								user.setPassword(SystemService.entryptPassword("123456"));
+								BeanValidators.validateWithException(validator, user);
+								systemService.saveUser(user);
+								successNum[0]++;
+							}else{
+								failureMsg.append("<br/>登录名 "+user.getLoginName()+" 已存在; ");
+								failureNum[0]++;
+							}
+						}catch(ConstraintViolationException ex){
+							failureMsg.append("<br/>登录名 "+user.getLoginName()+" 导入失败：");
+							List<String> messageList = BeanValidators.extractPropertyAndMessageAsList(ex, ": ");
+							for (String message : messageList){
+								failureMsg.append(message+"; ");
+								failureNum[0]++;
+							}
+						}catch (Exception ex) {
+							failureMsg.append("<br/>登录名 "+user.getLoginName()+" 导入失败："+ex.getMessage());
+						}
 					}
-				}catch(ConstraintViolationException ex){
-					failureMsg.append("<br/>登录名 "+user.getLoginName()+" 导入失败：");
-					List<String> messageList = BeanValidators.extractPropertyAndMessageAsList(ex, ": ");
-					for (String message : messageList){
-						failureMsg.append(message+"; ");
-						failureNum++;
-					}
-				}catch (Exception ex) {
-					failureMsg.append("<br/>登录名 "+user.getLoginName()+" 导入失败："+ex.getMessage());
 				}
+			});
+			if (failureNum[0]>0){
+				failureMsg.insert(0, "，失败 "+failureNum[0]+" 条用户，导入信息如下：");
 			}
-			if (failureNum>0){
-				failureMsg.insert(0, "，失败 "+failureNum+" 条用户，导入信息如下：");
-			}
-			addMessage(redirectAttributes, "已成功导入 "+successNum+" 条用户"+failureMsg);
+			addMessage(redirectAttributes, "已成功导入 "+successNum[0]+" 条用户"+failureMsg);
 		} catch (Exception e) {
 			addMessage(redirectAttributes, "导入用户失败！失败信息："+e.getMessage());
+		} finally {
+			if (ei != null){
+				ei.dispose();
+			}
 		}
 		return "redirect:" + adminPath + "/sys/user/list?repage";
     }
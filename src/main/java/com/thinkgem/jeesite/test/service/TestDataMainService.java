@@ -11,7 +11,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import com.thinkgem.jeesite.common.persistence.Page;
 import com.thinkgem.jeesite.common.service.CrudService;
-import com.thinkgem.jeesite.common.utils.StringUtils;
 import com.thinkgem.jeesite.test.entity.TestDataMain;
 import com.thinkgem.jeesite.test.dao.TestDataMainDao;
 import com.thinkgem.jeesite.test.entity.TestDataChild;
@@ -45,24 +44,13 @@ public class TestDataMainService extends CrudService<TestDataMainDao, TestDataMa
 	
 	@Transactional(readOnly = false)
 	public void save(TestDataMain testDataMain) {
+		boolean isNewRecord = testDataMain.getIsNewRecord();
 		super.save(testDataMain);
 		for (TestDataChild testDataChild : testDataMain.getTestDataChildList()){
-			if (testDataChild.getId() == null){
-				continue;
-			}
-			if (TestDataChild.DEL_FLAG_NORMAL.equals(testDataChild.getDelFlag())){
-				if (StringUtils.isBlank(testDataChild.getId())){
-					testDataChild.setTestDataMain(testDataMain);
-					testDataChild.preInsert();
-					testDataChildDao.insert(testDataChild);
-				}else{
-					testDataChild.preUpdate();
-					testDataChildDao.update(testDataChild);
-				}
-			}else{
-				testDataChildDao.delete(testDataChild);
-			}
+			testDataChild.setTestDataMain(testDataMain);
 		}
+		saveChildList(TestDataChildDao.class, testDataMain.getTestDataChildList(),
+				isNewRecord ? null : testDataChildDao.findList(new TestDataChild(testDataMain)));
 	}
 	
 	@Transactional(readOnly = false)
@@ -0,0 +1,137 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * 全局配置测试：类型化读取、重新加载及配置修改监听（通过System的Property覆盖配置文件中的值）
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class GlobalTest {
+
+	private static final String INT_KEY = "test.global.int";
+	private static final String BOOLEAN_KEY = "test.global.boolean";
+	private static final String LIST_KEY = "test.global.list";
+
+	private final List<ConfigChangeListener> listeners = Lists.newArrayList();
+
+	@After
+	public void tearDown() {
+		for (ConfigChangeListener listener : listeners){
+			Global.removeConfigChangeListener(listener);
+		}
+		System.clearProperty(INT_KEY);
+		System.clearProperty(BOOLEAN_KEY);
+		System.clearProperty(LIST_KEY);
+		System.clearProperty("adminPath");
+		Global.reload();
+	}
+
+	@Test
+	public void testLoadFile() {
+		assertEquals("/a", Global.getAdminPath());
+		assertEquals("", Global.getConfig("test.global.missing"));
+	}
+
+	@Test
+	public void testTypedConfig() {
+		System.setProperty(INT_KEY, " 42 ");
+		System.setProperty(BOOLEAN_KEY, "1");
+		System.setProperty(LIST_KEY, " .css, ,.js ,");
+		Global.reload();
+		assertEquals(42, Global.getConfigInt(INT_KEY, 0));
+		assertTrue(Global.getConfigBoolean(BOOLEAN_KEY, false));
+		assertEquals(Arrays.asList(".css", ".js"), Global.getConfigList(LIST_KEY));
+
+		// 未配置或格式错误时返回默认值
+		System.setProperty(INT_KEY, "abc");
+		System.clearProperty(BOOLEAN_KEY);
+		System.clearProperty(LIST_KEY);
+		Global.reload();
+		assertEquals(7, Global.getConfigInt(INT_KEY, 7));
+		assertTrue(Global.getConfigBoolean(BOOLEAN_KEY, true));
+		assertFalse(Global.getConfigBoolean(BOOLEAN_KEY, false));
+		assertEquals(Collections.<String>emptyList(), Global.getConfigList(LIST_KEY));
+	}
+
+	@Test
+	public void testReloadReplacesParsedValues() {
+		System.setProperty(INT_KEY, "1");
+		Global.reload();
+		assertEquals(1, Global.getConfigInt(INT_KEY, 0));
+		System.setProperty(INT_KEY, "2");
+		// 重新加载前读取的仍是原快照
+		assertEquals(1, Global.getConfigInt(INT_KEY, 0));
+		Global.reload();
+		assertEquals(2, Global.getConfigInt(INT_KEY, 0));
+	}
+
+	@Test
+	public void testSystemPropertyOverridesFile() {
+		System.setProperty("adminPath", "/admin");
+		assertEquals(Sets.newHashSet("adminPath"), Global.reload());
+		assertEquals("/admin", Global.getAdminPath());
+	}
+
+	@Test
+	public void testChangeListener() {
+		final List<Set<String>> changes = Lists.newArrayList();
+		addListener(new ConfigChangeListener() {
+			@Override
+			public void onChange(Set<String> changedKeys) {
+				throw new IllegalStateException("listener errors must not stop others");
+			}
+		});
+		ConfigChangeListener listener = addListener(new ConfigChangeListener() {
+			@Override
+			public void onChange(Set<String> changedKeys) {
+				changes.add(changedKeys);
+			}
+		});
+
+		System.setProperty(INT_KEY, "1");
+		System.setProperty(BOOLEAN_KEY, "true");
+		Set<String> changedKeys = Global.reload();
+		assertEquals(Sets.newHashSet(INT_KEY, BOOLEAN_KEY), changedKeys);
+		assertEquals(1, changes.size());
+		assertEquals(changedKeys, changes.get(0));
+
+		// 没有修改时不通知
+		assertTrue(Global.reload().isEmpty());
+		assertEquals(1, changes.size());
+
+		// 删除的属性同样通知
+		System.clearProperty(BOOLEAN_KEY);
+		assertEquals(Sets.newHashSet(BOOLEAN_KEY), Global.reload());
+		assertEquals(2, changes.size());
+
+		// 移除后不再通知
+		Global.removeConfigChangeListener(listener);
+		System.setProperty(INT_KEY, "2");
+		Global.reload();
+		assertEquals(2, changes.size());
+	}
+
+	private ConfigChangeListener addListener(ConfigChangeListener listener) {
+		listeners.add(listener);
+		Global.addConfigChangeListener(listener);
+		return listener;
+	}
+
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.persistence;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.thinkgem.jeesite.common.persistence.dialect.db.MySQLDialect;
+import com.thinkgem.jeesite.common.persistence.interceptor.SQLHelper;
+
+/**
+ * 键集（seek）分页测试：Page.setSeek 参数校验及 SQLHelper.generateSeekSql 生成的SQL
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class PageSeekTest {
+
+	private static final String SQL = "select a.id from sys_log a where a.type = ? order by a.create_date desc";
+
+	private final MySQLDialect dialect = new MySQLDialect();
+
+	@Test
+	public void testSingleColumnFirstPage() {
+		Page<Object> page = new Page<Object>(1, 20).setSeek("a.id", false);
+		assertEquals("select a.id from sys_log a where a.type = ? order by a.id asc limit 21",
+				SQLHelper.generateSeekSql(SQL, page, dialect));
+		assertTrue(page.getSeekParameters().isEmpty());
+	}
+
+	@Test
+	public void testSingleColumn() {
+		Page<Object> page = new Page<Object>(1, 20).setSeek("a.id", false, "100");
+		assertEquals("select a.id from sys_log a where ( a.type = ? ) and a.id > ? order by a.id asc limit 21",
+				SQLHelper.generateSeekSql(SQL, page, dialect));
+		assertEquals(Arrays.<Object>asList("100"), page.getSeekParameters());
+	}
+
+	@Test
+	public void testCompositeKey() {
+		Page<Object> page = new Page<Object>(1, 20).setSeek("a.create_date, a.id", false, "2014-11-07", "100");
+		assertEquals("select a.id from sys_log a where ( a.type = ? ) and "
+				+ "(a.create_date >= ? and ((a.create_date > ?) or (a.create_date = ? and a.id > ?))) "
+				+ "order by a.create_date asc, a.id asc limit 21",
+				SQLHelper.generateSeekSql(SQL, page, dialect));
+		assertEquals(Arrays.<Object>asList("2014-11-07", "2014-11-07", "2014-11-07", "100"), page.getSeekParameters());
+	}
+
+	@Test
+	public void testCompositeKeyDesc() {
+		Page<Object> page = new Page<Object>(1, 20).setSeek("a.create_date,a.id", true, "2014-11-07", "100");
+		assertEquals("select a.id from sys_log a where "
+				+ "(a.create_date <= ? and ((a.create_date < ?) or (a.create_date = ? and a.id < ?))) "
+				+ "order by a.create_date desc, a.id desc limit 21",
+				SQLHelper.generateSeekSql("select a.id from sys_log a", page, dialect));
+		assertArrayEquals(new String[]{"a.create_date", "a.id"}, page.getSeekColumns());
+	}
+
+	@Test
+	public void testSeekDisablesCount() {
+		Page<Object> page = new Page<Object>(1, 20);
+		assertFalse(page.isNotCount());
+		page.setSeek("a.id", true);
+		assertTrue(page.isSeek());
+		assertTrue(page.isNotCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMoreValuesThanColumns() {
+		new Page<Object>(1, 20).setSeek("a.id", false, "1", "2");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFewerValuesThanColumns() {
+		new Page<Object>(1, 20).setSeek("a.create_date, a.id", false, "2014-11-07");
+	}
+
+	@Test
+	public void testIllegalColumnKeepsOffsetPaging() {
+		Page<Object> page = new Page<Object>(1, 20, 100);
+		try {
+			page.setSeek("a.id;drop table sys_log", false, "1");
+		} catch (IllegalArgumentException e) {
+			assertFalse(page.isSeek());
+			assertEquals(100, page.getCount());
+			return;
+		}
+		throw new AssertionError("expected IllegalArgumentException");
+	}
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * 树结构索引测试：子节点、先序遍历、子孙节点、名称路径及父节点循环引用
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class TreeIndexTest {
+
+	/**
+	 * 节点：编号、父编号、名称
+	 */
+	private static final TreeIndex.Accessor<String[]> ACCESSOR = new TreeIndex.Accessor<String[]>() {
+		@Override
+		public String getId(String[] node) {
+			return node[0];
+		}
+		@Override
+		public String getParentId(String[] node) {
+			return node[1];
+		}
+		@Override
+		public String getName(String[] node) {
+			return node[2];
+		}
+	};
+
+	private static String[] node(String id, String parentId) {
+		return new String[]{id, parentId, "n" + id};
+	}
+
+	private static TreeIndex<String[]> create(String[]... nodes) {
+		return new TreeIndex<String[]>(Lists.newArrayList(nodes), ACCESSOR);
+	}
+
+	private static String ids(List<String[]> list) {
+		StringBuilder sb = new StringBuilder();
+		for (String[] node : list){
+			sb.append(sb.length() > 0 ? "," : "").append(node[0]);
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testPreOrder() {
+		// 子节点在父节点之前也能正确构建，同级节点保持原顺序
+		TreeIndex<String[]> tree = create(node("3", "1"), node("1", "0"), node("4", "2"),
+				node("2", "1"), node("5", "0"));
+		assertEquals("1,5", ids(tree.getRoots()));
+		assertEquals("1,3,2,4,5", ids(tree.getPreOrderList()));
+		assertEquals("3,2", ids(tree.getChildren("1")));
+		assertTrue(tree.hasChildren("2"));
+		assertFalse(tree.hasChildren("4"));
+		assertEquals(5, tree.size());
+	}
+
+	@Test
+	public void testDescendants() {
+		TreeIndex<String[]> tree = create(node("1", "0"), node("2", "1"), node("3", "2"),
+				node("4", "1"), node("5", "0"));
+		assertEquals("2,3,4", ids(tree.getDescendants("1", true)));
+		assertEquals("2,4", ids(tree.getDescendants("1", false)));
+		assertEquals("", ids(tree.getDescendants("3", true)));
+		// 不在列表中的节点，返回以其为父节点的根节点
+		assertEquals("1,2,3,4,5", ids(tree.getDescendants("0", true)));
+		assertEquals("1,5", ids(tree.getDescendants("0", false)));
+		assertEquals(Sets.newHashSet("2", "3"), tree.getSubtreeIds("2"));
+	}
+
+	@Test
+	public void testNamePath() {
+		TreeIndex<String[]> tree = create(node("1", "0"), node("2", "1"), node("3", "2"));
+		assertEquals("n1/n2/n3", tree.getNamePath("3", "/", true));
+		assertEquals("n2/n3", tree.getNamePath("3", "/", false));
+		assertEquals("n1", tree.getNamePath("1", "/", false));
+		assertNull(tree.getNamePath("9", "/", true));
+	}
+
+	@Test
+	public void testSelfParentIsRoot() {
+		TreeIndex<String[]> tree = create(node("1", "1"), node("2", "1"));
+		assertEquals("1", ids(tree.getRoots()));
+		assertEquals("1,2", ids(tree.getPreOrderList()));
+	}
+
+	@Test
+	public void testCircularReference() {
+		// 2、3、4互为父节点，5挂在循环中；循环中最靠前的节点（3）作为根节点，不丢失节点
+		TreeIndex<String[]> tree = create(node("1", "0"), node("3", "4"), node("2", "3"),
+				node("4", "2"), node("5", "4"));
+		assertEquals(5, tree.size());
+		assertEquals("1,3", ids(tree.getRoots()));
+		assertEquals("1,3,2,4,5", ids(tree.getPreOrderList()));
+		assertEquals("5", ids(tree.getChildren("4")));
+		assertEquals("2,4,5", ids(tree.getDescendants("3", true)));
+		assertEquals("n3/n2/n4/n5", tree.getNamePath("5", "/", true));
+	}
+
+	@Test
+	public void testTwoCycles() {
+		TreeIndex<String[]> tree = create(node("1", "2"), node("2", "1"), node("3", "4"), node("4", "3"));
+		assertEquals("1,3", ids(tree.getRoots()));
+		assertEquals("1,2,3,4", ids(tree.getPreOrderList()));
+		assertFalse(tree.hasChildren("2"));
+		assertFalse(tree.hasChildren("4"));
+	}
+
+}
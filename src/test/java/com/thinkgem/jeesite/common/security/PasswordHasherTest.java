@@ -0,0 +1,99 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.thinkgem.jeesite.common.config.Global;
+
+/**
+ * 密码散列测试：旧格式兼容、算法及迭代次数切换、重新散列判断
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class PasswordHasherTest {
+
+	/**
+	 * 初始化数据中admin的密码（旧格式：16位salt + 40位hash，SHA-1迭代1024次）
+	 */
+	private static final String LEGACY_ADMIN = "02a3f0772fcca9f415adc990734b45c6f059c7d33ee28362c4852032";
+
+	@After
+	public void tearDown() {
+		System.clearProperty("password.algorithm");
+		System.clearProperty("password.iterations");
+		System.clearProperty("password.verifyCacheSeconds");
+		Global.reload();
+		PasswordHasher.clearCache();
+	}
+
+	@Test
+	public void testLegacyHash() {
+		assertTrue(PasswordHasher.verify("admin", "admin", LEGACY_ADMIN));
+		assertFalse(PasswordHasher.verify("admin", "Admin", LEGACY_ADMIN));
+		assertFalse(PasswordHasher.needsRehash(LEGACY_ADMIN));
+	}
+
+	@Test
+	public void testDefaultEncodeKeepsLegacyFormat() {
+		String password = PasswordHasher.encode("123456");
+		assertEquals(56, password.length());
+		assertNotEquals(password, PasswordHasher.encode("123456"));
+		assertTrue(PasswordHasher.verify(null, "123456", password));
+		assertFalse(PasswordHasher.verify(null, "654321", password));
+	}
+
+	@Test
+	public void testPbkdf2() {
+		System.setProperty("password.algorithm", "pbkdf2");
+		System.setProperty("password.iterations", "2000");
+		Global.reload();
+		String password = PasswordHasher.encode("123456");
+		assertTrue(password.startsWith("$pbkdf2$2000$"));
+		assertTrue(PasswordHasher.verify("user", "123456", password));
+		assertFalse(PasswordHasher.verify("user", "1234567", password));
+		assertFalse(PasswordHasher.needsRehash(password));
+		// 旧格式密码仍可校验，登录后按新配置重新散列
+		assertTrue(PasswordHasher.verify("admin", "admin", LEGACY_ADMIN));
+		assertTrue(PasswordHasher.needsRehash(LEGACY_ADMIN));
+	}
+
+	@Test
+	public void testIterationsChange() {
+		System.setProperty("password.iterations", "2048");
+		Global.reload();
+		String password = PasswordHasher.encode("123456");
+		assertTrue(password.startsWith("$sha1$2048$"));
+		assertTrue(PasswordHasher.verify("user", "123456", password));
+		assertTrue(PasswordHasher.needsRehash(LEGACY_ADMIN));
+	}
+
+	@Test
+	public void testVerifyWithoutCache() {
+		System.setProperty("password.verifyCacheSeconds", "0");
+		Global.reload();
+		for (int i = 0; i < 2; i++){
+			assertTrue(PasswordHasher.verify("admin", "admin", LEGACY_ADMIN));
+			assertFalse(PasswordHasher.verify("admin", "wrong", LEGACY_ADMIN));
+		}
+	}
+
+	@Test
+	public void testMalformedHash() {
+		assertFalse(PasswordHasher.verify("admin", "admin", null));
+		assertFalse(PasswordHasher.verify("admin", "admin", ""));
+		assertFalse(PasswordHasher.verify("admin", "admin", "abc"));
+		assertFalse(PasswordHasher.verify("admin", "admin", "$md5$1$00$00"));
+		assertFalse(PasswordHasher.verify("admin", "admin", "$sha1$x$00$00"));
+		assertFalse(PasswordHasher.verify("admin", null, LEGACY_ADMIN));
+		assertFalse(PasswordHasher.needsRehash("abc"));
+	}
+
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+import com.thinkgem.jeesite.common.config.Global;
+import com.thinkgem.jeesite.test.EmbeddedRedis;
+
+/**
+ * CacheUtils 二级缓存测试：一级缓存为Ehcache，二级缓存及失效通知使用进程内的EmbeddedRedis
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class CacheUtilsTest {
+
+	private static final String CACHE_NAME = "sysCache";
+
+	private static EmbeddedRedis redis;
+	private static JedisPool jedisPool;
+	private static CacheManager cacheManager;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		redis = new EmbeddedRedis();
+		jedisPool = new JedisPool(new JedisPoolConfig(), redis.getHost(), redis.getPort());
+		cacheManager = new CacheManager(new Configuration().name("cacheUtilsTest")
+				.defaultCache(new CacheConfiguration("default", 1000)));
+
+		// 启用二级缓存（System的Property优先于jeesite.properties）
+		System.setProperty("cache.redis.enabled", "true");
+		Global.reload();
+
+		StaticApplicationContext context = new StaticApplicationContext();
+		context.getBeanFactory().registerSingleton("cacheManager", cacheManager);
+		context.getBeanFactory().registerSingleton("jedisPool", jedisPool);
+		context.refresh();
+		Field field = SpringContextHolder.class.getDeclaredField("applicationContext");
+		field.setAccessible(true);
+		field.set(null, context);
+
+		// 等待失效通知订阅完成
+		CacheUtils.getCacheManager();
+		String channel = getChannel();
+		for (int i = 0; i < 100 && redis.getSubscriberCount(channel) == 0; i++){
+			Thread.sleep(50);
+		}
+		assertEquals(1, redis.getSubscriberCount(channel));
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		System.clearProperty("cache.redis.enabled");
+		Global.reload();
+		SpringContextHolder.clearHolder();
+		jedisPool.destroy();
+		cacheManager.shutdown();
+		redis.shutdown();
+	}
+
+	@Test
+	public void testPutWritesThroughToRedis() {
+		CacheUtils.put("putKey", "value");
+		assertEquals("value", CacheUtils.get("putKey"));
+		assertNotNull(redis.get(getRedisKey("putKey")));
+	}
+
+	@Test
+	public void testLocalMissFallsBackToRedis() {
+		CacheUtils.put("missKey", "value");
+		Cache cache = cacheManager.getCache(CACHE_NAME);
+		cache.remove("missKey");
+		assertNull(cache.get("missKey"));
+
+		assertEquals("value", CacheUtils.get("missKey"));
+		// 回填一级缓存
+		assertNotNull(cache.get("missKey"));
+	}
+
+	@Test
+	public void testRemoveDeletesFromRedis() {
+		CacheUtils.put("removeKey", "value");
+		CacheUtils.remove("removeKey");
+		assertNull(redis.get(getRedisKey("removeKey")));
+		assertNull(CacheUtils.get("removeKey"));
+	}
+
+	@Test
+	public void testInvalidateMessageFromOtherNode() throws Exception {
+		CacheUtils.put("remoteKey", "value");
+		Cache cache = cacheManager.getCache(CACHE_NAME);
+		assertNotNull(cache.get("remoteKey"));
+
+		// 模拟其它节点修改后发出的失效通知
+		Jedis jedis = jedisPool.getResource();
+		try {
+			jedis.publish(getChannel(), "otherNode:" + CACHE_NAME + ":remoteKey");
+		} finally {
+			jedisPool.returnResource(jedis);
+		}
+		boolean removed = false;
+		for (int i = 0; i < 100 && !removed; i++){
+			removed = cache.get("remoteKey") == null;
+			if (!removed){
+				Thread.sleep(20);
+			}
+		}
+		assertTrue("local entry should be invalidated", removed);
+	}
+
+	@Test
+	public void testDisconnectClearsLocalCache() throws Exception {
+		Cache cache = cacheManager.getCache(CACHE_NAME);
+		CacheUtils.put("disconnectKey", "value");
+		// 只存在于一级缓存的值，订阅中断后也应清除
+		cache.put(new Element("localOnlyKey", "value"));
+
+		String channel = getChannel();
+		redis.closeSubscribers(channel);
+		boolean cleared = false;
+		for (int i = 0; i < 100 && !cleared; i++){
+			cleared = cache.get("localOnlyKey") == null && cache.get("disconnectKey") == null;
+			if (!cleared){
+				Thread.sleep(20);
+			}
+		}
+		assertTrue("local cache should be cleared on disconnect", cleared);
+		// 二级缓存仍可读取并回填
+		assertEquals("value", CacheUtils.get("disconnectKey"));
+
+		// 等待重新订阅，避免影响其它测试
+		for (int i = 0; i < 200 && redis.getSubscriberCount(channel) == 0; i++){
+			Thread.sleep(50);
+		}
+		assertEquals(1, redis.getSubscriberCount(channel));
+	}
+
+	private static String getChannel() {
+		return Global.getConfig("redis.keyPrefix") + "_cache_invalidate";
+	}
+
+	private static String getRedisKey(String key) {
+		return Global.getConfig("redis.keyPrefix") + "_cache_" + CACHE_NAME + ":" + key;
+	}
+
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.thinkgem.jeesite.common.config.Global;
+
+/**
+ * ID生成策略测试：snowflake、ulid的格式、单调递增及多线程唯一性，snowflake必须配置工作节点编号
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class IdGenTest {
+
+	private static final int COUNT = 20000;
+
+	@Test
+	public void testSnowflakeMonotonic() {
+		IdGen.Snowflake snowflake = new IdGen.Snowflake(5, false);
+		long last = 0;
+		String lastId = "";
+		for (int i = 0; i < COUNT; i++){
+			long id = snowflake.nextLong();
+			assertTrue(id > last);
+			assertEquals(5, (id >>> 12) & IdGen.Snowflake.MAX_WORKER_ID);
+			last = id;
+			String s = snowflake.nextId();
+			assertEquals(19, s.length());
+			assertTrue(s.compareTo(lastId) > 0);
+			lastId = s;
+		}
+	}
+
+	@Test
+	public void testSnowflake62SortOrder() {
+		IdGen.Snowflake snowflake = new IdGen.Snowflake(1, true);
+		String last = "";
+		for (int i = 0; i < COUNT; i++){
+			String id = snowflake.nextId();
+			assertEquals(11, id.length());
+			// Base62按字符编码排序（区分大小写）与生成顺序一致
+			assertTrue(id.compareTo(last) > 0);
+			last = id;
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSnowflakeInvalidWorkerId() {
+		new IdGen.Snowflake(IdGen.Snowflake.MAX_WORKER_ID + 1, false);
+	}
+
+	@Test
+	public void testSnowflakeUniqueAcrossThreads() throws Exception {
+		assertUnique(new IdGen.Snowflake(1, false));
+	}
+
+	@Test
+	public void testUlidMonotonic() {
+		IdGen.Ulid ulid = new IdGen.Ulid(true);
+		long begin = System.currentTimeMillis();
+		String last = "";
+		for (int i = 0; i < COUNT; i++){
+			String id = ulid.nextId();
+			assertEquals(26, id.length());
+			assertTrue(id.matches("[0-9A-HJKMNP-TV-Z]{26}"));
+			assertTrue(id.compareTo(last) > 0);
+			last = id;
+		}
+		// 前10位为毫秒时间
+		long time = 0;
+		for (char c : last.substring(0, 10).toCharArray()){
+			time = time * 32 + "0123456789ABCDEFGHJKMNPQRSTVWXYZ".indexOf(c);
+		}
+		assertTrue(time >= begin && time <= System.currentTimeMillis());
+	}
+
+	@Test
+	public void testUlidUniqueAcrossThreads() throws Exception {
+		assertUnique(new IdGen.Ulid(true));
+		assertUnique(new IdGen.Ulid(false));
+	}
+
+	@Test
+	public void testSnowflakeRequiresWorkerId() {
+		System.clearProperty("id.workerId");
+		Global.reload();
+		try {
+			IdGen.newIdGenerator(IdGen.TYPE_SNOWFLAKE, true);
+			throw new AssertionError("expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			// id.workerId未配置
+		}
+		System.setProperty("id.workerId", "7");
+		Global.reload();
+		try {
+			IdGen.Snowflake snowflake = (IdGen.Snowflake)IdGen.newIdGenerator(IdGen.TYPE_SNOWFLAKE, true);
+			assertEquals(7, (snowflake.nextLong() >>> 12) & IdGen.Snowflake.MAX_WORKER_ID);
+		} finally {
+			System.clearProperty("id.workerId");
+			Global.reload();
+		}
+	}
+
+	/**
+	 * 多线程同时生成，检查是否重复
+	 */
+	private static void assertUnique(final IdGenerator generator) throws Exception {
+		int threads = Math.max(Runtime.getRuntime().availableProcessors(), 4);
+		final Set<String> ids = Sets.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		final List<String> duplicates = Lists.newArrayList();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch end = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++){
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int i = 0; i < COUNT; i++){
+							String id = generator.nextId();
+							if (!ids.add(id)){
+								synchronized (duplicates) {
+									duplicates.add(id);
+								}
+							}
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						end.countDown();
+					}
+				}
+			}.start();
+		}
+		start.countDown();
+		end.await();
+		assertEquals("duplicates: " + duplicates, threads * COUNT, ids.size());
+	}
+
+}
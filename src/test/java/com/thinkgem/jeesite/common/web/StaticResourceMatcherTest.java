@@ -0,0 +1,80 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.common.web;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * 静态资源匹配器测试：后缀（不区分大小写、排除优先、路径参数）及路径前缀
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class StaticResourceMatcherTest {
+
+	private final StaticResourceMatcher matcher = new StaticResourceMatcher(
+			Arrays.asList(".css", ".js", ".png", ".html", " ", null),
+			Arrays.asList(".html", ".jsp", ".min.js"),
+			Arrays.asList("/static/"));
+
+	@Test
+	public void testSuffix() {
+		assertTrue(matcher.matches("/jeesite/a/login.css"));
+		assertTrue(matcher.matches("/a/b/c.js"));
+		assertTrue(matcher.matches("logo.png"));
+		assertFalse(matcher.matches("/a/sys/user/list"));
+		assertFalse(matcher.matches("/a/sys/user/css"));
+		assertFalse(matcher.matches("/a/file.css/edit"));
+		assertFalse(matcher.matches("/a/file.jss"));
+		assertFalse(matcher.matches(""));
+		assertFalse(matcher.matches(null));
+	}
+
+	@Test
+	public void testCaseInsensitive() {
+		assertTrue(matcher.matches("/a/LOGO.PNG"));
+		assertTrue(matcher.matches("/a/Main.Css"));
+		assertFalse(matcher.matches("/a/index.JSP"));
+	}
+
+	@Test
+	public void testPathParameter() {
+		assertTrue(matcher.matches("/a/main.css;jsessionid=0123abc"));
+		assertFalse(matcher.matches("/a/index.jsp;jsessionid=0123.css"));
+	}
+
+	@Test
+	public void testExcludeFirst() {
+		// 排除后缀优先于静态资源后缀（如URL后缀.html）
+		assertFalse(matcher.matches("/a/sys/user/list.html"));
+		// 较长的排除后缀
+		assertFalse(matcher.matches("/a/jquery.min.js"));
+		assertTrue(matcher.matches("/a/jquery.js"));
+	}
+
+	@Test
+	public void testPathPrefix() {
+		assertTrue(matcher.matches("/static/fonts/icon.woff"));
+		assertTrue(matcher.matchesPath("/static/fonts/icon.woff"));
+		assertTrue(matcher.matchesPath("/static/common/jeesite.css"));
+		assertFalse(matcher.matches("/static/index.jsp"));
+		assertFalse(matcher.matchesPath("/static/index.jsp"));
+		// matchesPath只按路径前缀判断
+		assertFalse(matcher.matchesPath("/a/main.css"));
+		assertFalse(matcher.matchesPath("/a/static/main.woff"));
+		assertFalse(matcher.matchesPath(null));
+	}
+
+	@Test
+	public void testEmpty() {
+		StaticResourceMatcher empty = new StaticResourceMatcher(null, null, null);
+		assertFalse(empty.matches("/a/main.css"));
+		assertFalse(empty.matchesPath("/static/main.css"));
+	}
+
+}
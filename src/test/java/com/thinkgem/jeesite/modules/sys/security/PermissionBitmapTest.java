@@ -0,0 +1,75 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.modules.sys.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.apache.shiro.authz.permission.WildcardPermission;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * 权限位图测试：判断结果与Shiro的WildcardPermission逐条匹配一致
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class PermissionBitmapTest {
+
+	private static final List<String> GRANTED = Lists.newArrayList("sys:user:view", "sys:role",
+			"SYS:Office:Edit", "cms:*:view", "oa:leave:view,edit", "user");
+
+	private static final String[] QUERIES = {"sys:user:view", "sys:user:edit", "sys:user",
+			"sys:role:view", "sys:role:edit:all", "sys:office:edit", "sys:office:view", "sys:menu:view",
+			"cms:article:view", "cms:article:edit", "oa:leave:edit", "oa:leave:delete", "user", "user:info",
+			"act", "sys"};
+
+	@Test
+	public void testSameAsWildcardPermission() {
+		PermissionBitmap bitmap = PermissionBitmap.compile(GRANTED);
+		for (String query : QUERIES){
+			assertEquals(query, isPermitted(GRANTED, query), bitmap.isPermitted(query));
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		PermissionBitmap bitmap = PermissionBitmap.compile(null);
+		assertEquals(Boolean.FALSE, bitmap.isPermitted("sys:user:view"));
+	}
+
+	@Test
+	public void testWildcardQueryFallsBack() {
+		PermissionBitmap bitmap = PermissionBitmap.compile(GRANTED);
+		assertNull(bitmap.isPermitted("sys:user:*"));
+		assertNull(bitmap.isPermitted("sys:user:view,edit"));
+		assertNull(bitmap.isPermitted("sys::view"));
+	}
+
+	@Test
+	public void testAuthorizationInfoRecompiles() {
+		BitmapAuthorizationInfo info = new BitmapAuthorizationInfo();
+		info.addStringPermission("sys:user:view");
+		assertEquals(Boolean.FALSE, info.isPermitted("sys:role:view"));
+		info.addStringPermission("sys:role");
+		assertEquals(Boolean.TRUE, info.isPermitted("sys:role:view"));
+	}
+
+	/**
+	 * Shiro的判断方式：逐条WildcardPermission.implies
+	 */
+	private static Boolean isPermitted(List<String> granted, String query) {
+		WildcardPermission p = new WildcardPermission(query);
+		for (String permission : granted){
+			if (new WildcardPermission(permission).implies(p)){
+				return Boolean.TRUE;
+			}
+		}
+		return Boolean.FALSE;
+	}
+
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.modules.sys.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.thinkgem.jeesite.common.config.Global;
+import com.thinkgem.jeesite.common.service.CrudService;
+import com.thinkgem.jeesite.modules.sys.dao.OfficeDao;
+import com.thinkgem.jeesite.modules.sys.entity.Office;
+
+/**
+ * 机构Service测试：启用闭包表时子机构查询的方式（根节点仍使用parentIds查询）
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class OfficeServiceTest {
+
+	/**
+	 * 调用记录：方法名:机构编号或parentIds
+	 */
+	private final List<String> calls = Lists.newArrayList();
+
+	private OfficeService officeService;
+
+	@Before
+	public void setUp() throws Exception {
+		System.setProperty("office.closureEnabled", "true");
+		Global.reload();
+		OfficeDao dao = (OfficeDao)Proxy.newProxyInstance(OfficeDao.class.getClassLoader(),
+				new Class<?>[]{OfficeDao.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				Office office = (Office)args[0];
+				if ("findDescendants".equals(method.getName())){
+					calls.add("findDescendants:" + office.getId());
+				}else if ("findByParentIdsLike".equals(method.getName())){
+					calls.add("findByParentIdsLike:" + office.getParentIds());
+				}else{
+					throw new UnsupportedOperationException(method.getName());
+				}
+				return Lists.newArrayList();
+			}
+		});
+		officeService = new OfficeService();
+		Field field = CrudService.class.getDeclaredField("dao");
+		field.setAccessible(true);
+		field.set(officeService, dao);
+	}
+
+	@After
+	public void tearDown() {
+		System.clearProperty("office.closureEnabled");
+		Global.reload();
+	}
+
+	@Test
+	public void testClosure() {
+		officeService.findList(newOffice("0,1,2,"));
+		assertEquals(Lists.newArrayList("findDescendants:2"), calls);
+	}
+
+	@Test
+	public void testRootUsesParentIds() {
+		// 根节点0在闭包表中没有记录
+		officeService.findList(newOffice("0,"));
+		officeService.findList(newOffice(""));
+		assertEquals(Lists.newArrayList("findByParentIdsLike:0,%", "findByParentIdsLike:%"), calls);
+	}
+
+	@Test
+	public void testClosureDisabled() {
+		System.setProperty("office.closureEnabled", "false");
+		Global.reload();
+		officeService.findList(newOffice("0,1,2,"));
+		assertEquals(Lists.newArrayList("findByParentIdsLike:0,1,2,%"), calls);
+	}
+
+	private static Office newOffice(String parentIds) {
+		Office office = new Office();
+		office.setParentIds(parentIds);
+		return office;
+	}
+
+}
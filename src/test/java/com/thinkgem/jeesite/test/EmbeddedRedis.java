@@ -0,0 +1,387 @@
+/**
+ * Copyright &copy; 2012-2014 <a href="https://github.com/thinkgem/jeesite">JeeSite</a> All rights reserved.
+ */
+package com.thinkgem.jeesite.test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import com.google.common.collect.Lists;
+
+/**
+ * 测试用的进程内Redis替身，实现RESP协议及缓存、会话相关的常用命令（字符串、过期、发布订阅），
+ * 不需要安装Redis即可测试JedisUtils、CacheUtils等；数据只保存在内存中，不支持事务、持久化等.
+ * 支持的命令：PING、ECHO、AUTH、SELECT、QUIT、GET、SET（EX）、SETEX、EXPIRE、TTL、EXISTS、DEL、
+ * FLUSHDB、FLUSHALL、PUBLISH、SUBSCRIBE、UNSUBSCRIBE.
+ * @author ThinkGem
+ * @version 2014-11-7
+ */
+public class EmbeddedRedis {
+
+	private static final String CHARSET = "ISO-8859-1";
+
+	private final ServerSocket serverSocket;
+	private final Map<String, byte[]> values = new ConcurrentHashMap<String, byte[]>();
+	private final Map<String, Long> expires = new ConcurrentHashMap<String, Long>();
+	private final Map<String, Set<Connection>> channels = new ConcurrentHashMap<String, Set<Connection>>();
+	private final Set<Connection> connections = new CopyOnWriteArraySet<Connection>();
+	private volatile boolean running = true;
+
+	/**
+	 * 在本机随机端口启动
+	 */
+	public EmbeddedRedis() throws IOException {
+		this(0);
+	}
+
+	public EmbeddedRedis(int port) throws IOException {
+		serverSocket = new ServerSocket(port, 50, InetAddress.getByName("127.0.0.1"));
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (running){
+					try {
+						Connection connection = new Connection(serverSocket.accept());
+						connections.add(connection);
+						Thread worker = new Thread(connection, "EmbeddedRedis-connection");
+						worker.setDaemon(true);
+						worker.start();
+					} catch (IOException e) {
+						// 已关闭
+					}
+				}
+			}
+		}, "EmbeddedRedis-acceptor");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public String getHost() {
+		return "127.0.0.1";
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * 读取键值（测试断言用），不存在或已过期返回null
+	 */
+	public byte[] get(String key) {
+		return getValue(toKey(key.getBytes(Charset.forName("UTF-8"))));
+	}
+
+	/**
+	 * 频道的订阅连接数
+	 */
+	public int getSubscriberCount(String channel) {
+		Set<Connection> set = channels.get(channel);
+		return set != null ? set.size() : 0;
+	}
+
+	/**
+	 * 关闭频道的订阅连接（模拟订阅中断），服务继续运行
+	 */
+	public void closeSubscribers(String channel) {
+		Set<Connection> set = channels.get(channel);
+		if (set != null){
+			for (Connection connection : set){
+				connection.close();
+			}
+		}
+	}
+
+	/**
+	 * 关闭服务及所有连接
+	 */
+	public void shutdown() {
+		running = false;
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			// ignore
+		}
+		for (Connection connection : connections){
+			connection.close();
+		}
+	}
+
+	private byte[] getValue(String key) {
+		Long expire = expires.get(key);
+		if (expire != null && expire <= System.currentTimeMillis()){
+			values.remove(key);
+			expires.remove(key);
+			return null;
+		}
+		return values.get(key);
+	}
+
+	private static String toKey(byte[] bytes) {
+		try {
+			return new String(bytes, CHARSET);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * 客户端连接，逐条读取命令并回复
+	 */
+	private class Connection implements Runnable {
+
+		private final Socket socket;
+		private final InputStream in;
+		private final OutputStream out;
+		private final Set<String> subscriptions = new CopyOnWriteArraySet<String>();
+
+		private Connection(Socket socket) throws IOException {
+			this.socket = socket;
+			this.in = new BufferedInputStream(socket.getInputStream());
+			this.out = socket.getOutputStream();
+		}
+
+		@Override
+		public void run() {
+			try {
+				List<byte[]> command;
+				while ((command = readCommand()) != null){
+					if (!execute(command)){
+						break;
+					}
+				}
+			} catch (IOException e) {
+				// 连接断开
+			} finally {
+				close();
+			}
+		}
+
+		private void close() {
+			for (String channel : subscriptions){
+				Set<Connection> set = channels.get(channel);
+				if (set != null){
+					set.remove(this);
+				}
+			}
+			connections.remove(this);
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+
+		/**
+		 * 执行命令，返回false表示关闭连接
+		 */
+		private boolean execute(List<byte[]> command) throws IOException {
+			String name = toKey(command.get(0)).toUpperCase();
+			if ("PING".equals(name)){
+				writeStatus("PONG");
+			}else if ("ECHO".equals(name)){
+				writeBulk(command.get(1));
+			}else if ("AUTH".equals(name) || "SELECT".equals(name)){
+				writeStatus("OK");
+			}else if ("QUIT".equals(name)){
+				writeStatus("OK");
+				return false;
+			}else if ("GET".equals(name)){
+				writeBulk(get(command.get(1)));
+			}else if ("SET".equals(name)){
+				String key = toKey(command.get(1));
+				values.put(key, command.get(2));
+				expires.remove(key);
+				if (command.size() >= 5 && "EX".equalsIgnoreCase(toKey(command.get(3)))){
+					expire(key, command.get(4));
+				}
+				writeStatus("OK");
+			}else if ("SETEX".equals(name)){
+				String key = toKey(command.get(1));
+				values.put(key, command.get(3));
+				expire(key, command.get(2));
+				writeStatus("OK");
+			}else if ("EXPIRE".equals(name)){
+				String key = toKey(command.get(1));
+				boolean exists = get(command.get(1)) != null;
+				if (exists){
+					expire(key, command.get(2));
+				}
+				writeInteger(exists ? 1 : 0);
+			}else if ("TTL".equals(name)){
+				String key = toKey(command.get(1));
+				Long expire = get(command.get(1)) != null ? expires.get(key) : null;
+				writeInteger(get(command.get(1)) == null ? -2 : expire == null ? -1
+						: (expire - System.currentTimeMillis() + 999) / 1000);
+			}else if ("EXISTS".equals(name)){
+				writeInteger(get(command.get(1)) != null ? 1 : 0);
+			}else if ("DEL".equals(name)){
+				int count = 0;
+				for (int i = 1; i < command.size(); i++){
+					String key = toKey(command.get(i));
+					if (get(command.get(i)) != null){
+						count++;
+					}
+					values.remove(key);
+					expires.remove(key);
+				}
+				writeInteger(count);
+			}else if ("FLUSHDB".equals(name) || "FLUSHALL".equals(name)){
+				values.clear();
+				expires.clear();
+				writeStatus("OK");
+			}else if ("PUBLISH".equals(name)){
+				Set<Connection> set = channels.get(toKey(command.get(1)));
+				int count = 0;
+				if (set != null){
+					for (Connection connection : set){
+						connection.writeMessage(command.get(1), command.get(2));
+						count++;
+					}
+				}
+				writeInteger(count);
+			}else if ("SUBSCRIBE".equals(name)){
+				for (int i = 1; i < command.size(); i++){
+					String channel = toKey(command.get(i));
+					synchronized (channels) {
+						Set<Connection> set = channels.get(channel);
+						if (set == null){
+							set = new CopyOnWriteArraySet<Connection>();
+							channels.put(channel, set);
+						}
+						set.add(this);
+					}
+					subscriptions.add(channel);
+					writeSubscription("subscribe", command.get(i));
+				}
+			}else if ("UNSUBSCRIBE".equals(name)){
+				List<String> list = Lists.newArrayList(subscriptions);
+				if (command.size() > 1){
+					list.clear();
+					for (int i = 1; i < command.size(); i++){
+						list.add(toKey(command.get(i)));
+					}
+				}
+				for (String channel : list){
+					Set<Connection> set = channels.get(channel);
+					if (set != null){
+						set.remove(this);
+					}
+					subscriptions.remove(channel);
+					writeSubscription("unsubscribe", channel.getBytes(CHARSET));
+				}
+			}else{
+				writeRaw("-ERR unknown command '" + name + "'\r\n");
+			}
+			return true;
+		}
+
+		private byte[] get(byte[] key) {
+			return getValue(toKey(key));
+		}
+
+		private void expire(String key, byte[] seconds) {
+			expires.put(key, System.currentTimeMillis() + Long.parseLong(toKey(seconds)) * 1000);
+		}
+
+		/**
+		 * 读取一条命令（RESP数组或内联命令），连接关闭返回null
+		 */
+		private List<byte[]> readCommand() throws IOException {
+			String line = readLine();
+			if (line == null){
+				return null;
+			}
+			List<byte[]> command = Lists.newArrayList();
+			if (line.startsWith("*")){
+				int count = Integer.parseInt(line.substring(1));
+				for (int i = 0; i < count; i++){
+					String header = readLine();
+					if (header == null || !header.startsWith("$")){
+						throw new IOException("Protocol error: " + header);
+					}
+					byte[] bytes = new byte[Integer.parseInt(header.substring(1))];
+					int offset = 0;
+					while (offset < bytes.length){
+						int read = in.read(bytes, offset, bytes.length - offset);
+						if (read < 0){
+							return null;
+						}
+						offset += read;
+					}
+					readLine();
+					command.add(bytes);
+				}
+			}else{
+				for (String s : line.trim().split("\\s+")){
+					command.add(s.getBytes(CHARSET));
+				}
+			}
+			return command.isEmpty() ? readCommand() : command;
+		}
+
+		private String readLine() throws IOException {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			int b;
+			while ((b = in.read()) != -1){
+				if (b == '\r'){
+					in.read();
+					return buffer.toString(CHARSET);
+				}
+				buffer.write(b);
+			}
+			return null;
+		}
+
+		private synchronized void writeRaw(String s) throws IOException {
+			out.write(s.getBytes(CHARSET));
+			out.flush();
+		}
+
+		private void writeStatus(String status) throws IOException {
+			writeRaw("+" + status + "\r\n");
+		}
+
+		private void writeInteger(long value) throws IOException {
+			writeRaw(":" + value + "\r\n");
+		}
+
+		private synchronized void writeBulk(byte[] bytes) throws IOException {
+			if (bytes == null){
+				writeRaw("$-1\r\n");
+				return;
+			}
+			out.write(("$" + bytes.length + "\r\n").getBytes(CHARSET));
+			out.write(bytes);
+			out.write("\r\n".getBytes(CHARSET));
+			out.flush();
+		}
+
+		private synchronized void writeSubscription(String kind, byte[] channel) throws IOException {
+			writeRaw("*3\r\n");
+			writeBulk(kind.getBytes(CHARSET));
+			writeBulk(channel);
+			writeInteger(subscriptions.size());
+		}
+
+		private synchronized void writeMessage(byte[] channel, byte[] message) throws IOException {
+			writeRaw("*3\r\n");
+			writeBulk("message".getBytes(CHARSET));
+			writeBulk(channel);
+			writeBulk(message);
+		}
+
+	}
+
+}